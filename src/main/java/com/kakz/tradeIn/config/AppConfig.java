@@ -55,7 +55,7 @@ public class AppConfig {
                 cfg.setAllowedMethods(Collections.singletonList("*"));
                 cfg.setAllowCredentials(true);
                 cfg.setAllowedHeaders(Collections.singletonList("*"));
-                cfg.setExposedHeaders(Arrays.asList("Authorization"));
+                cfg.setExposedHeaders(Arrays.asList("Authorization", "X-Next-Cursor"));
                 cfg.setMaxAge(3600L);
                 return cfg;
             }
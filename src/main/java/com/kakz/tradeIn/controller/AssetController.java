@@ -2,6 +2,7 @@ package com.kakz.tradeIn.controller;
 
 import com.kakz.tradeIn.model.Asset;
 import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.response.AssetSummary;
 import com.kakz.tradeIn.service.AssetService;
 import com.kakz.tradeIn.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -79,11 +80,11 @@ public class AssetController {
      */
     @GetMapping()
     @Operation(summary = " Retrieves the list of assets for a given user based on their JWT token.")
-    public ResponseEntity<List<Asset>> getAssetsForUser(
+    public ResponseEntity<List<AssetSummary>> getAssetsForUser(
             @RequestHeader("Authorization") String jwt
     ) throws Exception {
         User user=userService.findUserProfileByJwt(jwt);
-        List<Asset> assets = assetService.getUsersAssets(user.getId());
+        List<AssetSummary> assets = assetService.getUsersAssets(user.getId());
         return ResponseEntity.ok().body(assets);
     }
 }
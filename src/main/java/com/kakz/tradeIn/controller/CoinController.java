@@ -1,15 +1,19 @@
 package com.kakz.tradeIn.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kakz.tradeIn.market.MarketPayload;
+import com.kakz.tradeIn.market.PriceTickHub;
+import com.kakz.tradeIn.matching.DepthFeed;
 import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.service.CoinService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -20,7 +24,10 @@ public class CoinController {
     private CoinService coinService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private PriceTickHub priceTickHub;
+
+    @Autowired
+    private DepthFeed depthFeed;
 
     /**
      * Retrieves a list of coins, optionally paginated by the provided page number.
@@ -41,64 +48,68 @@ public class CoinController {
      *
      * @param coinId the unique identifier of the coin
      * @param days the number of days for which the market chart data is required
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
      * @return a ResponseEntity containing the market chart data in JSON format and an HTTP status of OK
      * @throws Exception if an error occurs while fetching the market chart data
      */
     @GetMapping("/{coinId}/chart")
     @Operation(summary = "Retrieves the market chart data for a specific coin over a specified number")
-    ResponseEntity<JsonNode> getMarketChart(
+    ResponseEntity<byte[]> getMarketChart(
             @PathVariable String coinId,
-            @RequestParam("days") int days
+            @RequestParam("days") int days,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) throws Exception{
-        String response = coinService.getMarketChart(coinId,days);
-        JsonNode jsonNode = objectMapper.readTree(response);
-        return new ResponseEntity<>(jsonNode, HttpStatus.OK);
+        MarketPayload response = coinService.getMarketChart(coinId,days);
+        return serve(response, acceptEncoding);
     }
 
     /**
      * Searches for coins matching the specified keyword.
      *
      * @param keyword the keyword used to search for coins
-     * @return a ResponseEntity containing a JsonNode with search results and an HTTP status of OK
-     * @throws JsonProcessingException if an error occurs while processing the JSON response
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
+     * @return a ResponseEntity containing the JSON search results and an HTTP status of OK
      */
     @GetMapping("/search")
     @Operation(summary = "Searches for coins matching the specified keyword")
-    ResponseEntity<JsonNode> searchCoin(@RequestParam("q") String keyword) throws JsonProcessingException {
-        String coin=coinService.searchCoin(keyword);
-        JsonNode jsonNode = objectMapper.readTree(coin);
+    ResponseEntity<byte[]> searchCoin(
+            @RequestParam("q") String keyword,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MarketPayload coin=coinService.searchCoin(keyword);
 
-        return ResponseEntity.ok(jsonNode);
+        return serve(coin, acceptEncoding);
 
     }
     /**
      * Retrieves the top 50 coins by market capitalization rank.
      *
-     * @return a ResponseEntity containing a JsonNode with the top 50 coins by market cap and an HTTP status of OK
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
+     * @return a ResponseEntity containing the JSON top 50 coins by market cap and an HTTP status of OK
      * @throws Exception if an error occurs while fetching the coins data
      */
     @GetMapping("/top50")
     @Operation(summary = " Retrieves the top 50 coins by market capitalization rank.")
-    ResponseEntity<JsonNode> getTop50CoinByMarketCapRank() throws Exception {
-        String coin=coinService.getTop50CoinByMarketCap();
-        JsonNode jsonNode = objectMapper.readTree(coin);
+    ResponseEntity<byte[]> getTop50CoinByMarketCapRank(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws Exception {
+        MarketPayload coin=coinService.getTop50CoinByMarketCap();
 
-        return ResponseEntity.ok(jsonNode);
+        return serve(coin, acceptEncoding);
 
     }
 
     /**
      * Retrieves the list of currently trending coins.
      *
-     * @return a ResponseEntity containing a JsonNode with the list of trending coins and an HTTP status of OK
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
+     * @return a ResponseEntity containing the JSON list of trending coins and an HTTP status of OK
      * @throws Exception if an error occurs while fetching the trending coins data
      */
     @GetMapping("/trading")
     @Operation(summary = "Retrieves the list of currently trending coins.")
-    ResponseEntity<JsonNode> getTreadingCoin() throws Exception {
-        String coin=coinService.getTradingCoins();
-        JsonNode jsonNode = objectMapper.readTree(coin);
-        return ResponseEntity.ok(jsonNode);
+    ResponseEntity<byte[]> getTreadingCoin(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws Exception {
+        MarketPayload coin=coinService.getTradingCoins();
+        return serve(coin, acceptEncoding);
 
     }
 
@@ -106,15 +117,113 @@ public class CoinController {
      * Retrieves details for a specific coin by its ID.
      *
      * @param coinId the unique identifier of the coin whose details are to be fetched
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
      * @return a ResponseEntity containing the coin details in JSON format and an HTTP status of OK
      * @throws Exception if an error occurs while fetching the coin details
      */
     @GetMapping("/details/{coinId}")
     @Operation(summary = "Retrieves details for a specific coin by its ID.")
-    ResponseEntity<JsonNode> getCoinDetails(@PathVariable String coinId) throws Exception {
-        String coin=coinService.getCoinDetails(coinId);
-        JsonNode jsonNode = objectMapper.readTree(coin);
-        return ResponseEntity.ok(jsonNode);
+    ResponseEntity<byte[]> getCoinDetails(
+            @PathVariable String coinId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws Exception {
+        MarketPayload coin=coinService.getCoinDetails(coinId);
+        return serve(coin, acceptEncoding);
+    }
+
+    /**
+     * Streams live price ticks for the given coins as server-sent events.
+     *
+     * Each "ticks" event carries a JSON array with the latest price of every subscribed coin
+     * that changed since the previous event; a slow client receives only the newest prices.
+     *
+     * @param ids the CoinGecko ids of the coins to stream
+     * @return the event stream
+     * @throws Exception if no or too many ids are given, or the server has no room for another stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Streams live price ticks for the given coins as server-sent events.")
+    public SseEmitter streamPrices(@RequestParam("ids") List<String> ids) throws Exception {
+        return priceTickHub.subscribe(ids);
+    }
+
+    /**
+     * Retrieves the resting limit orders of a coin aggregated by price level.
+     *
+     * The response holds the best levels of each side as [price, quantity] pairs, best first,
+     * and the sequence number of the last change included, to be used with the depth stream.
+     *
+     * @param coinId the unique identifier of the coin
+     * @param acceptEncoding the Accept-Encoding header of the request, optional
+     * @return a ResponseEntity containing the depth snapshot in JSON format and an HTTP status of OK
+     */
+    @GetMapping("/{coinId}/depth")
+    @Operation(summary = "Retrieves the resting limit orders of a coin aggregated by price level.")
+    ResponseEntity<byte[]> getDepth(
+            @PathVariable String coinId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return serve(depthFeed.getDepth(coinId).toPayload(), acceptEncoding);
+    }
+
+    /**
+     * Streams changes to a coin's price levels as server-sent events.
+     *
+     * The stream starts with a "snapshot" event shaped like the depth endpoint, followed by
+     * "update" events listing the changed levels, where a quantity of 0 removes the level.
+     * Updates carry consecutive sequence numbers; a client that sees a gap must drop its copy
+     * and wait for the next "snapshot" event, or reload the depth endpoint.
+     *
+     * @param coinId the unique identifier of the coin
+     * @return the event stream
+     */
+    @GetMapping(value = "/{coinId}/depth/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Streams changes to a coin's price levels as server-sent events.")
+    public SseEmitter streamDepth(@PathVariable String coinId) {
+        return depthFeed.subscribe(coinId);
+    }
+
+    /**
+     * Writes an upstream payload back to the client as-is.
+     *
+     * A strong ETag is always sent, so Spring answers a matching If-None-Match with
+     * 304 Not Modified and no body. Clients that accept gzip receive the copy that was
+     * compressed once when the payload was fetched, under its own ETag. The Age header
+     * tells how many seconds old the data is, which grows past the usual cache TTL when
+     * CoinGecko is unavailable and the last known good payload is being served.
+     *
+     * @param payload the cached upstream JSON
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null
+     * @return the response carrying the payload bytes
+     */
+    private ResponseEntity<byte[]> serve(MarketPayload payload, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.AGE, String.valueOf(
+                        Math.max(0, (System.currentTimeMillis() - payload.getFetchedAt()) / 1000)));
+
+        if (payload.getGzippedBody() != null && acceptsGzip(acceptEncoding)) {
+            return response
+                    .eTag(payload.getGzippedEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(payload.getGzippedBody());
+        }
+        return response
+                .eTag(payload.getEtag())
+                .body(payload.getBody());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,298 @@
+package com.kakz.tradeIn.controller;
+
+import com.kakz.tradeIn.ingestion.OrderDeduplicator;
+import com.kakz.tradeIn.ingestion.OrderIngestionPipeline;
+import com.kakz.tradeIn.market.CoinSearchIndex;
+import com.kakz.tradeIn.market.MarketChartStore;
+import com.kakz.tradeIn.market.MarketCircuitBreaker;
+import com.kakz.tradeIn.market.MarketDataCache;
+import com.kakz.tradeIn.market.MarketDataSource;
+import com.kakz.tradeIn.market.MarketRateLimiter;
+import com.kakz.tradeIn.market.MarketRequestCoalescer;
+import com.kakz.tradeIn.market.MarketSnapshotPoller;
+import com.kakz.tradeIn.market.PriceTickHub;
+import com.kakz.tradeIn.matching.DepthFeed;
+import com.kakz.tradeIn.matching.MatchingEngine;
+import com.kakz.tradeIn.matching.OrderJournal;
+import com.kakz.tradeIn.trigger.TriggerEngine;
+import com.kakz.tradeIn.utils.PersistenceMetrics;
+import com.kakz.tradeIn.utils.TradeStageMetrics;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Exposes runtime metrics collected by the application so they can be inspected
+ * without attaching a profiler.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private MarketDataSource marketDataSource;
+
+    @Autowired
+    private MarketRateLimiter marketRateLimiter;
+
+    @Autowired
+    private MarketCircuitBreaker marketCircuitBreaker;
+
+    @Autowired
+    private MarketDataCache marketDataCache;
+
+    @Autowired
+    private MarketRequestCoalescer marketRequestCoalescer;
+
+    @Autowired
+    private MarketSnapshotPoller marketSnapshotPoller;
+
+    @Autowired
+    private MarketChartStore marketChartStore;
+
+    @Autowired
+    private CoinSearchIndex coinSearchIndex;
+
+    @Autowired
+    private PriceTickHub priceTickHub;
+
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    @Autowired
+    private DepthFeed depthFeed;
+
+    @Autowired
+    private OrderJournal orderJournal;
+
+    @Autowired
+    private OrderIngestionPipeline orderIngestionPipeline;
+
+    @Autowired
+    private OrderDeduplicator orderDeduplicator;
+
+    @Autowired
+    private TriggerEngine triggerEngine;
+
+    @Autowired
+    private TradeStageMetrics tradeStageMetrics;
+
+    @Autowired
+    private PersistenceMetrics persistenceMetrics;
+
+    /**
+     * Retrieves per-endpoint latency and error counts for calls made to the market data source.
+     *
+     * @return a ResponseEntity containing the market data source metrics keyed by endpoint
+     */
+    @GetMapping("/market")
+    @Operation(summary = "Retrieves per-endpoint latency and error counts for calls made to the market data source")
+    public ResponseEntity<Map<String, Object>> getMarketMetrics() {
+        return ResponseEntity.ok(marketDataSource.metrics());
+    }
+
+    /**
+     * Retrieves queue depth, wait time and rejections per priority class of the upstream rate limiter.
+     *
+     * @return a ResponseEntity containing the rate limiter metrics keyed by priority class
+     */
+    @GetMapping("/market/rate-limit")
+    @Operation(summary = "Retrieves queue depth, wait time and rejections per priority class of the upstream rate limiter")
+    public ResponseEntity<Map<String, Object>> getMarketRateLimitMetrics() {
+        return ResponseEntity.ok(marketRateLimiter.metrics());
+    }
+
+    /**
+     * Retrieves the state of the CoinGecko circuit breaker and how often it opened, rejected calls and probed.
+     *
+     * @return a ResponseEntity containing the circuit breaker metrics
+     */
+    @GetMapping("/market/breaker")
+    @Operation(summary = "Retrieves the state and counters of the CoinGecko circuit breaker")
+    public ResponseEntity<Map<String, Object>> getMarketBreakerMetrics() {
+        return ResponseEntity.ok(marketCircuitBreaker.metrics());
+    }
+
+    /**
+     * Retrieves hit, miss and eviction counters of the public market data cache.
+     *
+     * @return a ResponseEntity containing the cache counters
+     */
+    @GetMapping("/market/cache")
+    @Operation(summary = "Retrieves hit, miss and eviction counters of the public market data cache")
+    public ResponseEntity<Map<String, Object>> getMarketCacheMetrics() {
+        return ResponseEntity.ok(marketDataCache.metrics());
+    }
+
+    /**
+     * Retrieves how many upstream calls were executed and how many were coalesced into one in flight.
+     *
+     * @return a ResponseEntity containing the coalescing counters
+     */
+    @GetMapping("/market/coalescing")
+    @Operation(summary = "Retrieves how many upstream calls were executed and how many were coalesced")
+    public ResponseEntity<Map<String, Object>> getMarketCoalescingMetrics() {
+        return ResponseEntity.ok(marketRequestCoalescer.metrics());
+    }
+
+    /**
+     * Retrieves cycle duration, rows written and per-coin staleness of the market snapshot poller.
+     *
+     * @return a ResponseEntity containing the poller metrics
+     */
+    @GetMapping("/market/snapshot")
+    @Operation(summary = "Retrieves cycle duration, rows written and per-coin staleness of the market snapshot poller")
+    public ResponseEntity<Map<String, Object>> getMarketSnapshotMetrics() {
+        return ResponseEntity.ok(marketSnapshotPoller.metrics());
+    }
+
+    /**
+     * Retrieves how chart requests were answered by the local chart store.
+     *
+     * @return a ResponseEntity containing local hit, tail fetch and full fetch counters
+     */
+    @GetMapping("/market/charts")
+    @Operation(summary = "Retrieves how chart requests were answered by the local chart store")
+    public ResponseEntity<Map<String, Object>> getMarketChartMetrics() {
+        return ResponseEntity.ok(marketChartStore.metrics());
+    }
+
+    /**
+     * Retrieves size, update counts and update and lookup latency of the in-memory coin search index.
+     *
+     * @return a ResponseEntity containing the search index metrics
+     */
+    @GetMapping("/market/search")
+    @Operation(summary = "Retrieves size, update counts and update and lookup latency of the coin search index")
+    public ResponseEntity<Map<String, Object>> getMarketSearchMetrics() {
+        return ResponseEntity.ok(coinSearchIndex.metrics());
+    }
+
+    /**
+     * Retrieves open price streams and tick delivery counters.
+     *
+     * @return a ResponseEntity containing the price stream metrics
+     */
+    @GetMapping("/market/stream")
+    @Operation(summary = "Retrieves open price streams and tick delivery counters")
+    public ResponseEntity<Map<String, Object>> getMarketStreamMetrics() {
+        return ResponseEntity.ok(priceTickHub.metrics());
+    }
+
+    /**
+     * Retrieves order, fill, cancel and self-trade counts, matching latency, and how long orders
+     * waited for their coin's book.
+     *
+     * @return a ResponseEntity containing the matching engine metrics
+     */
+    @GetMapping("/matching")
+    @Operation(summary = "Retrieves order, fill, cancel and self-trade counts, matching latency and book lock waits of the limit order books")
+    public ResponseEntity<Map<String, Object>> getMatchingMetrics() {
+        return ResponseEntity.ok(matchingEngine.metrics());
+    }
+
+    /**
+     * Retrieves published depth updates, open depth streams and subscriber resynchronisations.
+     *
+     * @return a ResponseEntity containing the depth feed metrics
+     */
+    @GetMapping("/matching/depth")
+    @Operation(summary = "Retrieves published depth updates, open depth streams and subscriber resynchronisations")
+    public ResponseEntity<Map<String, Object>> getDepthMetrics() {
+        return ResponseEntity.ok(depthFeed.metrics());
+    }
+
+    /**
+     * Retrieves order journal throughput: events appended, how many events each disk flush
+     * covered, append and flush latency, snapshots and the replay time of the last recovery.
+     *
+     * @return a ResponseEntity containing the order journal metrics
+     */
+    @GetMapping("/matching/journal")
+    @Operation(summary = "Retrieves append, group commit, snapshot and replay metrics of the order journal")
+    public ResponseEntity<Map<String, Object>> getOrderJournalMetrics() {
+        return ResponseEntity.ok(orderJournal.metrics());
+    }
+
+    /**
+     * Retrieves queue depths, batch sizes and latencies of asynchronous order ingestion,
+     * next to the latency of orders placed synchronously.
+     *
+     * @return a ResponseEntity containing the order ingestion metrics
+     */
+    @GetMapping("/orders/ingestion")
+    @Operation(summary = "Retrieves queue depths, batch sizes and latencies of asynchronous order ingestion")
+    public ResponseEntity<Map<String, Object>> getOrderIngestionMetrics() {
+        return ResponseEntity.ok(orderIngestionPipeline.metrics());
+    }
+
+    /**
+     * Retrieves the latency percentiles of every stage of a market buy and sell placed through
+     * {@code /api/orders/pay}: authentication, coin and asset lookup, building the order, the
+     * wallet payment, the asset update, saving the order, the whole service call and the whole
+     * request. The time in execution not covered by the service stages is the flush and commit.
+     * Orders placed by the ingestion pipeline or by triggers are not included, and neither are
+     * retries answered with the original order, except in the authentication and coin lookup stages.
+     *
+     * @return a ResponseEntity containing the stage latencies by side
+     */
+    @GetMapping("/orders/stages")
+    @Operation(summary = "Retrieves per-stage latency percentiles of market buys and sells")
+    public ResponseEntity<Map<String, Object>> getOrderStageMetrics() {
+        return ResponseEntity.ok(tradeStageMetrics.metrics());
+    }
+
+    /**
+     * Retrieves how many order submissions were replays of an earlier client order id, and how
+     * each replay was recognised.
+     *
+     * @return a ResponseEntity containing the order dedupe metrics
+     */
+    @GetMapping("/orders/dedupe")
+    @Operation(summary = "Retrieves how many order submissions were replays of an earlier client order id")
+    public ResponseEntity<Map<String, Object>> getOrderDedupeMetrics() {
+        return ResponseEntity.ok(orderDeduplicator.metrics());
+    }
+
+    /**
+     * Retrieves resting and fired stop-loss and take-profit triggers, the time a price tick
+     * spends evaluating them and the time from a tick to the committed order of a fired trigger.
+     *
+     * @return a ResponseEntity containing the trigger metrics
+     */
+    @GetMapping("/orders/triggers")
+    @Operation(summary = "Retrieves trigger counts, tick evaluation latency and tick-to-fire latency")
+    public ResponseEntity<Map<String, Object>> getTriggerMetrics() {
+        return ResponseEntity.ok(triggerEngine.metrics());
+    }
+
+    /**
+     * Retrieves SQL statement, entity and transaction counts, with the number of statements
+     * per committed transaction.
+     *
+     * @return a ResponseEntity containing the persistence metrics
+     */
+    @GetMapping("/persistence")
+    @Operation(summary = "Retrieves SQL statement, entity and transaction counts")
+    public ResponseEntity<Map<String, Object>> getPersistenceMetrics() {
+        return ResponseEntity.ok(persistenceMetrics.metrics());
+    }
+
+    /**
+     * Clears the persistence counters, to start a fresh measurement.
+     *
+     * @return a ResponseEntity with no content
+     */
+    @DeleteMapping("/persistence")
+    @Operation(summary = "Clears the persistence counters")
+    public ResponseEntity<Void> resetPersistenceMetrics() {
+        persistenceMetrics.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
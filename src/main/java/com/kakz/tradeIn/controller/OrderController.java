@@ -1,21 +1,34 @@
 package com.kakz.tradeIn.controller;
 
 import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.ingestion.OrderDeduplicator;
+import com.kakz.tradeIn.ingestion.OrderIngestionPipeline;
+import com.kakz.tradeIn.ingestion.OrderTicket;
 import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.model.TriggerOrder;
 import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.request.CreateBasketOrderRequest;
 import com.kakz.tradeIn.request.CreateOrderRequest;
+import com.kakz.tradeIn.request.CreateTriggerOrderRequest;
+import com.kakz.tradeIn.response.OrderSummary;
 import com.kakz.tradeIn.service.CoinService;
 import com.kakz.tradeIn.service.OrderService;
+import com.kakz.tradeIn.service.TriggerOrderService;
 import com.kakz.tradeIn.service.UserService;
 import com.kakz.tradeIn.service.WalletTransactionService;
+import com.kakz.tradeIn.utils.OrderCursor;
+import com.kakz.tradeIn.utils.TradeStageMetrics;
+import com.kakz.tradeIn.utils.TradeStageMetrics.Stage;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -29,6 +42,36 @@ public class OrderController {
     @Autowired
     private CoinService coinService;
 
+    @Autowired
+    private OrderIngestionPipeline orderIngestionPipeline;
+
+    @Autowired
+    private OrderDeduplicator orderDeduplicator;
+
+    @Autowired
+    private TriggerOrderService triggerOrderService;
+
+    @Autowired
+    private TradeStageMetrics tradeStageMetrics;
+
+    /**
+     * Orders returned per page of order history when the client does not ask for a size.
+     */
+    @Value("${orders.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    /**
+     * Largest page of order history a client can ask for.
+     */
+    @Value("${orders.history.max-page-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Largest number of orders accepted in one basket.
+     */
+    @Value("${orders.basket.max-legs:50}")
+    private int maxBasketLegs;
+
 //    @Autowired
 //    private WalletTransactionService walletTransactionService;
 
@@ -48,7 +91,9 @@ public class OrderController {
      * and order details from the request.
      *
      * @param jwt  the JWT token for user authentication
-     * @param req  the request object containing order details such as coin ID, quantity, and order type
+     * @param req  the request object containing order details such as coin ID, quantity, and order type;
+     *             a positive limit price places a limit order instead of a market order, and a
+     *             client order id makes retries of the same request return the original order
      * @return a ResponseEntity containing the processed order
      * @throws Exception if an error occurs during the processing of the order
      */
@@ -59,13 +104,175 @@ public class OrderController {
             @RequestBody CreateOrderRequest req
 
     ) throws Exception {
+        long start = System.nanoTime();
+        // stages are only recorded for market orders; limit orders take a different path
+        tradeStageMetrics.begin(req.getLimitPrice() > 0 ? null : req.getOrderType());
+        try {
+            User user = userSerivce.findUserProfileByJwt(jwt);
+            long stage = tradeStageMetrics.record(Stage.AUTHENTICATION, start);
+            Coin coin =coinService.findById(req.getCoinId());
+            long executionStart = tradeStageMetrics.record(Stage.COIN_LOOKUP, stage);
+
+            Order order;
+            if (req.getClientOrderId() != null) {
+                order = orderDeduplicator.execute(user.getId(), req,
+                        () -> placeTimedOrder(coin, req, user, start, executionStart));
+            } else {
+                order = placeTimedOrder(coin, req, user, start, executionStart);
+            }
+            orderIngestionPipeline.recordSynchronous(start);
+
+            return ResponseEntity.ok(order);
+        } finally {
+            tradeStageMetrics.end();
+        }
+
+    }
+
+    /**
+     * Executes several market orders as one basket: the user and wallet are loaded once, all
+     * coins are read with a single query, and every order is written in one transaction, so
+     * either all legs fill or none do.
+     *
+     * @param jwt the JWT token for user authentication
+     * @param req the request object containing the coin ID, quantity and order type of every leg
+     * @return a ResponseEntity containing the filled orders, in the order of the legs
+     * @throws Exception if the basket is empty or too large, a coin is not found, or any leg cannot be filled
+     */
+    @PostMapping("/basket")
+    @Operation(summary = "Executes several market orders in one all-or-nothing transaction")
+    public ResponseEntity<List<Order>> payBasket(
+            @RequestHeader("Authorization") String jwt,
+            @RequestBody CreateBasketOrderRequest req
+    ) throws Exception {
+        if (req.getLegs() == null || req.getLegs().isEmpty()) {
+            throw new Exception("Basket must contain at least one order");
+        }
+        if (req.getLegs().size() > maxBasketLegs) {
+            throw new Exception("Basket cannot contain more than " + maxBasketLegs + " orders");
+        }
         User user = userSerivce.findUserProfileByJwt(jwt);
-        Coin coin =coinService.findById(req.getCoinId());
+        Map<String, Coin> coins = coinService.findAllById(
+                req.getLegs().stream().map(CreateBasketOrderRequest.Leg::getCoinId).distinct().toList());
+        return ResponseEntity.ok(orderService.processBasket(req.getLegs(), coins, user));
+    }
 
-        Order order = orderService.processOrder(coin,req.getQuantity(),req.getOrderType(),user);
+    /**
+     * Accepts an order for asynchronous processing and returns immediately with a ticket.
+     * The orders of one user are processed in the order they were submitted; poll
+     * {@code /api/orders/tickets/{ticketId}} for the created order or the rejection reason.
+     *
+     * @param jwt  the JWT token for user authentication
+     * @param req  the request object containing order details such as coin ID, quantity, and order type;
+     *             a positive limit price places a limit order instead of a market order
+     * @return a ResponseEntity containing the PENDING ticket and an HTTP status of ACCEPTED
+     * @throws Exception if the coin is not found or too many orders are already pending
+     */
+    @PostMapping("/submit")
+    @Operation(summary = "Accepts an order for asynchronous processing and returns a ticket to poll")
+    public ResponseEntity<OrderTicket> submitOrder(
+            @RequestHeader("Authorization") String jwt,
+            @RequestBody CreateOrderRequest req
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        Coin coin = coinService.findById(req.getCoinId());
 
-        return ResponseEntity.ok(order);
+        OrderTicket ticket = orderIngestionPipeline.submit(user, coin.getId(), req.getOrderType(), req.getQuantity(),
+                req.getLimitPrice(), req.getClientOrderId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+    }
 
+    /**
+     * Retrieves the state of an order submitted through {@code /api/orders/submit}.
+     *
+     * @param jwt      the JWT token for user authentication
+     * @param ticketId the id of the ticket returned on submission
+     * @return a ResponseEntity containing the ticket with its status, and the order id once COMPLETED
+     * @throws Exception if the ticket does not exist, has expired, or belongs to another user
+     */
+    @GetMapping("/tickets/{ticketId}")
+    @Operation(summary = "Retrieves the state of an order submitted for asynchronous processing")
+    public ResponseEntity<OrderTicket> getTicket(
+            @RequestHeader("Authorization") String jwt,
+            @PathVariable long ticketId
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        return ResponseEntity.ok(orderIngestionPipeline.getTicket(ticketId, user.getId()));
+    }
+
+    /**
+     * Places a stop-loss or take-profit order: a market order placed once the coin's price
+     * crosses the trigger price. A stop-loss sell and a take-profit buy fire on a fall to the
+     * trigger price, a take-profit sell and a stop-loss buy on a rise to it.
+     *
+     * @param jwt the JWT token for user authentication
+     * @param req the request object containing the coin ID, quantity, order type, trigger type and trigger price
+     * @return a ResponseEntity containing the PENDING trigger
+     * @throws Exception if the coin is not found, the request is invalid, or the price already crossed the trigger price
+     */
+    @PostMapping("/triggers")
+    @Operation(summary = "Places a stop-loss or take-profit order that fires when the price crosses the trigger price")
+    public ResponseEntity<TriggerOrder> createTrigger(
+            @RequestHeader("Authorization") String jwt,
+            @RequestBody CreateTriggerOrderRequest req
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        Coin coin = coinService.findById(req.getCoinId());
+        return ResponseEntity.ok(triggerOrderService.createTrigger(user, coin, req.getQuantity(), req.getOrderType(),
+                req.getTriggerType(), req.getTriggerPrice()));
+    }
+
+    /**
+     * Retrieves the stop-loss and take-profit orders of the authenticated user, newest first.
+     *
+     * @param jwt the JWT token for user authentication
+     * @return a ResponseEntity containing the user's triggers with their status and placed order id
+     * @throws Exception if the user cannot be found from the token
+     */
+    @GetMapping("/triggers")
+    @Operation(summary = "Retrieves the stop-loss and take-profit orders of the user")
+    public ResponseEntity<List<TriggerOrder>> getTriggers(
+            @RequestHeader("Authorization") String jwt
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        return ResponseEntity.ok(triggerOrderService.getUserTriggers(user.getId()));
+    }
+
+    /**
+     * Cancels a stop-loss or take-profit order that has not fired yet.
+     *
+     * @param jwt the JWT token for user authentication
+     * @param triggerId the id of the trigger
+     * @return a ResponseEntity containing the CANCELLED trigger
+     * @throws Exception if the trigger does not exist, belongs to another user, or already fired
+     */
+    @DeleteMapping("/triggers/{triggerId}")
+    @Operation(summary = "Cancels a stop-loss or take-profit order that has not fired yet")
+    public ResponseEntity<TriggerOrder> cancelTrigger(
+            @RequestHeader("Authorization") String jwt,
+            @PathVariable Long triggerId
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        return ResponseEntity.ok(triggerOrderService.cancelTrigger(triggerId, user));
+    }
+
+    /**
+     * Places an order and records its execution and total time; not called for a replayed client order id.
+     */
+    private Order placeTimedOrder(Coin coin, CreateOrderRequest req, User user, long start, long executionStart)
+            throws Exception {
+        Order order = placeOrder(coin, req, user);
+        tradeStageMetrics.record(Stage.EXECUTION, executionStart);
+        tradeStageMetrics.record(Stage.TOTAL, start);
+        return order;
+    }
+
+    private Order placeOrder(Coin coin, CreateOrderRequest req, User user) throws Exception {
+        if (req.getLimitPrice() > 0) {
+            return orderService.processLimitOrder(coin, req.getQuantity(), req.getLimitPrice(), req.getOrderType(),
+                    user, req.getClientOrderId());
+        }
+        return orderService.processOrder(coin, req.getQuantity(), req.getOrderType(), user, req.getClientOrderId());
     }
 
     /**
@@ -100,21 +307,47 @@ public class OrderController {
     }
 
     /**
-     * Retrieves all orders for a user based on the provided JWT token. Optional filters for order type
-     * and asset symbol can be applied.
+     * Cancels a resting limit order of the authenticated user. The unfilled quantity leaves the
+     * order book and the funds or coins reserved for it are returned.
+     *
+     * @param jwt the JWT token for user authentication
+     * @param orderId the id of the limit order
+     * @return a ResponseEntity containing the CANCELLED order
+     * @throws Exception if the order does not exist, belongs to another user, or is no longer open
+     */
+    @DeleteMapping("/{orderId}")
+    @Operation(summary = "Cancels a limit order that is still resting in the order book")
+    public ResponseEntity<Order> cancelLimitOrder(
+            @RequestHeader("Authorization") String jwt,
+            @PathVariable Long orderId
+    ) throws Exception {
+        User user = userSerivce.findUserProfileByJwt(jwt);
+        return ResponseEntity.ok(orderService.cancelLimitOrder(orderId, user));
+    }
+
+    /**
+     * Retrieves the orders of a user based on the provided JWT token, newest first, one page at a time.
+     * Optional filters for order type and asset symbol can be applied.
+     *
+     * When the page is full, the X-Next-Cursor response header carries the cursor of the next page;
+     * pages are found by position rather than offset, so deep pages are as fast as the first one.
      *
      * @param jwtToken the JSON Web Token used for user authentication
      * @param order_type the type of orders to filter by (optional)
      * @param asset_symbol the asset symbol to filter orders by (optional)
-     * @return a ResponseEntity containing a list of orders for the authenticated user
-     * @throws Exception if the JWT token is missing or if an error occurs during the retrieval process
+     * @param cursor the X-Next-Cursor value of the previous page (optional, omitted for the first page)
+     * @param limit the number of orders per page (optional, capped at the configured maximum)
+     * @return a ResponseEntity containing a page of orders for the authenticated user
+     * @throws Exception if the JWT token is missing, the cursor is invalid, or an error occurs during the retrieval process
      */
     @GetMapping()
-    @Operation(summary = "Retrieves all orders for a user based on the provided JWT token")
-    public ResponseEntity<List<Order>> getAllOrdersForUser(
+    @Operation(summary = "Retrieves the orders of a user based on the provided JWT token, newest first, one page at a time")
+    public ResponseEntity<List<OrderSummary>> getAllOrdersForUser(
             @RequestHeader("Authorization") String jwtToken,
             @RequestParam(required = false) OrderType order_type,
-            @RequestParam(required = false) String asset_symbol
+            @RequestParam(required = false) String asset_symbol,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) throws Exception {
         if (jwtToken == null) {
             throw new Exception("token missing...");
@@ -122,7 +355,15 @@ public class OrderController {
 
         Long userId = userSerivce.findUserProfileByJwt(jwtToken).getId();
 
-        List<Order> userOrders = orderService.getAllOrdersofUser(userId,order_type,asset_symbol);
-        return ResponseEntity.ok(userOrders);
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<OrderSummary> userOrders = orderService.getAllOrdersofUser(userId, order_type, asset_symbol,
+                OrderCursor.decode(cursor), pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (userOrders.size() == pageSize) {
+            OrderSummary last = userOrders.get(pageSize - 1);
+            response.header("X-Next-Cursor", OrderCursor.after(last.getTimestamp(), last.getId()).encode());
+        }
+        return response.body(userOrders);
     }
 }
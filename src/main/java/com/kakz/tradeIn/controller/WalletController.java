@@ -1,11 +1,13 @@
 package com.kakz.tradeIn.controller;
 
+import com.kakz.tradeIn.domain.WalletTransactionType;
 import com.kakz.tradeIn.model.*;
 import com.kakz.tradeIn.response.PaymentResponse;
 import com.kakz.tradeIn.service.OrderService;
 import com.kakz.tradeIn.service.PaymentService;
 import com.kakz.tradeIn.service.UserService;
 import com.kakz.tradeIn.service.WalletService;
+import com.kakz.tradeIn.service.WalletTransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springdoc.core.annotations.RouterOperation;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * WalletController is responsible for handling wallet-related operations such as retrieving wallet information,
@@ -32,6 +35,8 @@ public class WalletController {
     private PaymentService paymentService;
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private WalletTransactionService walletTransactionService;
 
     /**
      * Retrieves the user's wallet information based on the provided JWT authorization token.
@@ -49,6 +54,24 @@ public class WalletController {
         return new ResponseEntity<>(wallet,HttpStatus.ACCEPTED);
     }
 
+    /**
+     * Retrieves the ledger postings of the user's wallet, newest first.
+     *
+     * @param authorization the JWT authorization token used to authenticate and identify the user.
+     * @param type          only return postings of this type, or all postings if omitted.
+     * @return a ResponseEntity containing the wallet's postings with a status of HttpStatus.OK.
+     * @throws Exception if there is an issue with finding the user profile by JWT or fetching the wallet.
+     */
+    @GetMapping("/api/wallet/transactions")
+    @Operation(summary = "Retrieves the ledger postings of the user's wallet, newest first.")
+    public ResponseEntity<List<WalletTransaction>> getWalletTransactions(
+            @RequestHeader("Authorization") String authorization,
+            @RequestParam(required = false) WalletTransactionType type) throws Exception {
+        User user = userService.findUserProfileByJwt(authorization);
+        Wallet wallet = walletService.getUserWallet(user);
+        return new ResponseEntity<>(walletTransactionService.getTransactions(wallet, type), HttpStatus.OK);
+    }
+
     /**
      * Transfers a specified amount from the sender's wallet to the receiver's wallet.
      *
@@ -126,7 +149,8 @@ public class WalletController {
         res.setPayment_url("deposit success");
 
         if(status){
-            wallet=walletService.addBalance(wallet, order.getAmount());
+            wallet=walletService.addBalance(wallet, order.getAmount(), WalletTransactionType.ADD_MONEY,
+                    "deposit " + paymentId);
         }
 
         return new ResponseEntity<>(wallet,HttpStatus.OK);
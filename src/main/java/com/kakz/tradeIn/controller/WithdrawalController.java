@@ -49,14 +49,8 @@ public class WithdrawalController {
         Wallet userWallet=walletService.getUserWallet(user);
 
         Withdrawal withdrawal=withdrawalService.requestWithdrawal(amount,user);
-        walletService.addBalance(userWallet, -withdrawal.getAmount());
-
-//        WalletTransaction walletTransaction = walletTransactionService.createTransaction(
-//                userWallet,
-//                WalletTransactionType.WITHDRAWAL,null,
-//                "bank account withdrawal",
-//                withdrawal.getAmount()
-//        );
+        walletService.addBalance(userWallet, -withdrawal.getAmount(), WalletTransactionType.WITHDRAWAL,
+                "bank account withdrawal");
 
         return new ResponseEntity<>(withdrawal, HttpStatus.OK);
     }
@@ -83,7 +77,8 @@ public class WithdrawalController {
 
         Wallet userWallet=walletService.getUserWallet(user);
         if(!accept){
-            walletService.addBalance(userWallet, withdrawal.getAmount());
+            walletService.addBalance(userWallet, withdrawal.getAmount(), WalletTransactionType.WITHDRAWAL,
+                    "declined withdrawal refund");
         }
 
         return new ResponseEntity<>(withdrawal, HttpStatus.OK);
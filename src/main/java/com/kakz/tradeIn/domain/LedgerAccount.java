@@ -0,0 +1,13 @@
+package com.kakz.tradeIn.domain;
+
+/**
+ * The accounts a wallet ledger entry moves money between.
+ */
+public enum LedgerAccount {
+    /** A user's wallet; postings to it change the wallet balance. */
+    WALLET,
+    /** Money entering or leaving the platform through payments and withdrawals. */
+    BANK,
+    /** The other side of every asset buy and sell. */
+    MARKET
+}
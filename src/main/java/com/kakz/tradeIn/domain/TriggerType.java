@@ -0,0 +1,6 @@
+package com.kakz.tradeIn.domain;
+
+public enum TriggerType {
+    STOP_LOSS,
+    TAKE_PROFIT
+}
@@ -0,0 +1,16 @@
+package com.kakz.tradeIn.ingestion;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a client order id that already placed an order is sent again with a different
+ * coin, side, quantity or limit price.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ClientOrderIdConflictException extends Exception {
+
+    public ClientOrderIdConflictException(String clientOrderId) {
+        super("Client order id " + clientOrderId + " was already used for a different order");
+    }
+}
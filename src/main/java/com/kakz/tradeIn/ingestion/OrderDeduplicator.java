@@ -0,0 +1,219 @@
+package com.kakz.tradeIn.ingestion;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.repository.OrderRepository;
+import com.kakz.tradeIn.request.CreateOrderRequest;
+import com.kakz.tradeIn.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes order placement idempotent per client order id.
+ *
+ * The first request with a given (user, client order id) places the order; a replay within the
+ * dedupe window is answered with the original order from a bounded in-memory map, and a replay
+ * that arrives while the original is still running waits for it instead of trading again. The
+ * map only remembers recent ids, so the unique constraint on the orders table is what stops a
+ * replay that comes later, or on another node: the duplicate trade is rolled back and the
+ * original order is loaded instead.
+ *
+ * Every id remembers the coin, side, quantity and limit price it was first sent with. A replay
+ * that carries a different order is a client bug rather than a retry, and is rejected with a
+ * {@link ClientOrderIdConflictException} instead of being answered with the original order.
+ */
+@Component
+public class OrderDeduplicator {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    /**
+     * How long a client order id is answered from memory.
+     */
+    @Value("${orders.dedupe.window-ms:600000}")
+    private long windowMs;
+
+    /**
+     * Largest number of client order ids remembered; the oldest are dropped first.
+     */
+    @Value("${orders.dedupe.max-entries:100000}")
+    private int maxEntries;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder inFlightHits = new LongAdder();
+    private final LongAdder constraintHits = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Places an order unless the user already placed one with the same client order id.
+     *
+     * @param userId     the user placing the order
+     * @param request    the order, with the id the client gave it
+     * @param placeOrder places the order, passing the client order id on to the service
+     * @return the new order, or the original one for a replay
+     * @throws ClientOrderIdConflictException if the client order id already placed a different order
+     * @throws Exception if placing the order fails
+     */
+    public Order execute(long userId, CreateOrderRequest request, Callable<Order> placeOrder) throws Exception {
+        requests.increment();
+        String clientOrderId = request.getClientOrderId();
+        Payload payload = Payload.of(request);
+        Key key = new Key(userId, clientOrderId);
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            expire(System.currentTimeMillis());
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(payload);
+                entries.put(key, entry);
+                owner = true;
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> eldest = entries.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        if (!owner) {
+            if (!entry.payload.equals(payload)) {
+                conflicts.increment();
+                throw new ClientOrderIdConflictException(clientOrderId);
+            }
+            return replay(entry);
+        }
+
+        try {
+            Order order = placeOrder.call();
+            entry.orderId.complete(order.getId());
+            return order;
+        } catch (DataIntegrityViolationException e) {
+            Order original = orderRepository.findByUserIdAndClientOrderId(userId, clientOrderId);
+            if (original == null) {
+                forget(key, entry, e);
+                throw e;
+            }
+            if (!Payload.of(original).equals(payload)) {
+                conflicts.increment();
+                ClientOrderIdConflictException conflict = new ClientOrderIdConflictException(clientOrderId);
+                forget(key, entry, conflict);
+                throw conflict;
+            }
+            constraintHits.increment();
+            entry.orderId.complete(original.getId());
+            return original;
+        } catch (Exception e) {
+            forget(key, entry, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how often replays were answered from memory, by waiting for the original, or by
+     * the unique constraint, and how often a reused id carried a different order.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long total = requests.sum();
+        long duplicates = cacheHits.sum() + inFlightHits.sum() + constraintHits.sum();
+        synchronized (entries) {
+            metrics.put("entries", entries.size());
+        }
+        metrics.put("requests", total);
+        metrics.put("cacheHits", cacheHits.sum());
+        metrics.put("inFlightHits", inFlightHits.sum());
+        metrics.put("constraintHits", constraintHits.sum());
+        metrics.put("duplicateRate", total == 0 ? 0 : (double) duplicates / total);
+        metrics.put("conflicts", conflicts.sum());
+        metrics.put("evictions", evictions.sum());
+        return metrics;
+    }
+
+    private Order replay(Entry entry) throws Exception {
+        Long orderId;
+        if (entry.orderId.isDone()) {
+            cacheHits.increment();
+        } else {
+            inFlightHits.increment();
+        }
+        try {
+            orderId = entry.orderId.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return orderService.getOrderById(orderId);
+    }
+
+    private void forget(Key key, Entry entry, Exception failure) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+        entry.orderId.completeExceptionally(failure);
+    }
+
+    /**
+     * Drops the entries older than the window; they are in insertion order, so only the head is checked.
+     */
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().createdAt <= windowMs) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Key(long userId, String clientOrderId) {
+    }
+
+    /**
+     * What an order trades, to tell a retry from a different order under the same id; a market
+     * order has a limit price of 0.
+     */
+    private record Payload(String coinId, OrderType orderType, double quantity, double limitPrice) {
+
+        static Payload of(CreateOrderRequest request) {
+            return new Payload(request.getCoinId(), request.getOrderType(), request.getQuantity(),
+                    Math.max(request.getLimitPrice(), 0));
+        }
+
+        static Payload of(Order order) {
+            return new Payload(order.getOrderItem().getCoin().getId(), order.getOrderType(),
+                    order.getOrderItem().getQuantity(),
+                    order.getLimitPrice() == null ? 0 : order.getLimitPrice().doubleValue());
+        }
+    }
+
+    private static final class Entry {
+        private final long createdAt = System.currentTimeMillis();
+        private final Payload payload;
+        private final CompletableFuture<Long> orderId = new CompletableFuture<>();
+
+        private Entry(Payload payload) {
+            this.payload = payload;
+        }
+    }
+}
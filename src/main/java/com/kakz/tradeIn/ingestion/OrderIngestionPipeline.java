@@ -0,0 +1,347 @@
+package com.kakz.tradeIn.ingestion;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.repository.CoinRepository;
+import com.kakz.tradeIn.service.OrderService;
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accepts orders into per-user-shard ring buffers and processes them asynchronously.
+ *
+ * Users are spread over a fixed number of shards by id, and every shard has a single consumer
+ * thread, so the orders of one user are processed one after another in submission order and
+ * never race each other on the user's wallet and asset rows. The consumer takes every order
+ * waiting in its ring, up to the batch size, and processes the market orders of the batch in
+ * one transaction, which turns one commit per order into one commit per batch. If any order of
+ * a batch is rejected the batch is rolled back and its orders are processed again one per
+ * transaction, so a rejected order never affects the others. The coins of a batch are read
+ * once inside its transaction, so every order trades at the price current when it is processed
+ * rather than when it was submitted. Limit orders lock their coin's order book until their
+ * transaction ends, so each of them always gets its own transaction.
+ *
+ * The caller gets an {@link OrderTicket} straight away and polls it for the outcome.
+ */
+@Component
+public class OrderIngestionPipeline {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CoinRepository coinRepository;
+
+    /**
+     * Number of consumer threads, each with its own ring buffer.
+     */
+    @Value("${orders.ingestion.shards:4}")
+    private int shardCount;
+
+    /**
+     * Capacity of each ring buffer, rounded up to a power of two; orders beyond it are rejected.
+     */
+    @Value("${orders.ingestion.buffer-size:4096}")
+    private int bufferSize;
+
+    /**
+     * Largest number of orders processed in one transaction.
+     */
+    @Value("${orders.ingestion.batch-size:64}")
+    private int batchSize;
+
+    /**
+     * How long a processed ticket can still be polled.
+     */
+    @Value("${orders.ingestion.ticket-retention-ms:600000}")
+    private long ticketRetentionMs;
+
+    private TransactionTemplate transactionTemplate;
+    private Shard[] shards;
+    private volatile boolean running;
+
+    private final Map<Long, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final AtomicLong ticketIds = new AtomicLong();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedOrders = new LongAdder();
+    private final LongAdder batchRetries = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LatencyHistogram completionLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram synchronousLatency = new LatencyHistogram();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = new Shard(new OrderRingBuffer(bufferSize));
+            Thread thread = new Thread(() -> consume(shard), "order-ingestion-" + i);
+            thread.setDaemon(true);
+            shard.ring.setConsumer(thread);
+            shard.thread = thread;
+            shards[i] = shard;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops accepting orders and lets the consumers finish the orders already in their rings.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Queues an order for asynchronous processing.
+     *
+     * @param user       the user placing the order
+     * @param coinId     the id of the coin to trade
+     * @param orderType  BUY or SELL
+     * @param quantity   the quantity to trade
+     * @param limitPrice a positive limit price for a limit order, otherwise 0 for a market order
+     * @param clientOrderId the id the client gave the order, or null; a replayed id fails its ticket
+     * @return the ticket to poll for the outcome
+     * @throws Exception if the user's shard has no room for another order
+     */
+    public OrderTicket submit(User user, String coinId, OrderType orderType, double quantity, double limitPrice,
+                              String clientOrderId) throws Exception {
+        if (!running) {
+            throw new Exception("Order ingestion is shutting down");
+        }
+        OrderTicket ticket = new OrderTicket(ticketIds.incrementAndGet(), user.getId());
+        tickets.put(ticket.getId(), ticket);
+        Shard shard = shards[Math.floorMod(Long.hashCode(user.getId()), shards.length)];
+        if (!shard.ring.offer(ticket, coinId, user, orderType, quantity, limitPrice, clientOrderId)) {
+            tickets.remove(ticket.getId());
+            rejected.increment();
+            throw new Exception("Too many pending orders, try again later");
+        }
+        accepted.increment();
+        return ticket;
+    }
+
+    /**
+     * Returns a ticket of the given user.
+     *
+     * @throws Exception if there is no such ticket, it expired, or it belongs to another user
+     */
+    public OrderTicket getTicket(long ticketId, long userId) throws Exception {
+        OrderTicket ticket = tickets.get(ticketId);
+        if (ticket == null || ticket.getUserId() != userId) {
+            throw new Exception("Ticket not found");
+        }
+        return ticket;
+    }
+
+    /**
+     * Records how long an order took on the synchronous path, for comparison in {@link #metrics()}.
+     */
+    public void recordSynchronous(long startNanos) {
+        synchronousLatency.recordSince(startNanos);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.ingestion.ticket-cleanup-ms:60000}")
+    public void expireTickets() {
+        long cutoff = System.currentTimeMillis() - ticketRetentionMs;
+        tickets.values().removeIf(ticket ->
+                ticket.getStatus() != OrderTicket.Status.PENDING && ticket.getFinishedAt() < cutoff);
+    }
+
+    /**
+     * Returns queue depths, batch sizes and the latency of the asynchronous and synchronous paths.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        List<Map<String, Object>> shardMetrics = new ArrayList<>();
+        for (Shard shard : shards) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("depth", shard.ring.depth());
+            entry.put("capacity", shard.ring.capacity());
+            shardMetrics.add(entry);
+        }
+        long orders = completed.sum() + failed.sum();
+        long busy = busyNanos.sum();
+        long batchCount = batches.sum();
+        metrics.put("shards", shardMetrics);
+        metrics.put("accepted", accepted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("completed", completed.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("trackedTickets", tickets.size());
+        metrics.put("batches", batchCount);
+        metrics.put("averageBatchSize", batchCount == 0 ? 0 : (double) batchedOrders.sum() / batchCount);
+        metrics.put("batchRetries", batchRetries.sum());
+        metrics.put("ordersPerBusySecond", busy == 0 ? 0 : orders * 1_000_000_000.0 / busy);
+        metrics.put("completionLatency", completionLatency.snapshot());
+        metrics.put("batchLatency", batchLatency.snapshot());
+        metrics.put("synchronousLatency", synchronousLatency.snapshot());
+        return metrics;
+    }
+
+    private void consume(Shard shard) {
+        OrderRingBuffer ring = shard.ring;
+        while (running || ring.depth() > 0) {
+            int count = ring.await(batchSize, 100);
+            if (count == 0) {
+                continue;
+            }
+            long start = System.nanoTime();
+            long first = ring.next();
+            int runStart = 0;
+            for (int i = 0; i < count; i++) {
+                OrderRingBuffer.Slot slot = ring.slot(first + i);
+                if (slot.limitPrice > 0) {
+                    processBatch(ring, first + runStart, i - runStart);
+                    processAlone(slot);
+                    runStart = i + 1;
+                }
+            }
+            processBatch(ring, first + runStart, count - runStart);
+            ring.release(count);
+            busyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void processBatch(OrderRingBuffer ring, long first, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (count == 1) {
+            processAlone(ring.slot(first));
+            return;
+        }
+        long start = System.nanoTime();
+        Long[] orderIds = new Long[count];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> coinIds = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    coinIds.add(ring.slot(first + i).coinId);
+                }
+                Map<String, Coin> coins = new HashMap<>();
+                for (Coin coin : coinRepository.findAllById(coinIds)) {
+                    coins.put(coin.getId(), coin);
+                }
+                for (int i = 0; i < count; i++) {
+                    OrderRingBuffer.Slot slot = ring.slot(first + i);
+                    orderIds[i] = process(slot, coins.get(slot.coinId)).getId();
+                }
+            });
+        } catch (RuntimeException e) {
+            batchRetries.increment();
+            for (int i = 0; i < count; i++) {
+                processAlone(ring.slot(first + i));
+            }
+            return;
+        }
+        batchLatency.recordSince(start);
+        batches.increment();
+        batchedOrders.add(count);
+        for (int i = 0; i < count; i++) {
+            complete(ring.slot(first + i).ticket, orderIds[i]);
+        }
+    }
+
+    private void processAlone(OrderRingBuffer.Slot slot) {
+        Order order;
+        try {
+            order = transactionTemplate.execute(status ->
+                    process(slot, coinRepository.findById(slot.coinId).orElse(null)));
+        } catch (OrderRejectedException e) {
+            fail(slot.ticket, e.getCause().getMessage());
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Order ticket " + slot.ticket.getId() + " failed: " + e.getMessage());
+            fail(slot.ticket, e.getMessage());
+            return;
+        }
+        complete(slot.ticket, order.getId());
+    }
+
+    /**
+     * Places the order of a slot for the coin as read in the current transaction; a null coin,
+     * one deleted since the order was submitted, rejects the order.
+     */
+    private Order process(OrderRingBuffer.Slot slot, Coin coin) {
+        try {
+            if (coin == null) {
+                throw new Exception("Coin not found");
+            }
+            if (slot.limitPrice > 0) {
+                return orderService.processLimitOrder(coin, slot.quantity, slot.limitPrice, slot.orderType, slot.user,
+                        slot.clientOrderId);
+            }
+            return orderService.processOrder(coin, slot.quantity, slot.orderType, slot.user, slot.clientOrderId);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OrderRejectedException(e);
+        }
+    }
+
+    private void complete(OrderTicket ticket, Long orderId) {
+        ticket.complete(orderId);
+        completed.increment();
+        completionLatency.recordSince(ticket.getAcceptedNanos());
+    }
+
+    private void fail(OrderTicket ticket, String error) {
+        ticket.fail(error);
+        failed.increment();
+        completionLatency.recordSince(ticket.getAcceptedNanos());
+    }
+
+    private static final class Shard {
+        private final OrderRingBuffer ring;
+        private Thread thread;
+
+        private Shard(OrderRingBuffer ring) {
+            this.ring = ring;
+        }
+    }
+
+    /**
+     * Carries a checked exception thrown by the order service out of a transaction callback,
+     * rolling the transaction back.
+     */
+    private static final class OrderRejectedException extends RuntimeException {
+        private OrderRejectedException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
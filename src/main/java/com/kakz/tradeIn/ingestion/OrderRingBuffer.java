@@ -0,0 +1,168 @@
+package com.kakz.tradeIn.ingestion;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.model.User;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of pending orders.
+ *
+ * All slots are allocated up front and reused. A producer claims the next sequence with a CAS,
+ * fills the slot and then publishes it by storing the sequence in {@code published}; the consumer
+ * reads every slot up to the first unpublished one as a batch and releases them all at once when
+ * the batch is done. The consumer thread spins briefly and then parks when the ring is empty, and
+ * is only woken by a producer if it is actually parked.
+ */
+final class OrderRingBuffer {
+
+    /**
+     * One pending order. Written by the producer before publishing, read only by the consumer.
+     * Only the coin's id is kept, so the order trades at the coin's price when it is processed.
+     */
+    static final class Slot {
+        OrderTicket ticket;
+        String coinId;
+        User user;
+        OrderType orderType;
+        double quantity;
+        double limitPrice;
+        String clientOrderId;
+
+        void clear() {
+            ticket = null;
+            clientOrderId = null;
+            coinId = null;
+            user = null;
+            orderType = null;
+        }
+    }
+
+    private static final int SPIN_TRIES = 200;
+
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private volatile Thread consumer;
+    private volatile boolean waiting;
+
+    OrderRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        slots = new Slot[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        mask = capacity - 1;
+    }
+
+    void setConsumer(Thread consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Adds an order, or returns false without waiting if the ring is full.
+     */
+    boolean offer(OrderTicket ticket, String coinId, User user, OrderType orderType, double quantity, double limitPrice,
+                  String clientOrderId) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+        slot.ticket = ticket;
+        slot.coinId = coinId;
+        slot.user = user;
+        slot.orderType = orderType;
+        slot.quantity = quantity;
+        slot.limitPrice = limitPrice;
+        slot.clientOrderId = clientOrderId;
+        published.set(index, sequence);
+
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Waits up to the given time for published orders and returns how many consecutive ones, at
+     * most {@code max}, are ready starting at {@link #next()}.
+     */
+    int await(int max, long timeoutMs) {
+        for (int spin = 0; spin < SPIN_TRIES; spin++) {
+            int available = available(max);
+            if (available > 0) {
+                return available;
+            }
+            Thread.onSpinWait();
+        }
+        int available;
+        waiting = true;
+        try {
+            available = available(max);
+            if (available == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+                available = available(max);
+            }
+        } finally {
+            waiting = false;
+        }
+        return available;
+    }
+
+    /**
+     * Returns the sequence of the first order not yet released by the consumer.
+     */
+    long next() {
+        return consumed;
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Frees the given number of slots starting at {@link #next()} for producers to reuse.
+     */
+    void release(int count) {
+        long start = consumed;
+        for (int i = 0; i < count; i++) {
+            slots[(int) (start + i) & mask].clear();
+        }
+        consumed = start + count;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns the number of claimed orders not yet released.
+     */
+    long depth() {
+        return claimed.get() - consumed;
+    }
+
+    private int available(int max) {
+        long start = consumed;
+        int count = 0;
+        while (count < max && published.get((int) (start + count) & mask) == start + count) {
+            count++;
+        }
+        return count;
+    }
+}
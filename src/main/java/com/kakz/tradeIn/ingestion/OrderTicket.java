@@ -0,0 +1,88 @@
+package com.kakz.tradeIn.ingestion;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Receipt for an order accepted by the {@link OrderIngestionPipeline}, polled by the client
+ * until the order has been processed.
+ */
+public final class OrderTicket {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final long id;
+    private final long userId;
+    private final long acceptedAt;
+    private final long acceptedNanos;
+
+    private volatile Status status = Status.PENDING;
+    private volatile Long orderId;
+    private volatile String error;
+    private volatile long finishedAt;
+
+    OrderTicket(long id, long userId) {
+        this.id = id;
+        this.userId = userId;
+        this.acceptedAt = System.currentTimeMillis();
+        this.acceptedNanos = System.nanoTime();
+    }
+
+    void complete(Long orderId) {
+        this.orderId = orderId;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = Status.FAILED;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public long getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the id of the created order once the ticket is COMPLETED.
+     */
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns why the order was rejected once the ticket is FAILED.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    /**
+     * Returns when the order was processed, or 0 while it is PENDING.
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    @JsonIgnore
+    long getAcceptedNanos() {
+        return acceptedNanos;
+    }
+}
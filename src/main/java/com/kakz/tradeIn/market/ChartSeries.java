@@ -0,0 +1,226 @@
+package com.kakz.tradeIn.market;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable, columnar market chart for one coin: one {@code long[]} of timestamps and one
+ * {@code double[]} per value series, all indexed by point.
+ *
+ * Every operation returns a new series, so a reference published to readers never changes
+ * underneath them.
+ */
+final class ChartSeries {
+
+    private static final int FILE_MAGIC = 0x43485254;
+    private static final int FILE_VERSION = 1;
+
+    private final long[] timestamps;
+    private final double[] prices;
+    private final double[] marketCaps;
+    private final double[] volumes;
+    private final int size;
+
+    ChartSeries(long[] timestamps, double[] prices, double[] marketCaps, double[] volumes, int size) {
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.marketCaps = marketCaps;
+        this.volumes = volumes;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long firstTimestamp() {
+        return timestamps[0];
+    }
+
+    long lastTimestamp() {
+        return timestamps[size - 1];
+    }
+
+    /**
+     * Returns the timestamp from which a tail refresh should start. The newest point of an
+     * upstream response is a live, irregularly spaced sample, so the refresh re-reads it.
+     */
+    long tailRefreshFrom() {
+        return size >= 2 ? timestamps[size - 2] : timestamps[size - 1];
+    }
+
+    /**
+     * Replaces every point from the start of {@code tail} onwards with the tail's points,
+     * keeping at most one point per {@code step} milliseconds plus the tail's newest point.
+     */
+    ChartSeries merge(ChartSeries tail, long step) {
+        if (tail.isEmpty()) {
+            return this;
+        }
+        int kept = 0;
+        while (kept < size && timestamps[kept] < tail.firstTimestamp()) {
+            kept++;
+        }
+        int capacity = kept + tail.size;
+        long[] t = Arrays.copyOf(timestamps, capacity);
+        double[] p = Arrays.copyOf(prices, capacity);
+        double[] c = Arrays.copyOf(marketCaps, capacity);
+        double[] v = Arrays.copyOf(volumes, capacity);
+
+        int n = kept;
+        long minGap = step - step / 10;
+        for (int i = 0; i < tail.size; i++) {
+            boolean newest = i == tail.size - 1;
+            if (!newest && n > 0 && tail.timestamps[i] - t[n - 1] < minGap) {
+                continue;
+            }
+            t[n] = tail.timestamps[i];
+            p[n] = tail.prices[i];
+            c[n] = tail.marketCaps[i];
+            v[n] = tail.volumes[i];
+            n++;
+        }
+        return new ChartSeries(t, p, c, v, n);
+    }
+
+    /**
+     * Drops every point older than the given timestamp.
+     */
+    ChartSeries trimBefore(long from) {
+        int start = lowerBound(from);
+        if (start == 0) {
+            return this;
+        }
+        return copy(start, size);
+    }
+
+    /**
+     * Returns the points with {@code from <= timestamp <= to}.
+     */
+    ChartSeries slice(long from, long to) {
+        int start = lowerBound(from);
+        int end = start;
+        while (end < size && timestamps[end] <= to) {
+            end++;
+        }
+        return copy(start, end);
+    }
+
+    /**
+     * Reduces the series to at most {@code maxPoints} by keeping the last point of each
+     * equally sized bucket. The newest point is always kept.
+     */
+    ChartSeries downsample(int maxPoints) {
+        if (size <= maxPoints || maxPoints <= 0) {
+            return this;
+        }
+        int bucket = (size + maxPoints - 1) / maxPoints;
+        int count = (size + bucket - 1) / bucket;
+        long[] t = new long[count];
+        double[] p = new double[count];
+        double[] c = new double[count];
+        double[] v = new double[count];
+        for (int i = 0; i < count; i++) {
+            int source = Math.min(size - 1, (i + 1) * bucket - 1);
+            t[i] = timestamps[source];
+            p[i] = prices[source];
+            c[i] = marketCaps[source];
+            v[i] = volumes[source];
+        }
+        return new ChartSeries(t, p, c, v, count);
+    }
+
+    /**
+     * Renders the series in the same shape as CoinGecko's {@code market_chart} response.
+     */
+    byte[] toJson() {
+        StringBuilder json = new StringBuilder(32 + size * 96);
+        json.append("{\"prices\":");
+        appendPairs(json, prices);
+        json.append(",\"market_caps\":");
+        appendPairs(json, marketCaps);
+        json.append(",\"total_volumes\":");
+        appendPairs(json, volumes);
+        json.append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(timestamps[i]);
+        }
+        writeColumn(out, prices);
+        writeColumn(out, marketCaps);
+        writeColumn(out, volumes);
+    }
+
+    static ChartSeries read(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException("Not a chart series file");
+        }
+        int size = in.readInt();
+        long[] t = new long[size];
+        for (int i = 0; i < size; i++) {
+            t[i] = in.readLong();
+        }
+        return new ChartSeries(t, readColumn(in, size), readColumn(in, size), readColumn(in, size), size);
+    }
+
+    private void writeColumn(DataOutputStream out, double[] column) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(column[i]);
+        }
+    }
+
+    private static double[] readColumn(DataInputStream in, int size) throws IOException {
+        double[] column = new double[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = in.readDouble();
+        }
+        return column;
+    }
+
+    private void appendPairs(StringBuilder json, double[] values) {
+        json.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[').append(timestamps[i]).append(',').append(values[i]).append(']');
+        }
+        json.append(']');
+    }
+
+    private int lowerBound(long from) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private ChartSeries copy(int start, int end) {
+        return new ChartSeries(
+                Arrays.copyOfRange(timestamps, start, end),
+                Arrays.copyOfRange(prices, start, end),
+                Arrays.copyOfRange(marketCaps, start, end),
+                Arrays.copyOfRange(volumes, start, end),
+                end - start);
+    }
+}
@@ -0,0 +1,268 @@
+package com.kakz.tradeIn.market;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kakz.tradeIn.model.Coin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Streaming decoder for CoinGecko market payloads.
+ *
+ * Coins are filled field by field straight from the Jackson token stream, without first
+ * materialising the body as a {@code String} or a {@code JsonNode} tree. Fields the
+ * application does not store are skipped, which matters most for {@code /coins/{id}},
+ * whose descriptions, localizations and tickers make up most of the payload.
+ */
+@Component
+public class CoinJsonReader {
+
+    private final JsonFactory jsonFactory;
+
+    @Autowired
+    public CoinJsonReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Reads a {@code /coins/markets} response.
+     *
+     * @param body the response body, positioned at the start of the JSON array
+     * @return the coins in response order
+     * @throws IOException if the body is not a JSON array of coin objects
+     */
+    public List<Coin> readMarkets(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            List<Coin> coins = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                coins.add(readMarketCoin(parser));
+            }
+            return coins;
+        }
+    }
+
+    /**
+     * Reads the fields stored on {@link Coin} from a {@code /coins/{id}} response.
+     *
+     * @param body the response body
+     * @return the coin described by the response
+     * @throws IOException if the body is not a JSON object
+     */
+    public Coin readDetails(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            Coin coin = new Coin();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> coin.setId(parser.getValueAsString());
+                    case "symbol" -> coin.setSymbol(parser.getValueAsString());
+                    case "name" -> coin.setName(parser.getValueAsString());
+                    case "market_cap_rank" -> coin.setMarketCapRank(parser.getValueAsInt());
+                    case "image" -> coin.setImage(readImage(parser));
+                    case "market_data" -> readMarketData(parser, coin);
+                    default -> parser.skipChildren();
+                }
+            }
+            return coin;
+        }
+    }
+
+    private Coin readMarketCoin(JsonParser parser) throws IOException {
+        Coin coin = new Coin();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> coin.setId(parser.getValueAsString());
+                case "symbol" -> coin.setSymbol(parser.getValueAsString());
+                case "name" -> coin.setName(parser.getValueAsString());
+                case "image" -> coin.setImage(parser.getValueAsString());
+                case "current_price" -> coin.setCurrentPrice(parser.getValueAsDouble());
+                case "market_cap" -> coin.setMarketCap(readLong(parser));
+                case "market_cap_rank" -> coin.setMarketCapRank(parser.getValueAsInt());
+                case "fully_diluted_valuation" -> coin.setFullyDilutedValuation(readLong(parser));
+                case "total_volume" -> coin.setTotalVolume(readLong(parser));
+                case "high_24h" -> coin.setHigh24h(parser.getValueAsDouble());
+                case "low_24h" -> coin.setLow24h(parser.getValueAsDouble());
+                case "price_change_24h" -> coin.setPriceChange24h(parser.getValueAsDouble());
+                case "price_change_percentage_24h" -> coin.setPriceChangePercentage24h(parser.getValueAsDouble());
+                case "market_cap_change_24h" -> coin.setMarketCapChange24h(readLong(parser));
+                case "market_cap_change_percentage_24h" -> coin.setMarketCapChangePercentage24h(parser.getValueAsDouble());
+                case "circulating_supply" -> coin.setCirculatingSupply(readLong(parser));
+                case "total_supply" -> coin.setTotalSupply(readLong(parser));
+                case "max_supply" -> coin.setMaxSupply(readLong(parser));
+                case "ath" -> coin.setAth(parser.getValueAsDouble());
+                case "ath_change_percentage" -> coin.setAthChangePercentage(parser.getValueAsDouble());
+                case "ath_date" -> coin.setAthDate(toDate(parser.getValueAsString()));
+                case "atl" -> coin.setAtl(parser.getValueAsDouble());
+                case "atl_change_percentage" -> coin.setAtlChangePercentage(parser.getValueAsDouble());
+                case "atl_date" -> coin.setAtlDate(toDate(parser.getValueAsString()));
+                case "last_updated" -> coin.setLastUpdated(toDate(parser.getValueAsString()));
+                default -> parser.skipChildren();
+            }
+        }
+        return coin;
+    }
+
+    private String readImage(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String large = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("large".equals(field)) {
+                large = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return large;
+    }
+
+    private void readMarketData(JsonParser parser, Coin coin) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "current_price" -> coin.setCurrentPrice(readUsd(parser));
+                case "market_cap" -> coin.setMarketCap((long) readUsd(parser));
+                case "total_volume" -> coin.setTotalVolume((long) readUsd(parser));
+                case "high_24h" -> coin.setHigh24h(readUsd(parser));
+                case "low_24h" -> coin.setLow24h(readUsd(parser));
+                case "price_change_24h" -> coin.setPriceChange24h(parser.getValueAsDouble());
+                case "price_change_percentage_24h" -> coin.setPriceChangePercentage24h(parser.getValueAsDouble());
+                case "market_cap_change_24h" -> coin.setMarketCapChange24h(readLong(parser));
+                case "market_cap_change_percentage_24h" -> coin.setMarketCapChangePercentage24h(parser.getValueAsDouble());
+                case "circulating_supply" -> coin.setCirculatingSupply(readLong(parser));
+                case "total_supply" -> coin.setTotalSupply(readLong(parser));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the {@code usd} entry of a per-currency object such as {@code {"usd": 1.0, "eur": 0.9}}.
+     */
+    private double readUsd(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return 0;
+        }
+        double usd = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String currency = parser.currentName();
+            parser.nextToken();
+            if ("usd".equals(currency)) {
+                usd = parser.getValueAsDouble();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return usd;
+    }
+
+    /**
+     * Reads a whole number that CoinGecko may send as a float or beyond the range of {@code long};
+     * such values saturate instead of failing the whole page.
+     */
+    private static long readLong(JsonParser parser) throws IOException {
+        return (long) parser.getValueAsDouble();
+    }
+
+    /**
+     * Parses a timestamp such as {@code 2024-03-14T07:10:36.635Z}. CoinGecko always sends this
+     * shape, and reading its digits directly allocates far less than {@link Instant#parse}, which
+     * a markets page would otherwise call three times per coin; any other shape still goes
+     * through {@link Instant#parse}.
+     */
+    private static Date toDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            long millis = utcMillis(value);
+            return millis != Long.MIN_VALUE ? new Date(millis) : Date.from(Instant.parse(value));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the epoch milliseconds of a {@code yyyy-MM-ddTHH:mm:ss[.fraction]Z} timestamp, or
+     * {@link Long#MIN_VALUE} if the value has any other shape.
+     */
+    private static long utcMillis(String value) {
+        int length = value.length();
+        if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+                || value.charAt(13) != ':' || value.charAt(16) != ':' || value.charAt(length - 1) != 'Z'
+                || (length > 20 && value.charAt(19) != '.')) {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        int hour = digits(value, 11, 13);
+        int minute = digits(value, 14, 16);
+        int second = digits(value, 17, 19);
+        int millis = 0;
+        for (int i = 20; i < length - 1; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            if (i < 23) {
+                millis = millis * 10 + digit;
+            }
+        }
+        for (int i = Math.max(length - 1, 20); i < 23; i++) {
+            millis *= 10;
+        }
+        if ((year | month | day | hour | minute | second) < 0 || hour > 23 || minute > 59 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        long days = LocalDate.of(year, month, day).toEpochDay();
+        return days * 86_400_000L + hour * 3_600_000L + minute * 60_000L + second * 1_000L + millis;
+    }
+
+    /**
+     * Returns the decimal number in {@code value[from, to)}, or -1 if it contains anything but digits.
+     */
+    private static int digits(String value, int from, int to) {
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected market data payload: expected " + expected + " but found " + actual);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.kakz.tradeIn.market;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.repository.CoinRepository;
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory search index over coin id, symbol and name.
+ *
+ * Lookups binary-search a sorted array of lower-cased tokens for prefix matches and fall back
+ * to a bounded edit-distance scan for typos, ranking results by market cap rank. The index is
+ * loaded from the {@code coins} table at startup and updated by the market snapshot poller.
+ *
+ * Updates are incremental: only coins whose indexed fields (id, symbol, name, rank or image)
+ * actually changed are tokenized again, and their entries and tokens are merged into copies of
+ * the current sorted arrays in one linear pass, without sorting the whole index again. Readers
+ * keep using the previous snapshot until the new one is published.
+ */
+@Component
+public class CoinSearchIndex {
+
+    private static final int MAX_RESULTS = 25;
+
+    @Autowired
+    private CoinRepository coinRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final LatencyHistogram lookups = new LatencyHistogram();
+    private final LatencyHistogram updateLatency = new LatencyHistogram();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder updatedCoins = new LongAdder();
+
+    /**
+     * Seeds the index from the coins already stored in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        upsert(coinRepository.findAll());
+    }
+
+    /**
+     * Adds or updates coins in the index, merging only the changed coins into the lookup structures.
+     *
+     * @param coins the coins whose index entries should reflect their current values
+     */
+    public synchronized void upsert(Collection<Coin> coins) {
+        long start = System.nanoTime();
+        Map<String, Entry> changed = new LinkedHashMap<>();
+        for (Coin coin : coins) {
+            if (coin.getId() == null) {
+                continue;
+            }
+            Entry entry = new Entry(coin.getId(), coin.getSymbol(), coin.getName(),
+                    coin.getMarketCapRank(), coin.getImage());
+            if (!entry.equals(entries.get(entry.id))) {
+                changed.put(entry.id, entry);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        entries.putAll(changed);
+        snapshot = snapshot.merge(changed);
+        updates.increment();
+        updatedCoins.add(changed.size());
+        updateLatency.recordSince(start);
+    }
+
+    /**
+     * Searches coins by id, symbol or name.
+     *
+     * @param query the text typed by the user
+     * @return the matches in CoinGecko's {@code /search} response shape
+     */
+    public byte[] search(String query) {
+        long start = System.nanoTime();
+        List<Entry> matches = find(normalize(query));
+        lookups.recordSince(start);
+
+        List<Map<String, Object>> coins = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            Map<String, Object> coin = new LinkedHashMap<>();
+            coin.put("id", entry.id);
+            coin.put("name", entry.name);
+            coin.put("api_symbol", entry.id);
+            coin.put("symbol", entry.symbol == null ? null : entry.symbol.toUpperCase(Locale.ROOT));
+            coin.put("market_cap_rank", entry.rank > 0 ? entry.rank : null);
+            coin.put("thumb", entry.image);
+            coin.put("large", entry.image);
+            coins.add(coin);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("coins", coins);
+        response.put("exchanges", List.of());
+        response.put("icos", List.of());
+        response.put("categories", List.of());
+        response.put("nfts", List.of());
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize search results", e);
+        }
+    }
+
+    /**
+     * Returns index size, rebuild count and lookup latency.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("coins", entries.size());
+        metrics.put("tokens", snapshot.keys.length);
+        metrics.put("updates", updates.sum());
+        metrics.put("updatedCoins", updatedCoins.sum());
+        metrics.put("updateLatency", updateLatency.snapshot());
+        metrics.put("lookupLatency", lookups.snapshot());
+        return metrics;
+    }
+
+    private List<Entry> find(String query) {
+        Snapshot current = snapshot;
+        List<Entry> results = new ArrayList<>();
+        if (query.isEmpty()) {
+            return results;
+        }
+
+        BitSet exact = new BitSet(current.entries.length);
+        BitSet prefix = new BitSet(current.entries.length);
+        for (int i = current.lowerBound(query); i < current.keys.length && current.keys[i].startsWith(query); i++) {
+            if (current.keys[i].length() == query.length()) {
+                exact.set(current.owners[i]);
+            } else {
+                prefix.set(current.owners[i]);
+            }
+        }
+        prefix.andNot(exact);
+
+        // entries are ordered by market cap rank, so ascending bit order is rank order
+        for (int i = exact.nextSetBit(0); i >= 0 && results.size() < MAX_RESULTS; i = exact.nextSetBit(i + 1)) {
+            results.add(current.entries[i]);
+        }
+        for (int i = prefix.nextSetBit(0); i >= 0 && results.size() < MAX_RESULTS; i = prefix.nextSetBit(i + 1)) {
+            results.add(current.entries[i]);
+        }
+
+        if (results.size() < MAX_RESULTS && query.length() >= 3) {
+            int maxDistance = query.length() <= 5 ? 1 : 2;
+            exact.or(prefix);
+            for (int i = 0; i < current.entries.length && results.size() < MAX_RESULTS; i++) {
+                if (!exact.get(i) && current.entries[i].isNear(query, maxDistance)) {
+                    results.add(current.entries[i]);
+                }
+            }
+        }
+        return results;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Bounded Levenshtein distance; returns {@code max + 1} as soon as the distance is known to exceed {@code max}.
+     */
+    private static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Entry {
+        private static final Comparator<Entry> RANK_ORDER =
+                Comparator.comparingInt(Entry::sortRank).thenComparing(entry -> entry.id);
+
+        private final String id;
+        private final String symbol;
+        private final String name;
+        private final int rank;
+        private final String image;
+        private final String[] tokens;
+
+        private Entry(String id, String symbol, String name, int rank, String image) {
+            this.id = id;
+            this.symbol = symbol;
+            this.name = name;
+            this.rank = rank;
+            this.image = image;
+
+            Set<String> tokenSet = new LinkedHashSet<>();
+            tokenSet.add(normalize(id));
+            tokenSet.add(normalize(symbol));
+            String lowerName = normalize(name);
+            tokenSet.add(lowerName);
+            tokenSet.addAll(Arrays.asList(lowerName.split("[^a-z0-9]+")));
+            tokenSet.remove("");
+            this.tokens = tokenSet.toArray(new String[0]);
+        }
+
+        /**
+         * True if the query is within {@code maxDistance} edits of a token or of the token's
+         * prefix of the same length, so that partially typed words with a typo still match.
+         */
+        private boolean isNear(String query, int maxDistance) {
+            for (String token : tokens) {
+                if (distance(query, token, maxDistance) <= maxDistance) {
+                    return true;
+                }
+                if (token.length() > query.length()
+                        && distance(query, token.substring(0, query.length()), maxDistance) <= maxDistance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int sortRank() {
+            return rank > 0 ? rank : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry entry)) {
+                return false;
+            }
+            return rank == entry.rank
+                    && id.equals(entry.id)
+                    && Objects.equals(symbol, entry.symbol)
+                    && Objects.equals(name, entry.name)
+                    && Objects.equals(image, entry.image);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    /**
+     * Immutable lookup structures: entries ordered by rank and a sorted token array pointing back to them.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new Entry[0], new String[0], new int[0]);
+
+        private final Entry[] entries;
+        private final String[] keys;
+        private final int[] owners;
+
+        private Snapshot(Entry[] entries, String[] keys, int[] owners) {
+            this.entries = entries;
+            this.keys = keys;
+            this.owners = owners;
+        }
+
+        /**
+         * Returns a new snapshot with the given entries added, replacing any entries with the same
+         * ids. Only the tokens of the given entries are sorted; they are merged with the tokens
+         * of the unchanged entries, which are already in order, and the same is done for the
+         * rank-ordered entries, with the token owners remapped to the new entry positions.
+         */
+        Snapshot merge(Map<String, Entry> changed) {
+            Entry[] added = changed.values().toArray(new Entry[0]);
+            Arrays.sort(added, Entry.RANK_ORDER);
+
+            int[] remap = new int[this.entries.length];
+            int removed = 0;
+            for (Entry entry : this.entries) {
+                if (changed.containsKey(entry.id)) {
+                    removed++;
+                }
+            }
+            Entry[] entries = new Entry[this.entries.length - removed + added.length];
+            int[] addedAt = new int[added.length];
+            int next = 0;
+            int old = 0;
+            int fresh = 0;
+            while (old < this.entries.length || fresh < added.length) {
+                if (old < this.entries.length && changed.containsKey(this.entries[old].id)) {
+                    remap[old++] = -1;
+                } else if (fresh == added.length
+                        || (old < this.entries.length && Entry.RANK_ORDER.compare(this.entries[old], added[fresh]) < 0)) {
+                    remap[old++] = next;
+                    entries[next++] = this.entries[old - 1];
+                } else {
+                    addedAt[fresh] = next;
+                    entries[next++] = added[fresh++];
+                }
+            }
+
+            List<Object[]> tokenRefs = new ArrayList<>();
+            for (int i = 0; i < added.length; i++) {
+                for (String token : added[i].tokens) {
+                    tokenRefs.add(new Object[]{token, addedAt[i]});
+                }
+            }
+            tokenRefs.sort(Comparator.comparing(ref -> (String) ref[0]));
+
+            int kept = 0;
+            for (int owner : this.owners) {
+                if (remap[owner] >= 0) {
+                    kept++;
+                }
+            }
+            String[] keys = new String[kept + tokenRefs.size()];
+            int[] owners = new int[keys.length];
+            next = 0;
+            old = 0;
+            fresh = 0;
+            while (next < keys.length) {
+                if (old < this.keys.length && remap[this.owners[old]] < 0) {
+                    old++;
+                } else if (fresh == tokenRefs.size()
+                        || (old < this.keys.length && this.keys[old].compareTo((String) tokenRefs.get(fresh)[0]) <= 0)) {
+                    keys[next] = this.keys[old];
+                    owners[next++] = remap[this.owners[old++]];
+                } else {
+                    keys[next] = (String) tokenRefs.get(fresh)[0];
+                    owners[next++] = (Integer) tokenRefs.get(fresh++)[1];
+                }
+            }
+            return new Snapshot(entries, keys, owners);
+        }
+
+        int lowerBound(String query) {
+            int index = Arrays.binarySearch(keys, query);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index > 0 && keys[index - 1].equals(query)) {
+                index--;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.kakz.tradeIn.market;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Local time-series store for coin market charts.
+ *
+ * History older than a few minutes never changes, so each coin's series is kept in memory as
+ * {@link ChartSeries} columns and only the missing tail is fetched from CoinGecko's
+ * {@code market_chart/range} endpoint. Any {@code days} window is then answered by slicing and
+ * downsampling locally. Series are kept per resolution tier, mirroring CoinGecko's own
+ * granularity (5-minute up to 1 day, hourly up to 90 days, daily beyond), and are written to
+ * {@code market.chart.store-dir} so they survive restarts. If CoinGecko cannot be reached, the
+ * stored series is served as it is and the payload carries the time of its last successful sync.
+ */
+@Component
+public class MarketChartStore {
+
+    private static final long DAY_MS = 86_400_000L;
+
+    /**
+     * CoinGecko ids are lower-case slugs; anything else is rejected before it reaches a file path.
+     */
+    private static final Pattern COIN_ID = Pattern.compile("[a-z0-9][a-z0-9._-]{0,127}");
+
+    /**
+     * Resolution tiers matching CoinGecko's automatic chart granularity.
+     */
+    private enum Resolution {
+        FIVE_MINUTE(1, 5 * 60_000L),
+        HOURLY(90, 3_600_000L),
+        DAILY(Integer.MAX_VALUE, DAY_MS);
+
+        private final int maxDays;
+        private final long step;
+
+        Resolution(int maxDays, long step) {
+            this.maxDays = maxDays;
+            this.step = step;
+        }
+
+        static Resolution forDays(int days) {
+            for (Resolution resolution : values()) {
+                if (days <= resolution.maxDays) {
+                    return resolution;
+                }
+            }
+            return DAILY;
+        }
+    }
+
+    @Autowired
+    private MarketDataSource marketDataSource;
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Directory holding one binary file per coin and resolution tier.
+     */
+    @Value("${market.chart.store-dir:data/charts}")
+    private String storeDir;
+
+    /**
+     * How old the newest stored point may be before the tail is fetched again.
+     */
+    @Value("${market.chart.tail-refresh-ms:60000}")
+    private long tailRefreshMs;
+
+    /**
+     * Upper bound on the points returned for one chart; longer windows are downsampled.
+     */
+    @Value("${market.chart.max-points:2000}")
+    private int maxPoints;
+
+    private final Map<String, SeriesHolder> series = new ConcurrentHashMap<>();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder tailFetches = new LongAdder();
+    private final LongAdder fullFetches = new LongAdder();
+    private final LongAdder persistFailures = new LongAdder();
+    private final LongAdder lastKnownGoodHits = new LongAdder();
+
+    @Autowired
+    public MarketChartStore(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Returns the market chart for the last {@code days} days.
+     *
+     * @param coinId the CoinGecko id of the coin
+     * @param days   the window length in days
+     * @return the chart in CoinGecko's {@code market_chart} JSON shape
+     * @throws Exception if the coin id is invalid
+     */
+    public MarketPayload getChart(String coinId, int days) throws Exception {
+        if (coinId == null || !COIN_ID.matcher(coinId).matches()) {
+            throw new Exception("Invalid coin id");
+        }
+        int window = Math.max(1, days);
+        Resolution resolution = Resolution.forDays(window);
+        String key = coinId + "-" + resolution.name().toLowerCase();
+
+        SeriesHolder holder = series.computeIfAbsent(key, k -> new SeriesHolder(Paths.get(storeDir, k + ".bin")));
+        ChartSeries current = holder.refresh(coinId, window, resolution);
+
+        long to = System.currentTimeMillis();
+        long from = to - window * DAY_MS;
+        return MarketPayload.of(current.slice(from, to).downsample(maxPoints).toJson(), holder.syncedAt);
+    }
+
+    /**
+     * Returns how chart requests were answered: locally, with a tail fetch or with a full fetch.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("series", series.size());
+        metrics.put("localHits", localHits.sum());
+        metrics.put("tailFetches", tailFetches.sum());
+        metrics.put("fullFetches", fullFetches.sum());
+        metrics.put("lastKnownGoodHits", lastKnownGoodHits.sum());
+        metrics.put("persistFailures", persistFailures.sum());
+        return metrics;
+    }
+
+    private ChartSeries fetch(String pathAndQuery) {
+        return marketDataSource.exchange(MarketEndpoint.MARKET_CHART, pathAndQuery, this::parse);
+    }
+
+    private ChartSeries parse(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected market chart payload");
+            }
+            Points prices = new Points();
+            Points marketCaps = new Points();
+            Points volumes = new Points();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "prices" -> prices.read(parser);
+                    case "market_caps" -> marketCaps.read(parser);
+                    case "total_volumes" -> volumes.read(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            int size = prices.size;
+            return new ChartSeries(
+                    Arrays.copyOf(prices.timestamps, size),
+                    Arrays.copyOf(prices.values, size),
+                    marketCaps.valuesAligned(size),
+                    volumes.valuesAligned(size),
+                    size);
+        }
+    }
+
+    /**
+     * Holds the series of one coin and tier; refreshes are serialized per holder so concurrent
+     * requests for the same chart trigger at most one upstream fetch.
+     */
+    private final class SeriesHolder {
+        private final Path file;
+        private boolean loaded;
+        private ChartSeries data;
+
+        /**
+         * Time of the last successful sync with upstream, in epoch milliseconds.
+         */
+        private volatile long syncedAt;
+
+        private SeriesHolder(Path file) {
+            this.file = file;
+        }
+
+        synchronized ChartSeries refresh(String coinId, int days, Resolution resolution) {
+            if (!loaded) {
+                data = load();
+                loaded = true;
+            }
+
+            long now = System.currentTimeMillis();
+            long from = now - days * DAY_MS;
+            ChartSeries updated;
+            try {
+                if (data == null || data.isEmpty() || data.firstTimestamp() > from + resolution.step
+                        || data.lastTimestamp() < from) {
+                    updated = fetch("/coins/" + coinId + "/market_chart?vs_currency=usd&days=" + days);
+                    fullFetches.increment();
+                } else if (now - data.lastTimestamp() > tailRefreshMs) {
+                    ChartSeries tail = fetch("/coins/" + coinId + "/market_chart/range?vs_currency=usd&from="
+                            + data.tailRefreshFrom() / 1000 + "&to=" + (now / 1000 + 1));
+                    updated = data.merge(tail, resolution.step);
+                    tailFetches.increment();
+                } else {
+                    localHits.increment();
+                    return data;
+                }
+            } catch (RestClientException e) {
+                if (data == null || data.isEmpty()) {
+                    throw e;
+                }
+                lastKnownGoodHits.increment();
+                return data;
+            }
+            syncedAt = now;
+
+            if (resolution != Resolution.DAILY) {
+                updated = updated.trimBefore(now - resolution.maxDays * DAY_MS - resolution.step);
+            }
+            data = updated;
+            persist();
+            return data;
+        }
+
+        private ChartSeries load() {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                syncedAt = Files.getLastModifiedTime(file).toMillis();
+                return ChartSeries.read(in);
+            } catch (IOException e) {
+                System.err.println("Error: discarding unreadable chart file " + file + ": " + e);
+                return null;
+            }
+        }
+
+        private void persist() {
+            try {
+                Files.createDirectories(file.getParent());
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    data.write(out);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                persistFailures.increment();
+                System.err.println("Error: could not persist chart file " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Growable primitive buffer for one {@code [[timestamp, value], ...]} array.
+     */
+    private static final class Points {
+        private long[] timestamps = new long[256];
+        private double[] values = new double[256];
+        private int size;
+
+        void read(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                long timestamp = parser.getValueAsLong();
+                parser.nextToken();
+                double value = parser.getValueAsDouble();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                }
+                add(timestamp, value);
+            }
+        }
+
+        double[] valuesAligned(int length) {
+            return Arrays.copyOf(values, length);
+        }
+
+        private void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.kakz.tradeIn.market;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker for the CoinGecko API as a whole.
+ *
+ * After {@code market.breaker.failure-threshold} consecutive failed or slow calls the breaker
+ * opens and {@link MarketDataGateway} rejects calls immediately instead of waiting for a socket
+ * timeout. Regular traffic is not used to test recovery: once {@code market.breaker.open-ms} has
+ * passed, the gateway's background probe is allowed through, and a successful probe closes the
+ * breaker again.
+ */
+@Component
+public class MarketCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Consecutive failures that open the breaker.
+     */
+    @Value("${market.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    /**
+     * Calls taking longer than this count as failures even when they succeed.
+     */
+    @Value("${market.breaker.slow-call-ms:4000}")
+    private long slowCallMs;
+
+    /**
+     * How long the breaker stays open before a probe is attempted.
+     */
+    @Value("${market.breaker.open-ms:30000}")
+    private long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+
+    /**
+     * Returns whether a regular call may be sent upstream, counting the rejection if not.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Returns whether a probe call should be sent now, moving the breaker to half-open if so.
+     */
+    public synchronized boolean tryStartProbe() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            probes.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a call that reached CoinGecko and got a non-5xx answer.
+     *
+     * Only the probe's success closes a half-open breaker. An open breaker stays open, because
+     * a success arriving then comes from a call sent before the breaker tripped.
+     *
+     * @param elapsedMs how long the call took
+     */
+    public synchronized void recordSuccess(long elapsedMs) {
+        if (state == State.OPEN) {
+            return;
+        }
+        if (elapsedMs > slowCallMs && state != State.HALF_OPEN) {
+            recordFailure();
+            return;
+        }
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a call that failed with an I/O error, a timeout or a 5xx answer.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            opened.increment();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the breaker state and how often it opened, rejected calls and probed.
+     */
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("state", state);
+        metrics.put("consecutiveFailures", consecutiveFailures);
+        metrics.put("openedAt", state == State.CLOSED ? null : new Date(openedAt));
+        metrics.put("opened", opened.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("probes", probes.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,195 @@
+package com.kakz.tradeIn.market;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process, size-bounded cache for public market data with stale-while-revalidate semantics.
+ *
+ * Entries are stored with a per-key TTL. Once an entry expires it is still served for up to
+ * {@code market.cache.max-stale-ms} while a single background refresh replaces it, so callers
+ * never wait on CoinGecko for data that is already cached. Only a cold or very stale key loads
+ * synchronously, and if that load fails the very stale entry is still returned as the last known
+ * good value, so an upstream outage degrades to old data instead of errors. When more than {@code market.cache.max-entries} keys are held, the least
+ * recently used entry is evicted.
+ */
+@Component
+public class MarketDataCache {
+
+    /**
+     * Produces the value for a cache key.
+     *
+     * @param <T> the cached type
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    /**
+     * Maximum number of keys kept before the least recently used one is evicted.
+     */
+    @Value("${market.cache.max-entries:500}")
+    private int maxEntries;
+
+    /**
+     * How long past its TTL an entry may still be served while it is being refreshed.
+     */
+    @Value("${market.cache.max-stale-ms:600000}")
+    private long maxStaleMs;
+
+    private final Map<String, CachedValue<?>> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedValue<?>> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final ThreadPoolExecutor refresher = new ThreadPoolExecutor(
+            2, 2, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256),
+            runnable -> {
+                Thread thread = new Thread(runnable, "market-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder lastKnownGoodHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    /**
+     * Returns the cached value for the key, loading or refreshing it when needed.
+     *
+     * @param key    identifies the endpoint and its parameters
+     * @param ttl    how long a freshly loaded value is considered fresh
+     * @param loader fetches the value from upstream
+     * @return the fresh or stale cached value, the newly loaded one on a miss, or the last known
+     *         good value if the load failed
+     * @throws Exception if the key is not cached at all and the loader fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Duration ttl, Loader<T> loader) throws Exception {
+        CachedValue<T> cached;
+        synchronized (entries) {
+            cached = (CachedValue<T>) entries.get(key);
+        }
+
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                hits.increment();
+                return cached.value;
+            }
+            if (now < cached.expiresAt + maxStaleMs) {
+                staleHits.increment();
+                refreshInBackground(key, ttl, loader, cached);
+                return cached.value;
+            }
+        }
+
+        misses.increment();
+        T value;
+        try {
+            value = loader.load();
+        } catch (Exception e) {
+            if (cached == null) {
+                throw e;
+            }
+            lastKnownGoodHits.increment();
+            System.err.println("Error loading " + key + ", serving last known good value: " + e);
+            return cached.value;
+        }
+        put(key, value, ttl);
+        return value;
+    }
+
+    /**
+     * Stores a value under the key, replacing any previous entry.
+     */
+    public <T> void put(String key, T value, Duration ttl) {
+        CachedValue<T> cached = new CachedValue<>(value, System.currentTimeMillis() + ttl.toMillis());
+        synchronized (entries) {
+            entries.put(key, cached);
+        }
+    }
+
+    /**
+     * Returns hit, miss, eviction and refresh counters.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (entries) {
+            metrics.put("size", entries.size());
+        }
+        long hitCount = hits.sum();
+        long staleCount = staleHits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + staleCount + missCount;
+        metrics.put("hits", hitCount);
+        metrics.put("staleHits", staleCount);
+        metrics.put("misses", missCount);
+        metrics.put("lastKnownGoodHits", lastKnownGoodHits.sum());
+        metrics.put("hitRatio", lookups == 0 ? 0.0 : (double) (hitCount + staleCount) / lookups);
+        metrics.put("evictions", evictions.sum());
+        metrics.put("refreshes", refreshes.sum());
+        metrics.put("refreshFailures", refreshFailures.sum());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private <T> void refreshInBackground(String key, Duration ttl, Loader<T> loader, CachedValue<T> cached) {
+        if (!cached.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    put(key, loader.load(), ttl);
+                    refreshes.increment();
+                } catch (Exception e) {
+                    refreshFailures.increment();
+                    System.err.println("Error refreshing " + key + ": " + e);
+                } finally {
+                    cached.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cached.refreshing.set(false);
+        }
+    }
+
+    private static final class CachedValue<T> {
+        private final T value;
+        private final long expiresAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private CachedValue(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.kakz.tradeIn.market;
+
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Live {@link MarketDataSource}: the single entry point for every call to the CoinGecko API.
+ *
+ * A single {@link HttpClient} is built at startup and shared by every {@link MarketEndpoint} for
+ * the lifetime of the application, so all calls draw on one pool of kept-alive connections
+ * instead of paying a TCP and TLS handshake on every request. Read timeouts are still set per
+ * endpoint, on each request. Responses are requested gzip-encoded and decoded
+ * here, and the time spent on each endpoint is recorded for the metrics endpoint.
+ *
+ * Every call first takes a token from the {@link MarketRateLimiter} according to its endpoint's
+ * priority; a 429 answer pauses the limiter for the {@code Retry-After} delay and the call is
+ * retried while its queueing deadline allows.
+ *
+ * Calls are also guarded by the {@link MarketCircuitBreaker}: while it is open they fail at once,
+ * and a scheduled probe against {@code /ping} decides when CoinGecko is healthy again.
+ *
+ * Errors are reported with the same exception types {@code RestTemplate} used, so callers
+ * keep handling {@link HttpClientErrorException}, {@link HttpServerErrorException} and
+ * {@link ResourceAccessException}.
+ */
+@Component
+@ConditionalOnProperty(name = "market.source", havingValue = "live", matchIfMissing = true)
+public class MarketDataGateway implements MarketDataSource {
+
+    /**
+     * Base URL of the CoinGecko API, without a trailing slash.
+     */
+    @Value("${market.coingecko.base-url:https://api.coingecko.com/api/v3}")
+    private String baseUrl;
+
+    /**
+     * Optional demo API key sent as the {@code x-cg-demo-api-key} header when present.
+     */
+    @Value("${market.coingecko.api-key:}")
+    private String apiKey;
+
+    /**
+     * Connect timeout of the shared HTTP client, used by every endpoint.
+     */
+    @Value("${market.gateway.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MarketRateLimiter marketRateLimiter;
+
+    @Autowired
+    private MarketCircuitBreaker marketCircuitBreaker;
+
+    private HttpClient client;
+    private final Map<MarketEndpoint, Duration> readTimeouts = new EnumMap<>(MarketEndpoint.class);
+    private final Map<MarketEndpoint, LatencyHistogram> latencies = new EnumMap<>(MarketEndpoint.class);
+    private final Map<MarketEndpoint, LongAdder> errors = new EnumMap<>(MarketEndpoint.class);
+
+    /**
+     * Builds the shared HTTP client and the per-endpoint timeouts and metrics.
+     */
+    @PostConstruct
+    public void init() {
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        for (MarketEndpoint endpoint : MarketEndpoint.values()) {
+            int readTimeoutMs = timeout(endpoint, "read-timeout-ms", endpoint.getDefaultReadTimeoutMs());
+            readTimeouts.put(endpoint, Duration.ofMillis(readTimeoutMs));
+            latencies.put(endpoint, new LatencyHistogram());
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    /**
+     * Performs a GET against the given endpoint and hands the decoded body to the reader.
+     *
+     * @param endpoint     the endpoint being called, used for priority, timeouts and metrics
+     * @param pathAndQuery the path below the base URL, including the query string
+     * @param reader       converts the response body into the result
+     * @return whatever the reader produced
+     * @throws HttpClientErrorException if CoinGecko answered with a 4xx status
+     * @throws HttpServerErrorException if CoinGecko answered with a 5xx status
+     * @throws ResourceAccessException  if the call failed or timed out, could not get a rate limit
+     *                                  slot in time, the circuit breaker is open, or the body could not be read
+     */
+    @Override
+    public <T> T exchange(MarketEndpoint endpoint, String pathAndQuery, MarketResponseReader<T> reader) {
+        if (!marketCircuitBreaker.allowRequest()) {
+            throw new ResourceAccessException("CoinGecko is unavailable, not calling \"" + pathAndQuery
+                    + "\" while the circuit breaker is open");
+        }
+        MarketPriority priority = endpoint.getPriority();
+        long deadline = marketRateLimiter.deadlineFor(priority);
+        while (true) {
+            marketRateLimiter.acquire(priority, deadline);
+            try {
+                return send(endpoint, pathAndQuery, reader);
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                marketRateLimiter.backOff(retryAfterMs(e.getResponseHeaders()));
+                if (System.nanoTime() - deadline >= 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a probe to CoinGecko once the open circuit breaker is due for one. The probe bypasses
+     * the breaker and the rate limiter; its outcome closes the breaker or keeps it open.
+     */
+    @Scheduled(fixedDelayString = "${market.breaker.probe-interval-ms:5000}")
+    public void probe() {
+        if (!marketCircuitBreaker.tryStartProbe()) {
+            return;
+        }
+        try {
+            send(MarketEndpoint.PING, "/ping", InputStream::readAllBytes);
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // upstream is answering, only rate limited
+            marketCircuitBreaker.recordSuccess(0);
+        } catch (RestClientException e) {
+            System.err.println("Error: CoinGecko probe failed: " + e);
+        } finally {
+            if (marketCircuitBreaker.getState() == MarketCircuitBreaker.State.HALF_OPEN) {
+                marketCircuitBreaker.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Returns request count, error count and latency percentiles for every endpoint.
+     */
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (MarketEndpoint endpoint : MarketEndpoint.values()) {
+            Map<String, Object> endpointMetrics = new LinkedHashMap<>();
+            endpointMetrics.put("errors", errors.get(endpoint).sum());
+            endpointMetrics.put("latency", latencies.get(endpoint).snapshot());
+            metrics.put(endpoint.getKey(), endpointMetrics);
+        }
+        return metrics;
+    }
+
+    private <T> T send(MarketEndpoint endpoint, String pathAndQuery, MarketResponseReader<T> reader) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(readTimeouts.get(endpoint))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (!apiKey.isBlank()) {
+            request.header("x-cg-demo-api-key", apiKey);
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = decode(response)) {
+                if (response.statusCode() >= 300) {
+                    throw errorFor(response, body.readAllBytes());
+                }
+                T result = reader.read(body);
+                marketCircuitBreaker.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return result;
+            }
+        } catch (IOException e) {
+            errors.get(endpoint).increment();
+            marketCircuitBreaker.recordFailure();
+            throw new ResourceAccessException("I/O error on GET request for \"" + pathAndQuery + "\": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.get(endpoint).increment();
+            throw new ResourceAccessException("Interrupted during GET request for \"" + pathAndQuery + "\"");
+        } catch (RestClientResponseException e) {
+            errors.get(endpoint).increment();
+            if (e.getStatusCode().is5xxServerError()) {
+                marketCircuitBreaker.recordFailure();
+            } else if (e.getStatusCode().value() != 429) {
+                marketCircuitBreaker.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            throw e;
+        } finally {
+            latencies.get(endpoint).recordSince(start);
+        }
+    }
+
+    private int timeout(MarketEndpoint endpoint, String name, int defaultValue) {
+        return environment.getProperty("market.gateway." + endpoint.getKey() + "." + name, Integer.class, defaultValue);
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(response.body(), 8192);
+        }
+        return response.body();
+    }
+
+    /**
+     * Reads a {@code Retry-After} header given in seconds; returns -1 when it is missing or an HTTP date.
+     */
+    private static long retryAfterMs(HttpHeaders headers) {
+        String retryAfter = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static RestClientResponseException errorFor(HttpResponse<?> response, byte[] body) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+        if (status.is4xxClientError()) {
+            return HttpClientErrorException.create(status, "", headers, body, StandardCharsets.UTF_8);
+        }
+        return HttpServerErrorException.create(status, "", headers, body, StandardCharsets.UTF_8);
+    }
+}
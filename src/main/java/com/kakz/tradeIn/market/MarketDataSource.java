@@ -0,0 +1,46 @@
+package com.kakz.tradeIn.market;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Where market data comes from.
+ *
+ * Requests are expressed as CoinGecko API paths so that every implementation answers the same
+ * calls: {@link MarketDataGateway} sends them to CoinGecko, {@link ReplayMarketDataSource} serves
+ * them from recorded files. The implementation is chosen with {@code market.source}
+ * ({@code live} by default, or {@code replay}).
+ */
+public interface MarketDataSource {
+
+    /**
+     * Performs a GET for the given CoinGecko path and hands the response body to the reader.
+     *
+     * @param endpoint     the endpoint being called
+     * @param pathAndQuery the path below the API base URL, including the query string
+     * @param reader       converts the response body into the result
+     * @return whatever the reader produced
+     * @throws org.springframework.web.client.RestClientException if the data could not be obtained
+     */
+    <T> T exchange(MarketEndpoint endpoint, String pathAndQuery, MarketResponseReader<T> reader);
+
+    /**
+     * Returns request and error counters of this source.
+     */
+    Map<String, Object> metrics();
+
+    /**
+     * Performs a GET and returns the raw, decoded response body.
+     */
+    default byte[] getBytes(MarketEndpoint endpoint, String pathAndQuery) {
+        return exchange(endpoint, pathAndQuery, InputStream::readAllBytes);
+    }
+
+    /**
+     * Performs a GET and returns the decoded response body as a UTF-8 string.
+     */
+    default String getString(MarketEndpoint endpoint, String pathAndQuery) {
+        return new String(getBytes(endpoint, pathAndQuery), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,42 @@
+package com.kakz.tradeIn.market;
+
+/**
+ * The upstream CoinGecko endpoints used by the application.
+ *
+ * Each endpoint carries its own default read timeout, which can be overridden with
+ * {@code market.gateway.<key>.read-timeout-ms}; the connect timeout belongs to the shared
+ * HTTP client and is set once with {@code market.gateway.connect-timeout-ms}. Latency metrics are also kept per endpoint.
+ * The priority decides which calls the rate limiter serves first when tokens run short. The
+ * snapshot poller and user market listings ask for the same {@code /coins/markets} data but are
+ * separate endpoints, so that only the price refresh behind trading gets the top priority.
+ */
+public enum MarketEndpoint {
+    PRICE_SNAPSHOT("price-snapshot", MarketPriority.PRICE_REFRESH, 5000),
+    MARKETS("markets", MarketPriority.BROWSING, 5000),
+    MARKET_CHART("market-chart", MarketPriority.CHART, 8000),
+    COIN_DETAILS("coin-details", MarketPriority.DETAILS, 8000),
+    TRENDING("trending", MarketPriority.TRENDING, 5000),
+    PING("ping", MarketPriority.TRENDING, 3000);
+
+    private final String key;
+    private final MarketPriority priority;
+    private final int defaultReadTimeoutMs;
+
+    MarketEndpoint(String key, MarketPriority priority, int defaultReadTimeoutMs) {
+        this.key = key;
+        this.priority = priority;
+        this.defaultReadTimeoutMs = defaultReadTimeoutMs;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public MarketPriority getPriority() {
+        return priority;
+    }
+
+    public int getDefaultReadTimeoutMs() {
+        return defaultReadTimeoutMs;
+    }
+}
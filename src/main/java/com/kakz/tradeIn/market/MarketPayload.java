@@ -0,0 +1,118 @@
+package com.kakz.tradeIn.market;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An upstream JSON response kept exactly as CoinGecko sent it, ready to be written back to clients.
+ *
+ * The strong ETag and, for bodies worth compressing, a gzip-encoded copy are computed once when
+ * the payload is created, so serving a cached payload costs no JSON parsing, no serialization
+ * and no compression.
+ */
+public class MarketPayload {
+
+    private static final int GZIP_THRESHOLD_BYTES = 1024;
+
+    private final byte[] body;
+    private final byte[] gzippedBody;
+    private final String etag;
+    private final long fetchedAt;
+
+    private MarketPayload(byte[] body, byte[] gzippedBody, String etag, long fetchedAt) {
+        this.body = body;
+        this.gzippedBody = gzippedBody;
+        this.etag = etag;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Wraps a JSON body fetched just now.
+     *
+     * @param body the raw JSON bytes
+     * @return the payload with its ETag and gzip copy computed
+     */
+    public static MarketPayload of(byte[] body) {
+        return new MarketPayload(body, gzip(body), etagOf(body), System.currentTimeMillis());
+    }
+
+    /**
+     * Wraps a JSON body whose data dates from the given time rather than from now.
+     *
+     * @param body      the raw JSON bytes
+     * @param fetchedAt when the underlying data was fetched, in epoch milliseconds
+     * @return the payload with its ETag and gzip copy computed
+     */
+    public static MarketPayload of(byte[] body, long fetchedAt) {
+        return new MarketPayload(body, gzip(body), etagOf(body), fetchedAt);
+    }
+
+    public static MarketPayload of(String body) {
+        return of(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Returns the gzip-encoded body, or {@code null} when the body is too small to be worth compressing.
+     */
+    public byte[] getGzippedBody() {
+        return gzippedBody;
+    }
+
+    /**
+     * Returns the quoted strong ETag derived from the body bytes.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Returns the strong ETag of the gzip-encoded representation, which must differ from the identity one.
+     */
+    public String getGzippedEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Returns the time the body was fetched from upstream, in epoch milliseconds.
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public String asString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        if (body.length < GZIP_THRESHOLD_BYTES) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = out.toByteArray();
+        return compressed.length < body.length ? compressed : null;
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
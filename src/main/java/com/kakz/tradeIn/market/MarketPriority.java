@@ -0,0 +1,32 @@
+package com.kakz.tradeIn.market;
+
+/**
+ * Priority classes for upstream CoinGecko calls, highest first.
+ *
+ * When the rate limiter has fewer tokens than waiting callers, a waiting call of a higher class
+ * is always served before any call of a lower class. Each class has its own default for how
+ * long a call may queue, overridable with {@code market.rate-limit.<key>.max-wait-ms}.
+ */
+public enum MarketPriority {
+    PRICE_REFRESH("price-refresh", 30000),
+    DETAILS("details", 10000),
+    CHART("chart", 8000),
+    BROWSING("browsing", 8000),
+    TRENDING("trending", 3000);
+
+    private final String key;
+    private final int defaultMaxWaitMs;
+
+    MarketPriority(String key, int defaultMaxWaitMs) {
+        this.key = key;
+        this.defaultMaxWaitMs = defaultMaxWaitMs;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getDefaultMaxWaitMs() {
+        return defaultMaxWaitMs;
+    }
+}
@@ -0,0 +1,233 @@
+package com.kakz.tradeIn.market;
+
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket shared by every upstream CoinGecko call, with strict priority between
+ * {@link MarketPriority} classes.
+ *
+ * Calls that find no token queue in FIFO order within their class and wait until a token is
+ * available or their deadline passes; a queued call of a higher class is always served first.
+ * When CoinGecko answers 429, {@link #backOff(long)} empties the bucket and holds every class
+ * until the {@code Retry-After} delay has elapsed, so queued calls resume instead of failing.
+ */
+@Component
+public class MarketRateLimiter {
+
+    /**
+     * Sustained upstream call rate; the free CoinGecko plan allows roughly 30 calls per minute.
+     */
+    @Value("${market.rate-limit.requests-per-minute:30}")
+    private double requestsPerMinute;
+
+    /**
+     * Number of calls that may be made back to back after an idle period.
+     */
+    @Value("${market.rate-limit.burst:5}")
+    private int burst;
+
+    /**
+     * Maximum number of calls waiting per priority class; further calls are rejected at once.
+     */
+    @Value("${market.rate-limit.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * Pause applied after a 429 response that carries no usable {@code Retry-After} header.
+     */
+    @Value("${market.rate-limit.default-retry-after-ms:60000}")
+    private long defaultRetryAfterMs;
+
+    @Autowired
+    private Environment environment;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private final Map<MarketPriority, Deque<Object>> queues = new EnumMap<>(MarketPriority.class);
+    private final Map<MarketPriority, Long> maxWaitNanos = new EnumMap<>(MarketPriority.class);
+    private final Map<MarketPriority, LatencyHistogram> waitTimes = new EnumMap<>(MarketPriority.class);
+    private final Map<MarketPriority, LongAdder> granted = new EnumMap<>(MarketPriority.class);
+    private final Map<MarketPriority, LongAdder> rejected = new EnumMap<>(MarketPriority.class);
+    private final LongAdder throttledResponses = new LongAdder();
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long blockedUntilNanos;
+    private long blockedUntilMillis;
+
+    @PostConstruct
+    public void init() {
+        for (MarketPriority priority : MarketPriority.values()) {
+            long maxWaitMs = environment.getProperty("market.rate-limit." + priority.getKey() + ".max-wait-ms",
+                    Long.class, (long) priority.getDefaultMaxWaitMs());
+            queues.put(priority, new ArrayDeque<>());
+            maxWaitNanos.put(priority, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            waitTimes.put(priority, new LatencyHistogram());
+            granted.put(priority, new LongAdder());
+            rejected.put(priority, new LongAdder());
+        }
+        tokens = burst;
+        lastRefillNanos = System.nanoTime();
+        blockedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Returns the latest time, in {@link System#nanoTime()} units, a call of this class may still be waiting.
+     */
+    public long deadlineFor(MarketPriority priority) {
+        return System.nanoTime() + maxWaitNanos.get(priority);
+    }
+
+    /**
+     * Blocks until a token is granted to the caller.
+     *
+     * @param priority      the class of the call
+     * @param deadlineNanos the {@link System#nanoTime()} after which the call gives up
+     * @throws ResourceAccessException if the class queue is full, the deadline passed or the thread was interrupted
+     */
+    public void acquire(MarketPriority priority, long deadlineNanos) {
+        long start = System.nanoTime();
+        Object ticket = new Object();
+        Deque<Object> queue = queues.get(priority);
+
+        lock.lock();
+        try {
+            if (queue.size() >= queueCapacity) {
+                rejected.get(priority).increment();
+                throw new ResourceAccessException("Upstream request queue for " + priority.getKey() + " is full");
+            }
+            queue.addLast(ticket);
+            boolean acquired = false;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    boolean first = isNext(priority, ticket);
+                    if (first && tokens >= 1 && now - blockedUntilNanos >= 0) {
+                        tokens -= 1;
+                        queue.removeFirst();
+                        acquired = true;
+                        granted.get(priority).increment();
+                        waitTimes.get(priority).record(now - start);
+                        changed.signalAll();
+                        return;
+                    }
+                    long remaining = deadlineNanos - now;
+                    if (remaining <= 0) {
+                        throw new ResourceAccessException("Timed out waiting for an upstream request slot for "
+                                + priority.getKey());
+                    }
+                    changed.awaitNanos(first ? Math.min(remaining, nanosUntilAvailable(now)) : remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("Interrupted while waiting for an upstream request slot");
+            } finally {
+                if (!acquired) {
+                    queue.remove(ticket);
+                    rejected.get(priority).increment();
+                    waitTimes.get(priority).record(System.nanoTime() - start);
+                    changed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops granting tokens until the given delay has passed, after CoinGecko answered 429.
+     *
+     * @param retryAfterMs the delay requested by upstream, or a negative value if none was given
+     */
+    public void backOff(long retryAfterMs) {
+        long delayMs = retryAfterMs >= 0 ? retryAfterMs : defaultRetryAfterMs;
+        throttledResponses.increment();
+        lock.lock();
+        try {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            if (until - blockedUntilNanos > 0) {
+                blockedUntilNanos = until;
+                blockedUntilMillis = System.currentTimeMillis() + delayMs;
+            }
+            tokens = 0;
+            lastRefillNanos = System.nanoTime();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns queue depth, wait time, grants and rejections per priority class.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            metrics.put("availableTokens", Math.floor(tokens));
+            metrics.put("throttledUntil", blockedUntilMillis > System.currentTimeMillis() ? new Date(blockedUntilMillis) : null);
+            metrics.put("throttledResponses", throttledResponses.sum());
+            for (MarketPriority priority : MarketPriority.values()) {
+                Map<String, Object> classMetrics = new LinkedHashMap<>();
+                classMetrics.put("queueDepth", queues.get(priority).size());
+                classMetrics.put("granted", granted.get(priority).sum());
+                classMetrics.put("rejected", rejected.get(priority).sum());
+                classMetrics.put("waitTime", waitTimes.get(priority).snapshot());
+                metrics.put(priority.getKey(), classMetrics);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return metrics;
+    }
+
+    private void refill(long now) {
+        if (now - blockedUntilNanos < 0) {
+            lastRefillNanos = now;
+            return;
+        }
+        double added = (now - lastRefillNanos) * requestsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(burst, tokens + added);
+        lastRefillNanos = now;
+    }
+
+    private long nanosUntilAvailable(long now) {
+        if (now - blockedUntilNanos < 0) {
+            return blockedUntilNanos - now;
+        }
+        double missing = Math.max(0, 1 - tokens);
+        return Math.max(1, (long) Math.ceil(missing * TimeUnit.MINUTES.toNanos(1) / requestsPerMinute));
+    }
+
+    private boolean isNext(MarketPriority priority, Object ticket) {
+        for (MarketPriority higher : MarketPriority.values()) {
+            if (higher == priority) {
+                return queues.get(priority).peekFirst() == ticket;
+            }
+            if (!queues.get(higher).isEmpty()) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
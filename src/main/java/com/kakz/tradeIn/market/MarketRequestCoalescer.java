@@ -0,0 +1,88 @@
+package com.kakz.tradeIn.market;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight deduplication of upstream market data calls.
+ *
+ * The first caller for a key performs the fetch; callers that arrive with the same key while
+ * it is still running wait for that fetch and receive its result, or the same exception,
+ * instead of issuing their own request to CoinGecko.
+ */
+@Component
+public class MarketRequestCoalescer {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Runs the call for the key, or joins the call already in flight for it.
+     *
+     * @param key  identifies the upstream resource, e.g. {@code details:bitcoin}
+     * @param call performs the upstream fetch
+     * @return the result shared by every caller of this flight
+     * @throws Exception the exception thrown by the shared call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> call) throws Exception {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return (T) await(existing);
+        }
+
+        executed.increment();
+        try {
+            T value = call.call();
+            flight.complete(value);
+            return value;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns how many calls went upstream and how many joined an existing flight.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long executedCount = executed.sum();
+        long coalescedCount = coalesced.sum();
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("executed", executedCount);
+        metrics.put("coalesced", coalescedCount);
+        metrics.put("coalescedRatio", executedCount + coalescedCount == 0
+                ? 0.0
+                : (double) coalescedCount / (executedCount + coalescedCount));
+        return metrics;
+    }
+
+    private static Object await(CompletableFuture<Object> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
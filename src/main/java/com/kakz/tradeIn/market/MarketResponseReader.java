@@ -0,0 +1,17 @@
+package com.kakz.tradeIn.market;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Consumes a successful upstream response body.
+ *
+ * The stream is already gzip-decoded and is closed by the caller once
+ * {@link #read(InputStream)} returns.
+ *
+ * @param <T> the type produced from the body
+ */
+@FunctionalInterface
+public interface MarketResponseReader<T> {
+    T read(InputStream body) throws IOException;
+}
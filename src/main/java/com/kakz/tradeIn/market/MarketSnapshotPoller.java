@@ -0,0 +1,220 @@
+package com.kakz.tradeIn.market;
+
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.trigger.TriggerEngine;
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduled job that keeps the {@code coins} table in step with the CoinGecko market snapshot.
+ *
+ * Every cycle pages through {@code /coins/markets} ordered by market cap, then fetches any coin
+ * already stored in the table that was not on those pages, and upserts all rows with a single
+ * JDBC batch per page. Order execution prices trades from this table, so its freshness no longer
+ * depends on somebody having opened the coin's details page.
+ */
+@Component
+public class MarketSnapshotPoller {
+
+    private static final String UPSERT_SQL = "INSERT INTO coins (id, symbol, name, image, current_price, market_cap, "
+            + "market_cap_rank, fully_diluted_valuation, total_volume, high24h, low24h, price_change24h, "
+            + "price_change_percentage24h, market_cap_change24h, market_cap_change_percentage24h, circulating_supply, "
+            + "total_supply, max_supply, ath, ath_change_percentage, ath_date, atl, atl_change_percentage, atl_date, "
+            + "last_updated) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE symbol = VALUES(symbol), name = VALUES(name), image = VALUES(image), "
+            + "current_price = VALUES(current_price), market_cap = VALUES(market_cap), "
+            + "market_cap_rank = VALUES(market_cap_rank), fully_diluted_valuation = VALUES(fully_diluted_valuation), "
+            + "total_volume = VALUES(total_volume), high24h = VALUES(high24h), low24h = VALUES(low24h), "
+            + "price_change24h = VALUES(price_change24h), "
+            + "price_change_percentage24h = VALUES(price_change_percentage24h), "
+            + "market_cap_change24h = VALUES(market_cap_change24h), "
+            + "market_cap_change_percentage24h = VALUES(market_cap_change_percentage24h), "
+            + "circulating_supply = VALUES(circulating_supply), total_supply = VALUES(total_supply), "
+            + "max_supply = VALUES(max_supply), ath = VALUES(ath), ath_change_percentage = VALUES(ath_change_percentage), "
+            + "ath_date = VALUES(ath_date), atl = VALUES(atl), atl_change_percentage = VALUES(atl_change_percentage), "
+            + "atl_date = VALUES(atl_date), last_updated = VALUES(last_updated)";
+
+    @Autowired
+    private MarketDataSource marketDataSource;
+
+    @Autowired
+    private CoinJsonReader coinJsonReader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CoinSearchIndex coinSearchIndex;
+
+    @Autowired
+    private PriceTickHub priceTickHub;
+
+    @Autowired
+    private TriggerEngine triggerEngine;
+
+    @Value("${market.poller.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Number of market-cap ordered pages fetched every cycle.
+     */
+    @Value("${market.poller.pages:4}")
+    private int pages;
+
+    /**
+     * Coins per page; 250 is the maximum CoinGecko accepts.
+     */
+    @Value("${market.poller.per-page:250}")
+    private int perPage;
+
+    /**
+     * Time each coin was last refreshed by the poller, in epoch milliseconds.
+     */
+    private final Map<String, Long> lastRefreshed = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram cycleDurations = new LatencyHistogram();
+    private final AtomicLong lastCycleRows = new AtomicLong();
+    private final AtomicLong lastCycleCompletedAt = new AtomicLong();
+    private final LongAdder totalRows = new LongAdder();
+    private final LongAdder failedCycles = new LongAdder();
+
+    /**
+     * Runs one ingestion cycle. Cycles never overlap because the schedule uses a fixed delay.
+     */
+    @Scheduled(fixedDelayString = "${market.poller.interval-ms:60000}",
+            initialDelayString = "${market.poller.initial-delay-ms:5000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        int written = 0;
+        try {
+            Set<String> missing = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM coins", String.class));
+
+            for (int page = 1; page <= pages; page++) {
+                List<Coin> coins = fetch("/coins/markets?vs_currency=usd&order=market_cap_desc&per_page="
+                        + perPage + "&page=" + page);
+                written += upsert(coins);
+                coins.forEach(coin -> missing.remove(coin.getId()));
+                if (coins.size() < perPage) {
+                    break;
+                }
+            }
+
+            List<String> remaining = new ArrayList<>(missing);
+            for (int from = 0; from < remaining.size(); from += perPage) {
+                List<String> ids = remaining.subList(from, Math.min(from + perPage, remaining.size()));
+                written += upsert(fetch("/coins/markets?vs_currency=usd&per_page=" + perPage
+                        + "&ids=" + String.join(",", ids)));
+            }
+            lastCycleCompletedAt.set(System.currentTimeMillis());
+        } catch (RestClientException e) {
+            failedCycles.increment();
+            System.err.println("Error: market snapshot cycle failed: " + e);
+        } finally {
+            cycleDurations.recordSince(start);
+            lastCycleRows.set(written);
+            totalRows.add(written);
+        }
+    }
+
+    /**
+     * Returns cycle duration, rows written and per-coin staleness in seconds, stalest first.
+     */
+    public Map<String, Object> metrics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cycleDuration", cycleDurations.snapshot());
+        metrics.put("failedCycles", failedCycles.sum());
+        metrics.put("lastCycleRows", lastCycleRows.get());
+        metrics.put("totalRows", totalRows.sum());
+        metrics.put("lastCycleCompletedAt", lastCycleCompletedAt.get() == 0 ? null : new Date(lastCycleCompletedAt.get()));
+        metrics.put("trackedCoins", lastRefreshed.size());
+
+        Map<String, Long> staleness = new LinkedHashMap<>();
+        lastRefreshed.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                .forEach(entry -> staleness.put(entry.getKey(), (now - entry.getValue()) / 1000));
+        metrics.put("maxStalenessSeconds", staleness.values().stream().findFirst().orElse(0L));
+        metrics.put("stalenessSeconds", staleness);
+        return metrics;
+    }
+
+    /**
+     * Returns the time the poller last refreshed the given coin, or {@code null} if it never did.
+     */
+    public Long getLastRefreshed(String coinId) {
+        return lastRefreshed.get(coinId);
+    }
+
+    private List<Coin> fetch(String pathAndQuery) {
+        return marketDataSource.exchange(MarketEndpoint.PRICE_SNAPSHOT, pathAndQuery, coinJsonReader::readMarkets);
+    }
+
+    private int upsert(List<Coin> coins) {
+        if (coins.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, coins, coins.size(), this::bind);
+        coinSearchIndex.upsert(coins);
+        priceTickHub.publish(coins);
+        triggerEngine.onPrices(coins);
+
+        long now = System.currentTimeMillis();
+        coins.forEach(coin -> lastRefreshed.put(coin.getId(), now));
+        return coins.size();
+    }
+
+    private void bind(PreparedStatement ps, Coin coin) throws SQLException {
+        ps.setString(1, coin.getId());
+        ps.setString(2, coin.getSymbol());
+        ps.setString(3, coin.getName());
+        ps.setString(4, coin.getImage());
+        ps.setDouble(5, coin.getCurrentPrice());
+        ps.setLong(6, coin.getMarketCap());
+        ps.setInt(7, coin.getMarketCapRank());
+        ps.setLong(8, coin.getFullyDilutedValuation());
+        ps.setLong(9, coin.getTotalVolume());
+        ps.setDouble(10, coin.getHigh24h());
+        ps.setDouble(11, coin.getLow24h());
+        ps.setDouble(12, coin.getPriceChange24h());
+        ps.setDouble(13, coin.getPriceChangePercentage24h());
+        ps.setLong(14, coin.getMarketCapChange24h());
+        ps.setDouble(15, coin.getMarketCapChangePercentage24h());
+        ps.setLong(16, coin.getCirculatingSupply());
+        ps.setLong(17, coin.getTotalSupply());
+        ps.setLong(18, coin.getMaxSupply());
+        ps.setDouble(19, coin.getAth());
+        ps.setDouble(20, coin.getAthChangePercentage());
+        ps.setTimestamp(21, toTimestamp(coin.getAthDate()));
+        ps.setDouble(22, coin.getAtl());
+        ps.setDouble(23, coin.getAtlChangePercentage());
+        ps.setTimestamp(24, toTimestamp(coin.getAtlDate()));
+        ps.setTimestamp(25, toTimestamp(coin.getLastUpdated()));
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+}
@@ -0,0 +1,74 @@
+package com.kakz.tradeIn.market;
+
+import com.kakz.tradeIn.model.Coin;
+
+import java.util.Locale;
+
+/**
+ * Latest price of one coin as pushed to stream subscribers.
+ *
+ * The JSON form is rendered once when the tick is created and then shared by every subscriber.
+ */
+public class PriceTick {
+
+    private final String coinId;
+    private final double price;
+    private final double priceChangePercentage24h;
+    private final long marketCap;
+    private final long totalVolume;
+    private final long timestamp;
+    private final String json;
+
+    private PriceTick(String coinId, double price, double priceChangePercentage24h,
+                      long marketCap, long totalVolume, long timestamp) {
+        this.coinId = coinId;
+        this.price = price;
+        this.priceChangePercentage24h = priceChangePercentage24h;
+        this.marketCap = marketCap;
+        this.totalVolume = totalVolume;
+        this.timestamp = timestamp;
+        this.json = String.format(Locale.ROOT,
+                "{\"id\":\"%s\",\"current_price\":%s,\"price_change_percentage_24h\":%s,"
+                        + "\"market_cap\":%d,\"total_volume\":%d,\"timestamp\":%d}",
+                coinId, price, priceChangePercentage24h, marketCap, totalVolume, timestamp);
+    }
+
+    /**
+     * Creates a tick from a coin snapshot row.
+     */
+    public static PriceTick of(Coin coin, long timestamp) {
+        return new PriceTick(coin.getId(), coin.getCurrentPrice(), coin.getPriceChangePercentage24h(),
+                coin.getMarketCap(), coin.getTotalVolume(), timestamp);
+    }
+
+    public String getCoinId() {
+        return coinId;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getPriceChangePercentage24h() {
+        return priceChangePercentage24h;
+    }
+
+    public long getMarketCap() {
+        return marketCap;
+    }
+
+    public long getTotalVolume() {
+        return totalVolume;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the tick as a JSON object.
+     */
+    public String toJson() {
+        return json;
+    }
+}
@@ -0,0 +1,271 @@
+package com.kakz.tradeIn.market;
+
+import com.kakz.tradeIn.model.Coin;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single in-process source of live price ticks, pushed to clients over server-sent events.
+ *
+ * The market snapshot poller publishes every refreshed coin here; a tick is fanned out only if the
+ * price actually changed. Each subscriber owns a coalescing buffer holding at most one pending tick
+ * per subscribed coin, so a slow client simply skips intermediate prices instead of accumulating
+ * them. Sending happens on a small dispatch pool and idle connections hold no thread at all, which
+ * is what lets one node keep tens of thousands of open streams.
+ *
+ * Heartbeats take the same path: the scheduled job only marks every stream as due for one, and the
+ * dispatch pool writes it together with any pending ticks. A stream is flushed by at most one
+ * dispatch thread at a time, so a slow client holds up only its own stream, never the scheduler or
+ * the other streams.
+ */
+@Component
+public class PriceTickHub {
+
+    /**
+     * Maximum number of open streams; further subscriptions are refused.
+     */
+    @Value("${market.stream.max-subscribers:50000}")
+    private int maxSubscribers;
+
+    /**
+     * Maximum number of coin ids a single stream may subscribe to.
+     */
+    @Value("${market.stream.max-coins-per-subscriber:100}")
+    private int maxCoinsPerSubscriber;
+
+    /**
+     * Lifetime of a stream; browsers reconnect on their own once it ends.
+     */
+    @Value("${market.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Map<String, Set<Subscriber>> subscribersByCoin = new ConcurrentHashMap<>();
+    private final Map<String, PriceTick> latestTicks = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "price-stream-dispatch");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final LongAdder ticksPublished = new LongAdder();
+    private final LongAdder ticksCoalesced = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder refusedSubscriptions = new LongAdder();
+
+    /**
+     * Opens a stream for the given coins. The latest known tick of each coin is sent right away.
+     *
+     * @param coinIds the CoinGecko ids to stream
+     * @return the emitter to return from the controller
+     * @throws Exception if no coin id was given, too many were given, or the node is at capacity
+     */
+    public SseEmitter subscribe(Collection<String> coinIds) throws Exception {
+        if (coinIds.isEmpty()) {
+            throw new Exception("At least one coin id is required");
+        }
+        if (coinIds.size() > maxCoinsPerSubscriber) {
+            throw new Exception("At most " + maxCoinsPerSubscriber + " coins can be streamed at once");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            refusedSubscriptions.increment();
+            throw new Exception("Too many open price streams, please retry later");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, List.copyOf(new LinkedHashSet<>(coinIds)));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        this.subscribers.add(subscriber);
+
+        for (String coinId : subscriber.coinIds) {
+            subscribersByCoin.compute(coinId, (id, subscribers) -> {
+                Set<Subscriber> updated = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                updated.add(subscriber);
+                return updated;
+            });
+            PriceTick latest = latestTicks.get(coinId);
+            if (latest != null) {
+                subscriber.offer(latest);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Publishes the refreshed coins, fanning out a tick for each coin whose price changed.
+     *
+     * @param coins the coins just written by the snapshot poller
+     */
+    public void publish(List<Coin> coins) {
+        long now = System.currentTimeMillis();
+        for (Coin coin : coins) {
+            PriceTick previous = latestTicks.get(coin.getId());
+            if (previous != null && previous.getPrice() == coin.getCurrentPrice()) {
+                continue;
+            }
+            PriceTick tick = PriceTick.of(coin, now);
+            latestTicks.put(coin.getId(), tick);
+            ticksPublished.increment();
+
+            Set<Subscriber> subscribers = subscribersByCoin.get(coin.getId());
+            if (subscribers != null) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(tick);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latest published tick of a coin, or {@code null} if none was published yet.
+     */
+    public PriceTick getLatestTick(String coinId) {
+        return latestTicks.get(coinId);
+    }
+
+    /**
+     * Queues an SSE comment on every stream so that connections closed by the client are detected.
+     * The comments are written by the dispatch pool; this method never blocks on a client.
+     */
+    @Scheduled(fixedDelayString = "${market.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.requestHeartbeat();
+        }
+    }
+
+    /**
+     * Returns open streams, published and coalesced ticks, and delivery counters.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscriberCount.get());
+        metrics.put("streamedCoins", subscribersByCoin.size());
+        metrics.put("ticksPublished", ticksPublished.sum());
+        metrics.put("ticksCoalesced", ticksCoalesced.sum());
+        metrics.put("eventsSent", eventsSent.sum());
+        metrics.put("sendFailures", sendFailures.sum());
+        metrics.put("refusedSubscriptions", refusedSubscriptions.sum());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.remove(subscriber);
+        for (String coinId : subscriber.coinIds) {
+            subscribersByCoin.computeIfPresent(coinId, (id, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    /**
+     * One open stream and its pending ticks, at most one per coin. Only {@link #flush()} writes to
+     * the emitter, and the {@code scheduled} flag keeps it to one dispatch thread at a time.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final List<String> coinIds;
+        private final Map<String, PriceTick> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, List<String> coinIds) {
+            this.emitter = emitter;
+            this.coinIds = coinIds;
+        }
+
+        void offer(PriceTick tick) {
+            if (pending.put(tick.getCoinId(), tick) != null) {
+                ticksCoalesced.increment();
+            }
+            schedule();
+        }
+
+        void requestHeartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        private void flush() {
+            List<String> ticks = new ArrayList<>(pending.size());
+            for (String coinId : pending.keySet()) {
+                PriceTick tick = pending.remove(coinId);
+                if (tick != null) {
+                    ticks.add(tick.toJson());
+                }
+            }
+            boolean heartbeat = heartbeatDue.getAndSet(false);
+            if (!ticks.isEmpty()) {
+                send(SseEmitter.event().name("ticks").data("[" + String.join(",", ticks) + "]"));
+            } else if (heartbeat) {
+                send(SseEmitter.event().comment("heartbeat"));
+            }
+            scheduled.set(false);
+            if (!pending.isEmpty() || heartbeatDue.get()) {
+                schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                emitter.send(event);
+                eventsSent.increment();
+            } catch (IOException | IllegalStateException e) {
+                sendFailures.increment();
+                unsubscribe(this);
+            }
+        }
+    }
+}
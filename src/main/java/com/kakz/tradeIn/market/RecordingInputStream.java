@@ -0,0 +1,71 @@
+package com.kakz.tradeIn.market;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes a response body through to a streaming parser while keeping a copy of every byte read.
+ *
+ * The parser decodes the body as it arrives instead of waiting for a fully buffered array, and
+ * the copy is still there afterwards for callers that also serve the raw payload. Closing this
+ * stream does not close the body, so {@link #toByteArray()} can read whatever the parser left.
+ */
+public final class RecordingInputStream extends FilterInputStream {
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream(8192);
+
+    public RecordingInputStream(InputStream body) {
+        super(body);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            copy.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            copy.write(buffer, offset, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Reads the rest of the body and returns every byte of it.
+     */
+    public byte[] toByteArray() throws IOException {
+        in.transferTo(copy);
+        return copy.toByteArray();
+    }
+}
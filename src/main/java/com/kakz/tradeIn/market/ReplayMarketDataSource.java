@@ -0,0 +1,278 @@
+package com.kakz.tradeIn.market;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * {@link MarketDataSource} that serves recorded CoinGecko payloads from local files, for load
+ * tests and benchmarks that must not depend on the real API or its rate limits.
+ *
+ * Enabled with {@code market.source=replay}. Files are read from {@code market.replay.dir}:
+ * <ul>
+ *     <li>{@code markets.json}: a {@code /coins/markets} array ordered by market cap; the
+ *     {@code page}, {@code per_page} and {@code ids} parameters are applied locally</li>
+ *     <li>{@code charts/<coin id>.json}: a {@code /coins/<id>/market_chart} payload, shifted in time
+ *     so its newest point is now; {@code days} and {@code range} requests are cut from it</li>
+ *     <li>{@code coins/<coin id>.json}: a {@code /coins/<id>} payload</li>
+ *     <li>{@code trending.json}</li>
+ * </ul>
+ * Each response waits {@code market.replay.latency-ms} plus up to {@code market.replay.jitter-ms},
+ * and every markets request moves each coin's price by a random step of up to
+ * {@code market.replay.tick-volatility}, so prices evolve as they would live.
+ */
+@Component
+@ConditionalOnProperty(name = "market.source", havingValue = "replay")
+public class ReplayMarketDataSource implements MarketDataSource {
+
+    private static final long DAY_MS = 86_400_000L;
+    private static final Pattern COIN_ID = Pattern.compile("[a-z0-9][a-z0-9._-]{0,127}");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Directory holding the recorded payloads.
+     */
+    @Value("${market.replay.dir:replay}")
+    private String replayDir;
+
+    /**
+     * Fixed latency added to every response.
+     */
+    @Value("${market.replay.latency-ms:0}")
+    private long latencyMs;
+
+    /**
+     * Upper bound of the random latency added on top of {@code latency-ms}.
+     */
+    @Value("${market.replay.jitter-ms:0}")
+    private long jitterMs;
+
+    /**
+     * Largest relative price change applied to a coin per markets request.
+     */
+    @Value("${market.replay.tick-volatility:0.002}")
+    private double tickVolatility;
+
+    private final Map<Path, JsonNode> files = new ConcurrentHashMap<>();
+
+    /**
+     * Accumulated price factor per coin, starting at 1 for the recorded price.
+     */
+    private final Map<String, Double> priceFactors = new ConcurrentHashMap<>();
+
+    private final Map<MarketEndpoint, LongAdder> requests = new EnumMap<>(MarketEndpoint.class);
+    private final Map<MarketEndpoint, LongAdder> misses = new EnumMap<>(MarketEndpoint.class);
+
+    public ReplayMarketDataSource() {
+        for (MarketEndpoint endpoint : MarketEndpoint.values()) {
+            requests.put(endpoint, new LongAdder());
+            misses.put(endpoint, new LongAdder());
+        }
+    }
+
+    @Override
+    public <T> T exchange(MarketEndpoint endpoint, String pathAndQuery, MarketResponseReader<T> reader) {
+        requests.get(endpoint).increment();
+        simulateLatency();
+
+        int queryStart = pathAndQuery.indexOf('?');
+        String path = queryStart < 0 ? pathAndQuery : pathAndQuery.substring(0, queryStart);
+        Map<String, String> query = parseQuery(queryStart < 0 ? "" : pathAndQuery.substring(queryStart + 1));
+
+        try {
+            JsonNode response = switch (endpoint) {
+                case PRICE_SNAPSHOT, MARKETS -> markets(query);
+                case MARKET_CHART -> chart(path, query);
+                case COIN_DETAILS -> load(Paths.get("coins", coinId(path, 2) + ".json"));
+                case TRENDING -> load(Paths.get("trending.json"));
+                case PING -> objectMapper.createObjectNode().put("gecko_says", "(replay) To the Moon!");
+            };
+            if (response == null) {
+                misses.get(endpoint).increment();
+                throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "", new HttpHeaders(),
+                        "{\"error\":\"not recorded\"}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            }
+            try (InputStream body = new ByteArrayInputStream(objectMapper.writeValueAsBytes(response))) {
+                return reader.read(body);
+            }
+        } catch (IOException e) {
+            throw new ResourceAccessException("Could not replay \"" + pathAndQuery + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns request and miss counts per endpoint.
+     */
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("source", "replay");
+        for (MarketEndpoint endpoint : MarketEndpoint.values()) {
+            Map<String, Object> endpointMetrics = new LinkedHashMap<>();
+            endpointMetrics.put("requests", requests.get(endpoint).sum());
+            endpointMetrics.put("misses", misses.get(endpoint).sum());
+            metrics.put(endpoint.getKey(), endpointMetrics);
+        }
+        return metrics;
+    }
+
+    private JsonNode markets(Map<String, String> query) throws IOException {
+        JsonNode recorded = load(Paths.get("markets.json"));
+        if (recorded == null || !recorded.isArray()) {
+            return null;
+        }
+
+        Set<String> ids = query.containsKey("ids")
+                ? new HashSet<>(Arrays.asList(query.get("ids").split(",")))
+                : null;
+        int perPage = Integer.parseInt(query.getOrDefault("per_page", "100"));
+        int page = Integer.parseInt(query.getOrDefault("page", "1"));
+        int skip = ids == null ? (page - 1) * perPage : 0;
+
+        ArrayNode result = objectMapper.createArrayNode();
+        String now = Instant.now().toString();
+        for (JsonNode coin : recorded) {
+            String id = coin.path("id").asText();
+            if (ids != null && !ids.contains(id)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (result.size() == perPage) {
+                break;
+            }
+            double factor = priceFactors.merge(id, 1.0, (previous, ignored) ->
+                    previous * (1 + ThreadLocalRandom.current().nextDouble(-tickVolatility, tickVolatility)));
+            ObjectNode evolved = coin.deepCopy();
+            evolved.put("current_price", coin.path("current_price").asDouble() * factor);
+            evolved.put("market_cap", Math.round(coin.path("market_cap").asDouble() * factor));
+            evolved.put("last_updated", now);
+            result.add(evolved);
+        }
+        return result;
+    }
+
+    private JsonNode chart(String path, Map<String, String> query) throws IOException {
+        JsonNode recorded = load(Paths.get("charts", coinId(path, 2) + ".json"));
+        if (recorded == null) {
+            return null;
+        }
+
+        long newest = 0;
+        for (JsonNode point : recorded.path("prices")) {
+            newest = Math.max(newest, point.get(0).asLong());
+        }
+        long now = System.currentTimeMillis();
+        long shift = now - newest;
+
+        long from;
+        long to;
+        if (path.endsWith("/range")) {
+            from = Long.parseLong(query.getOrDefault("from", "0")) * 1000;
+            to = Long.parseLong(query.getOrDefault("to", String.valueOf(now / 1000))) * 1000;
+        } else {
+            String days = query.getOrDefault("days", "1");
+            from = "max".equals(days) ? 0 : now - Long.parseLong(days) * DAY_MS;
+            to = now;
+        }
+
+        ObjectNode result = objectMapper.createObjectNode();
+        for (String series : new String[]{"prices", "market_caps", "total_volumes"}) {
+            ArrayNode points = result.putArray(series);
+            for (JsonNode point : recorded.path(series)) {
+                long timestamp = point.get(0).asLong() + shift;
+                if (timestamp >= from && timestamp <= to) {
+                    points.addArray().add(timestamp).add(point.get(1).asDouble());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the parsed file relative to the replay directory, or {@code null} if it does not exist.
+     */
+    private JsonNode load(Path relative) throws IOException {
+        Path file = Paths.get(replayDir).resolve(relative);
+        JsonNode cached = files.get(file);
+        if (cached != null) {
+            return cached;
+        }
+        if (!Files.exists(file)) {
+            return null;
+        }
+        JsonNode parsed = objectMapper.readTree(file.toFile());
+        files.put(file, parsed);
+        return parsed;
+    }
+
+    /**
+     * Extracts the coin id at the given path segment, rejecting anything that is not a plain id.
+     */
+    private static String coinId(String path, int segment) throws IOException {
+        String[] parts = path.split("/");
+        if (parts.length <= segment || !COIN_ID.matcher(parts[segment]).matches()) {
+            throw new IOException("No coin id in path " + path);
+        }
+        return parts[segment];
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted during replayed request");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.kakz.tradeIn.matching;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes order book depth as immutable snapshots plus a sequenced stream of level changes.
+ *
+ * After every change to a book its shard thread calls {@link #publish(String, OrderBook)}, which
+ * swaps in a new {@link DepthSnapshot} and sends one "update" event listing the changed levels,
+ * a quantity of 0 meaning the level is gone. Sequence numbers are consecutive per coin, so a
+ * client applying updates to its copy of the book detects a gap and reloads the snapshot.
+ *
+ * A stream starts with a "snapshot" event. A subscriber whose buffer of pending updates
+ * overflows is resynchronised the same way: its pending updates are dropped and it is sent the
+ * latest snapshot, followed only by updates newer than it.
+ */
+@Component
+public class DepthFeed {
+
+    /**
+     * Number of price levels per side included in a snapshot.
+     */
+    @Value("${matching.depth.max-levels:100}")
+    private int maxLevels;
+
+    /**
+     * Updates buffered per subscriber before it is resynchronised with a snapshot.
+     */
+    @Value("${matching.depth.buffer-size:1000}")
+    private int bufferSize;
+
+    /**
+     * Lifetime of a depth stream; browsers reconnect on their own once it ends.
+     */
+    @Value("${matching.depth.stream-timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Map<String, DepthSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribersByCoin = new ConcurrentHashMap<>();
+
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "depth-stream-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder updatesPublished = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+
+    /**
+     * Returns the latest depth snapshot of a coin.
+     */
+    public DepthSnapshot getDepth(String coinId) {
+        DepthSnapshot snapshot = snapshots.get(coinId);
+        return snapshot != null ? snapshot : DepthSnapshot.empty(coinId);
+    }
+
+    /**
+     * Opens a depth stream for a coin, starting with the current snapshot.
+     *
+     * @param coinId the coin whose book is streamed
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(String coinId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(coinId, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribersByCoin.compute(coinId, (id, subscribers) -> {
+            Set<Subscriber> updated = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            updated.add(subscriber);
+            return updated;
+        });
+        subscriber.resync();
+        return emitter;
+    }
+
+    /**
+     * Publishes the levels changed since the previous call. Must be called on the book's shard thread.
+     */
+    void publish(String coinId, OrderBook book) {
+        if (book.changeCount() == 0) {
+            return;
+        }
+        long sequence = getDepth(coinId).getSequence() + 1;
+        snapshots.put(coinId, DepthSnapshot.of(coinId, sequence, book, maxLevels));
+
+        StringBuilder bids = new StringBuilder("[");
+        StringBuilder asks = new StringBuilder("[");
+        for (int i = 0; i < book.changeCount(); i++) {
+            boolean buy = book.changedBuy(i);
+            long price = book.changedPrice(i);
+            StringBuilder levels = buy ? bids : asks;
+            if (levels.length() > 1) {
+                levels.append(',');
+            }
+            levels.append('[').append(MatchingEngine.fromUnits(price))
+                    .append(',').append(MatchingEngine.fromUnits(book.quantityAt(buy, price))).append(']');
+        }
+        book.clearChanges();
+        updatesPublished.increment();
+
+        Set<Subscriber> subscribers = subscribersByCoin.get(coinId);
+        if (subscribers == null) {
+            return;
+        }
+        Update update = new Update(sequence, "{\"coin\":\"" + coinId + "\",\"sequence\":" + sequence
+                + ",\"bids\":" + bids.append(']') + ",\"asks\":" + asks.append(']') + "}");
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(update);
+        }
+    }
+
+    /**
+     * Returns open streams, published updates and resynchronisations.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("books", snapshots.size());
+        metrics.put("streamedCoins", subscribersByCoin.size());
+        metrics.put("updatesPublished", updatesPublished.sum());
+        metrics.put("eventsSent", eventsSent.sum());
+        metrics.put("resyncs", resyncs.sum());
+        metrics.put("sendFailures", sendFailures.sum());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribersByCoin.computeIfPresent(subscriber.coinId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static final class Update {
+        private final long sequence;
+        private final String json;
+
+        private Update(long sequence, String json) {
+            this.sequence = sequence;
+            this.json = json;
+        }
+    }
+
+    /**
+     * One open depth stream and its bounded buffer of pending updates.
+     */
+    private final class Subscriber {
+        private final String coinId;
+        private final SseEmitter emitter;
+        private final Queue<Update> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean needsSnapshot = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private long lastSentSequence = -1;
+
+        private Subscriber(String coinId, SseEmitter emitter) {
+            this.coinId = coinId;
+            this.emitter = emitter;
+        }
+
+        void offer(Update update) {
+            if (pendingCount.incrementAndGet() > bufferSize) {
+                pendingCount.decrementAndGet();
+                resync();
+                return;
+            }
+            pending.add(update);
+            schedule();
+        }
+
+        void resync() {
+            needsSnapshot.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatcher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        private void flush() {
+            if (needsSnapshot.getAndSet(false)) {
+                if (lastSentSequence >= 0) {
+                    resyncs.increment();
+                }
+                DepthSnapshot snapshot = getDepth(coinId);
+                send(SseEmitter.event().name("snapshot").data(snapshot.toJson()));
+                lastSentSequence = snapshot.getSequence();
+            }
+            Update update;
+            while ((update = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                if (update.sequence > lastSentSequence) {
+                    send(SseEmitter.event().name("update").id(Long.toString(update.sequence)).data(update.json));
+                    lastSentSequence = update.sequence;
+                }
+            }
+            scheduled.set(false);
+            if (!pending.isEmpty() || needsSnapshot.get()) {
+                schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                emitter.send(event);
+                eventsSent.increment();
+            } catch (IOException | IllegalStateException e) {
+                sendFailures.increment();
+                unsubscribe(this);
+            }
+        }
+    }
+}
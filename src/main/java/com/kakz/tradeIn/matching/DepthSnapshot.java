@@ -0,0 +1,107 @@
+package com.kakz.tradeIn.matching;
+
+import com.kakz.tradeIn.market.MarketPayload;
+
+/**
+ * Immutable view of the best price levels of one order book at a given sequence number.
+ *
+ * A new snapshot is built by the shard thread after every change to the book and published by
+ * swapping a reference, so readers never touch the live book. The JSON payload is rendered the
+ * first time a snapshot is requested and then reused by every reader of that version.
+ */
+public final class DepthSnapshot {
+
+    private final String coinId;
+    private final long sequence;
+    private final long[] bidPrices;
+    private final long[] bidQuantities;
+    private final long[] askPrices;
+    private final long[] askQuantities;
+
+    private volatile MarketPayload payload;
+
+    private DepthSnapshot(String coinId, long sequence, long[] bidPrices, long[] bidQuantities,
+                          long[] askPrices, long[] askQuantities) {
+        this.coinId = coinId;
+        this.sequence = sequence;
+        this.bidPrices = bidPrices;
+        this.bidQuantities = bidQuantities;
+        this.askPrices = askPrices;
+        this.askQuantities = askQuantities;
+    }
+
+    /**
+     * Returns the snapshot of a coin that has no resting orders yet.
+     */
+    static DepthSnapshot empty(String coinId) {
+        return new DepthSnapshot(coinId, 0, new long[0], new long[0], new long[0], new long[0]);
+    }
+
+    /**
+     * Copies the best {@code maxLevels} levels of each side of the book.
+     */
+    static DepthSnapshot of(String coinId, long sequence, OrderBook book, int maxLevels) {
+        int bids = Math.min(maxLevels, book.levelCount(true));
+        int asks = Math.min(maxLevels, book.levelCount(false));
+        long[] bidPrices = new long[bids];
+        long[] bidQuantities = new long[bids];
+        long[] askPrices = new long[asks];
+        long[] askQuantities = new long[asks];
+        for (int i = 0; i < bids; i++) {
+            bidPrices[i] = book.levelPrice(true, i);
+            bidQuantities[i] = book.levelQuantity(true, i);
+        }
+        for (int i = 0; i < asks; i++) {
+            askPrices[i] = book.levelPrice(false, i);
+            askQuantities[i] = book.levelQuantity(false, i);
+        }
+        return new DepthSnapshot(coinId, sequence, bidPrices, bidQuantities, askPrices, askQuantities);
+    }
+
+    public String getCoinId() {
+        return coinId;
+    }
+
+    /**
+     * Returns the sequence number of the last update included in this snapshot.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the snapshot as {@code {"coin":..,"sequence":..,"bids":[[price,quantity],..],"asks":[..]}},
+     * best levels first.
+     */
+    public MarketPayload toPayload() {
+        MarketPayload rendered = payload;
+        if (rendered == null) {
+            rendered = MarketPayload.of(toJson());
+            payload = rendered;
+        }
+        return rendered;
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder(64 + (bidPrices.length + askPrices.length) * 48);
+        json.append("{\"coin\":\"").append(coinId).append("\",\"sequence\":").append(sequence);
+        json.append(",\"bids\":");
+        appendLevels(json, bidPrices, bidQuantities);
+        json.append(",\"asks\":");
+        appendLevels(json, askPrices, askQuantities);
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendLevels(StringBuilder json, long[] prices, long[] quantities) {
+        json.append('[');
+        for (int i = 0; i < prices.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[').append(MatchingEngine.fromUnits(prices[i]))
+                    .append(',').append(MatchingEngine.fromUnits(quantities[i])).append(']');
+        }
+        json.append(']');
+    }
+}
@@ -0,0 +1,131 @@
+package com.kakz.tradeIn.matching;
+
+import java.util.Arrays;
+
+/**
+ * Fills produced by matching one incoming order, stored in primitive columns.
+ *
+ * Prices and quantities are returned as plain doubles, converted back from the book's
+ * fixed-point representation.
+ */
+public final class MatchResult {
+
+    private long[] makerOrderIds = new long[4];
+    private long[] prices = new long[4];
+    private long[] quantities = new long[4];
+    private int fillCount;
+    private long remaining;
+    private boolean selfTradePrevented;
+    private long journalSequence;
+
+    void addFill(long makerOrderId, long price, long quantity) {
+        if (fillCount == makerOrderIds.length) {
+            int capacity = fillCount * 2;
+            makerOrderIds = Arrays.copyOf(makerOrderIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        makerOrderIds[fillCount] = makerOrderId;
+        prices[fillCount] = price;
+        quantities[fillCount] = quantity;
+        fillCount++;
+    }
+
+    void setRemaining(long remaining) {
+        this.remaining = remaining;
+    }
+
+    void setSelfTradePrevented(boolean selfTradePrevented) {
+        this.selfTradePrevented = selfTradePrevented;
+    }
+
+    /**
+     * Empties the result so it can be reused for another order.
+     */
+    void clear() {
+        fillCount = 0;
+        remaining = 0;
+        selfTradePrevented = false;
+    }
+
+    /**
+     * Returns the raw fixed-point price of the given fill.
+     */
+    long priceUnits(int fill) {
+        return prices[fill];
+    }
+
+    long quantityUnits(int fill) {
+        return quantities[fill];
+    }
+
+    long remainingUnits() {
+        return remaining;
+    }
+
+    /**
+     * Returns the journal sequence number of the last event written for this order, or 0.
+     */
+    long getJournalSequence() {
+        return journalSequence;
+    }
+
+    void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    public int getFillCount() {
+        return fillCount;
+    }
+
+    /**
+     * Returns the id of the resting order that took part in the given fill.
+     */
+    public long getMakerOrderId(int fill) {
+        return makerOrderIds[fill];
+    }
+
+    /**
+     * Returns the execution price of the given fill, which is always the resting order's price.
+     */
+    public double getPrice(int fill) {
+        return MatchingEngine.fromUnits(prices[fill]);
+    }
+
+    public double getQuantity(int fill) {
+        return MatchingEngine.fromUnits(quantities[fill]);
+    }
+
+    /**
+     * Returns the quantity of the incoming order that was not filled. It rests in the book,
+     * unless {@link #isSelfTradePrevented()}, in which case it was cancelled.
+     */
+    public double getRemainingQuantity() {
+        return MatchingEngine.fromUnits(remaining);
+    }
+
+    /**
+     * Returns whether matching stopped at a resting order of the same user, cancelling the
+     * unfilled quantity of the incoming order.
+     */
+    public boolean isSelfTradePrevented() {
+        return selfTradePrevented;
+    }
+
+    /**
+     * Returns whether this result has exactly the same fills and remaining quantity as another.
+     */
+    boolean sameAs(MatchResult other) {
+        if (fillCount != other.fillCount || remaining != other.remaining
+                || selfTradePrevented != other.selfTradePrevented) {
+            return false;
+        }
+        for (int i = 0; i < fillCount; i++) {
+            if (makerOrderIds[i] != other.makerOrderIds[i] || prices[i] != other.prices[i]
+                    || quantities[i] != other.quantities[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,513 @@
+package com.kakz.tradeIn.matching;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Runs the in-memory limit order books, one per coin.
+ *
+ * Coins are spread over a fixed number of shards by hash, and every shard is a single thread that
+ * owns its books outright, so matching needs no locks and orders for one coin are processed in
+ * submission order. Callers hand work to the shard and wait for its result. After each change the
+ * shard thread publishes the book's new depth to the {@link DepthFeed}.
+ *
+ * The books only ever reflect committed orders. A transaction that places or cancels a limit
+ * order first locks the coin's book with {@link #lockBook(String)}, which keeps every other
+ * transaction off that coin until it commits or rolls back. Matching then only previews the
+ * fills, which the caller settles in the database, and the book is changed after the commit,
+ * where matching the order again reproduces exactly the previewed fills because nobody else
+ * could touch the book in between. A rollback leaves the book as it was, and no order can
+ * trade with a resting order whose insert has not committed yet.
+ *
+ * The database stays the durable record of the books. With the {@link OrderJournal} enabled,
+ * every committed change is also journalled on the shard thread, and at startup the books are
+ * first rebuilt from the journal's latest snapshot and the events after it, which keeps their
+ * exact time priorities. {@link #restore(Map)} then checks them against the open limit orders of
+ * the database and rebuilds every book that disagrees, for example one missing an order that
+ * committed just before a crash; without the journal every book is built from the database. No
+ * transaction can lock a book before the books are restored.
+ */
+@Component
+public class MatchingEngine {
+
+    /**
+     * Fixed-point scale for prices and quantities in the books: 8 decimal places.
+     */
+    public static final long SCALE = 100_000_000L;
+
+    /**
+     * Number of shard threads; 0 means one per available processor.
+     */
+    @Value("${matching.shards:0}")
+    private int shardCount;
+
+    /**
+     * Longest time a transaction waits for another transaction holding the same coin's book.
+     */
+    @Value("${matching.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    /**
+     * Time between two snapshots of the books in the order journal.
+     */
+    @Value("${matching.journal.snapshot-interval-ms:300000}")
+    private long snapshotIntervalMs;
+
+    @Autowired
+    private DepthFeed depthFeed;
+
+    @Autowired
+    private OrderJournal journal;
+
+    private ExecutorService[] shards;
+    private Map<String, OrderBook>[] books;
+    private ScheduledExecutorService snapshotter;
+    private final CountDownLatch restored = new CountDownLatch(1);
+    private final Map<String, ReentrantLock> bookLocks = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram matchLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWaitLatency = new LatencyHistogram();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder cancels = new LongAdder();
+    private final LongAdder selfTradesPrevented = new LongAdder();
+    private final LongAdder lockTimeouts = new LongAdder();
+    private final LongAdder applyMismatches = new LongAdder();
+    private final LongAdder rebuiltBooks = new LongAdder();
+
+    /**
+     * A limit order that is open in the database, as the books are restored from.
+     */
+    public record OpenOrder(long orderId, long owner, OrderType orderType, double limitPrice, double quantity,
+                            double filledQuantity) {
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new ExecutorService[count];
+        books = newBooks(count);
+        for (int i = 0; i < count; i++) {
+            String name = "matching-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            books[i] = new HashMap<>();
+        }
+        if (journal.isEnabled()) {
+            recover();
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-journal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotJournal, snapshotIntervalMs, snapshotIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<String, OrderBook>[] newBooks(int count) {
+        return new Map[count];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * Locks the coin's book for the current transaction, until it commits or rolls back. Call it
+     * before the transaction writes anything, so that it never waits for a book while holding
+     * row locks that the holder of the book may need.
+     *
+     * @param coinId the coin about to be traded
+     * @throws Exception if another transaction held the book for longer than the lock timeout, or
+     *                   the books are still being restored
+     * @throws IllegalStateException if there is no active transaction
+     */
+    public void lockBook(String coinId) throws Exception {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Order books can only be locked inside a transaction");
+        }
+        long start = System.nanoTime();
+        if (!restored.await(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+            lockTimeouts.increment();
+            throw new Exception("The order books are still being restored, try again later");
+        }
+        ReentrantLock lock = bookLocks.computeIfAbsent(coinId, id -> new ReentrantLock(true));
+        if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+            lockTimeouts.increment();
+            throw new Exception("The order book is busy, try again later");
+        }
+        lockWaitLatency.recordSince(start);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Works out the fills of a limit order against the coin's book. The book itself only changes
+     * once the current transaction commits: the order is then matched for real, with the same
+     * fills, and whatever it did not fill rests in the book. The book must be locked by the
+     * current transaction.
+     *
+     * @param coinId     the coin traded
+     * @param orderId    the id of the persisted order
+     * @param owner      the id of the user placing the order, whose own resting orders it must not trade with
+     * @param orderType  BUY or SELL
+     * @param limitPrice the worst acceptable price
+     * @param quantity   the quantity to trade
+     * @return the fills and the quantity left resting, or cancelled by self-trade prevention
+     */
+    public MatchResult match(String coinId, long orderId, long owner, OrderType orderType, double limitPrice,
+                             double quantity) {
+        requireLock(coinId);
+        long price = toUnits(limitPrice);
+        long units = toUnits(quantity);
+        boolean buy = orderType == OrderType.BUY;
+        MatchResult preview = execute(coinId, book -> {
+            MatchResult previewed = new MatchResult();
+            book.preview(owner, buy, price, units, previewed);
+            return previewed;
+        });
+        afterCommit(() -> apply(coinId, orderId, owner, buy, price, units, preview));
+        return preview;
+    }
+
+    /**
+     * Removes a resting order from the coin's book once the current transaction commits. The
+     * book must be locked by the current transaction.
+     */
+    public void cancel(String coinId, long orderId, OrderType orderType, double limitPrice) {
+        requireLock(coinId);
+        long price = toUnits(limitPrice);
+        boolean buy = orderType == OrderType.BUY;
+        afterCommit(() -> {
+            long sequence = execute(coinId, book -> {
+                long removed = book.cancel(orderId, buy, price);
+                depthFeed.publish(coinId, book);
+                return journal.isEnabled() && removed > 0
+                        ? journal.append(OrderJournal.CANCELLED, coinId, orderId, 0, buy, price, removed) : 0L;
+            });
+            cancels.increment();
+            journal.awaitDurable(sequence);
+        });
+    }
+
+    /**
+     * Makes the books agree with the open limit orders of the database, and lets transactions
+     * lock books from then on. A book that holds exactly the coin's open orders, at the same
+     * sides, prices and remaining quantities, is kept with the priorities it was recovered with;
+     * any other book is rebuilt from the open orders, oldest first. The changes are journalled.
+     *
+     * @param openOrders the open limit orders of every coin, oldest first
+     * @return the number of books rebuilt
+     */
+    public int restore(Map<String, List<OpenOrder>> openOrders) {
+        List<CompletableFuture<long[]>> shardResults = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            shardResults.add(CompletableFuture.supplyAsync(() -> {
+                Set<String> coins = new TreeSet<>(books[shard].keySet());
+                for (String coinId : openOrders.keySet()) {
+                    if (shardOf(coinId) == shard) {
+                        coins.add(coinId);
+                    }
+                }
+                long rebuilt = 0;
+                long sequence = 0;
+                for (String coinId : coins) {
+                    List<OpenOrder> open = openOrders.getOrDefault(coinId, List.of());
+                    OrderBook book = book(coinId);
+                    if (!agrees(book, open)) {
+                        sequence = Math.max(sequence, rebuild(coinId, book, open));
+                        depthFeed.publish(coinId, book);
+                        rebuilt++;
+                    }
+                }
+                return new long[]{rebuilt, sequence};
+            }, shards[shard]));
+        }
+        long rebuilt = 0;
+        long sequence = 0;
+        for (CompletableFuture<long[]> result : shardResults) {
+            long[] shardResult = result.join();
+            rebuilt += shardResult[0];
+            sequence = Math.max(sequence, shardResult[1]);
+        }
+        journal.awaitDurable(sequence);
+        rebuiltBooks.add(rebuilt);
+        restored.countDown();
+        return (int) rebuilt;
+    }
+
+    /**
+     * Writes a snapshot of every book to the order journal, so that recovery replays only the
+     * events after it and older journal segments can be deleted. Runs on its own thread.
+     *
+     * Each shard captures its books together with the journal's last sequence number at that
+     * moment, without waiting for the other shards; every event of a shard's coins up to that
+     * number is in its image, and recovery replays only the later events of those coins.
+     */
+    void snapshotJournal() {
+        if (journal.lastSequence() == journal.snapshotSequence()) {
+            return;
+        }
+        List<CompletableFuture<byte[]>> captures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Map<String, OrderBook> shardBooks = books[i];
+            captures.add(CompletableFuture.supplyAsync(
+                    () -> OrderJournal.image(shardBooks, journal.lastSequence()), shards[i]));
+        }
+        try {
+            List<byte[]> images = new ArrayList<>(captures.size());
+            for (CompletableFuture<byte[]> capture : captures) {
+                images.add(capture.join());
+            }
+            journal.writeSnapshot(images);
+        } catch (CompletionException | IOException e) {
+            System.err.println("Error: order journal snapshot failed: " + e);
+        }
+    }
+
+
+    /**
+     * Runs a task against the coin's book on the coin's shard thread and waits for its result.
+     */
+    public <T> T execute(String coinId, Function<OrderBook, T> task) {
+        int shard = shardOf(coinId);
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> task.apply(book(coinId)), shards[shard])
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of processed orders, fills, cancels and prevented self-trades, the time
+     * spent matching on the shard threads, and how long transactions waited for a book.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("shards", shards.length);
+        metrics.put("orders", orders.sum());
+        metrics.put("fills", fills.sum());
+        metrics.put("cancels", cancels.sum());
+        metrics.put("selfTradesPrevented", selfTradesPrevented.sum());
+        metrics.put("lockTimeouts", lockTimeouts.sum());
+        metrics.put("applyMismatches", applyMismatches.sum());
+        metrics.put("rebuiltBooks", rebuiltBooks.sum());
+        metrics.put("matchLatency", matchLatency.snapshot());
+        metrics.put("lockWaitLatency", lockWaitLatency.snapshot());
+        return metrics;
+    }
+
+    /**
+     * Matches a committed order against its book, for real this time, and journals it.
+     */
+    private void apply(String coinId, long orderId, long owner, boolean buy, long price, long units,
+                       MatchResult preview) {
+        MatchResult result = execute(coinId, book -> {
+            long start = System.nanoTime();
+            MatchResult matched = new MatchResult();
+            book.match(orderId, owner, buy, price, units, matched);
+            matchLatency.recordSince(start);
+            if (journal.isEnabled()) {
+                matched.setJournalSequence(journal(coinId, orderId, owner, buy, price, units, matched));
+            }
+            depthFeed.publish(coinId, book);
+            return matched;
+        });
+        orders.increment();
+        fills.add(result.getFillCount());
+        if (result.isSelfTradePrevented()) {
+            selfTradesPrevented.increment();
+        }
+        if (!result.sameAs(preview)) {
+            applyMismatches.increment();
+            System.err.println("Error: order " + orderId + " on " + coinId
+                    + " matched differently after commit than it was settled");
+        }
+        journal.awaitDurable(result.getJournalSequence());
+    }
+
+    /**
+     * Runs the task once the current transaction has committed. The transaction has already
+     * succeeded by then, so a failure is only reported.
+     */
+    private void afterCommit(Runnable task) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error: order book update after commit failed: " + e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns whether the book holds exactly the given open orders.
+     */
+    private static boolean agrees(OrderBook book, List<OpenOrder> open) {
+        if (book.orderCount() != open.size()) {
+            return false;
+        }
+        Map<Long, OpenOrder> byId = new HashMap<>();
+        for (OpenOrder order : open) {
+            byId.put(order.orderId(), order);
+        }
+        boolean[] agrees = {true};
+        book.forEachOrder((orderId, owner, buy, price, quantity) -> {
+            OpenOrder order = byId.get(orderId);
+            if (order == null || order.owner() != owner || (order.orderType() == OrderType.BUY) != buy
+                    || toUnits(order.limitPrice()) != price || remainingUnits(order) != quantity) {
+                agrees[0] = false;
+            }
+        });
+        return agrees[0];
+    }
+
+    /**
+     * Replaces the orders of a book with the given open orders, and returns the last sequence
+     * number journalled.
+     */
+    private long rebuild(String coinId, OrderBook book, List<OpenOrder> open) {
+        List<long[]> stale = new ArrayList<>();
+        book.forEachOrder((orderId, owner, buy, price, quantity) -> stale.add(new long[]{orderId, buy ? 1 : 0, price}));
+        long sequence = 0;
+        for (long[] order : stale) {
+            boolean buy = order[1] == 1;
+            long removed = book.cancel(order[0], buy, order[2]);
+            if (journal.isEnabled()) {
+                sequence = journal.append(OrderJournal.CANCELLED, coinId, order[0], 0, buy, order[2], removed);
+            }
+        }
+        for (OpenOrder order : open) {
+            boolean buy = order.orderType() == OrderType.BUY;
+            long price = toUnits(order.limitPrice());
+            long units = remainingUnits(order);
+            book.rest(order.orderId(), order.owner(), buy, price, units);
+            if (journal.isEnabled()) {
+                sequence = journal.append(OrderJournal.RESTED, coinId, order.orderId(), order.owner(), buy, price, units);
+            }
+        }
+        return sequence;
+    }
+
+    private static long remainingUnits(OpenOrder order) {
+        return toUnits(order.quantity()) - toUnits(order.filledQuantity());
+    }
+
+    private void requireLock(String coinId) {
+        ReentrantLock lock = bookLocks.get(coinId);
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The order book of " + coinId + " is not locked by this transaction");
+        }
+    }
+
+    /**
+     * Journals an accepted order followed by one event per fill, and returns the last sequence number.
+     */
+    private long journal(String coinId, long orderId, long owner, boolean buy, long price, long units,
+                         MatchResult result) {
+        long sequence = journal.append(OrderJournal.ACCEPTED, coinId, orderId, owner, buy, price, units);
+        for (int i = 0; i < result.getFillCount(); i++) {
+            sequence = journal.append(OrderJournal.FILLED, coinId, orderId, result.getMakerOrderId(i), buy,
+                    result.priceUnits(i), result.quantityUnits(i));
+        }
+        return sequence;
+    }
+
+    /**
+     * Rebuilds the books from the order journal before any shard runs, and publishes their depth.
+     * If the journal had nothing to recover, the books are left empty for the database restore.
+     */
+    private void recover() throws IOException {
+        MatchResult scratch = new MatchResult();
+        boolean recovered = journal.recover(new OrderJournal.Replayer() {
+            @Override
+            public void rest(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+                book(coinId).rest(orderId, owner, buy, price, quantity);
+            }
+
+            @Override
+            public void accept(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+                scratch.clear();
+                book(coinId).match(orderId, owner, buy, price, quantity, scratch);
+            }
+
+            @Override
+            public void cancel(String coinId, long orderId, boolean buy, long price) {
+                book(coinId).cancel(orderId, buy, price);
+            }
+        });
+        for (Map<String, OrderBook> shardBooks : books) {
+            if (!recovered) {
+                shardBooks.clear();
+            }
+            shardBooks.forEach(depthFeed::publish);
+        }
+    }
+
+    private OrderBook book(String coinId) {
+        return books[shardOf(coinId)].computeIfAbsent(coinId, id -> new OrderBook());
+    }
+
+    private int shardOf(String coinId) {
+        return Math.floorMod(coinId.hashCode(), shards.length);
+    }
+
+    public static long toUnits(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static double fromUnits(long units) {
+        return (double) units / SCALE;
+    }
+}
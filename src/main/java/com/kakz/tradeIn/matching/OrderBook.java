@@ -0,0 +1,382 @@
+package com.kakz.tradeIn.matching;
+
+import java.util.Arrays;
+
+/**
+ * Price-time priority limit order book for one coin.
+ *
+ * Prices and quantities are fixed-point longs (see {@link MatchingEngine#SCALE}). Resting orders
+ * live in a pool of parallel primitive arrays and are chained per price level through
+ * {@code next}, so adding, matching and releasing an order allocates nothing. Each side keeps its
+ * price levels in a sorted array with the best level last, which makes taking liquidity from the
+ * top of the book O(1). Every price level whose quantity changed is recorded until
+ * {@link #clearChanges()}, so that depth subscribers can be sent just those levels.
+ *
+ * Every resting order also records its owner. An incoming order never trades with a resting
+ * order of the same owner: matching stops there, and whatever the incoming order has not filled
+ * by then is cancelled instead of resting (self-trade prevention, cancelling the newest order).
+ *
+ * Not thread-safe: a book is only ever touched by the single thread of its shard.
+ */
+public final class OrderBook {
+
+    /**
+     * Receives the resting orders of a book, see {@link #forEachOrder(OrderVisitor)}.
+     */
+    @FunctionalInterface
+    public interface OrderVisitor {
+        void visit(long orderId, long owner, boolean buy, long price, long quantity);
+    }
+
+    private static final int NONE = -1;
+
+    private final Side bids = new Side(true);
+    private final Side asks = new Side(false);
+
+    private long[] orderIds = new long[64];
+    private long[] owners = new long[64];
+    private long[] remaining = new long[64];
+    private int[] next = new int[64];
+    private int freeHead = NONE;
+    private int allocated;
+
+    private long[] changedPrices = new long[16];
+    private boolean[] changedBuy = new boolean[16];
+    private int changeCount;
+
+    /**
+     * Matches an incoming order against the opposite side and rests whatever is left, unless
+     * matching stopped at a resting order of the same owner.
+     *
+     * @param orderId  the id of the incoming order
+     * @param owner    the user placing the incoming order
+     * @param buy      whether the incoming order buys
+     * @param price    the limit price in fixed-point units
+     * @param quantity the quantity in fixed-point units
+     * @param result   receives one fill per resting order touched, and the remaining quantity
+     */
+    public void match(long orderId, long owner, boolean buy, long price, long quantity, MatchResult result) {
+        Side opposite = buy ? asks : bids;
+        long left = quantity;
+        boolean selfTrade = false;
+        while (left > 0 && opposite.size > 0 && !selfTrade) {
+            int level = opposite.size - 1;
+            long levelPrice = opposite.price(level);
+            if (buy ? levelPrice > price : levelPrice < price) {
+                break;
+            }
+            int slot = opposite.heads[level];
+            recordChange(!buy, levelPrice);
+            while (left > 0 && slot != NONE) {
+                if (owners[slot] == owner) {
+                    selfTrade = true;
+                    break;
+                }
+                long fill = Math.min(left, remaining[slot]);
+                result.addFill(orderIds[slot], levelPrice, fill);
+                remaining[slot] -= fill;
+                opposite.quantities[level] -= fill;
+                left -= fill;
+                if (remaining[slot] == 0) {
+                    int following = next[slot];
+                    release(slot);
+                    opposite.orderCounts[level]--;
+                    slot = following;
+                }
+            }
+            opposite.heads[level] = slot;
+            if (slot == NONE) {
+                opposite.removeBest();
+            }
+        }
+        if (left > 0 && !selfTrade) {
+            rest(orderId, owner, buy, price, left);
+        }
+        result.setRemaining(left);
+        result.setSelfTradePrevented(selfTrade);
+    }
+
+    /**
+     * Works out what {@link #match} would do for an incoming order without changing the book.
+     * As long as the book is not changed in between, matching the same order afterwards
+     * produces exactly these fills.
+     */
+    public void preview(long owner, boolean buy, long price, long quantity, MatchResult result) {
+        Side opposite = buy ? asks : bids;
+        long left = quantity;
+        boolean selfTrade = false;
+        for (int level = opposite.size - 1; left > 0 && level >= 0 && !selfTrade; level--) {
+            long levelPrice = opposite.price(level);
+            if (buy ? levelPrice > price : levelPrice < price) {
+                break;
+            }
+            for (int slot = opposite.heads[level]; left > 0 && slot != NONE; slot = next[slot]) {
+                if (owners[slot] == owner) {
+                    selfTrade = true;
+                    break;
+                }
+                long fill = Math.min(left, remaining[slot]);
+                result.addFill(orderIds[slot], levelPrice, fill);
+                left -= fill;
+            }
+        }
+        result.setRemaining(left);
+        result.setSelfTradePrevented(selfTrade);
+    }
+
+    /**
+     * Adds an order to the book without matching it, at the back of its price level.
+     */
+    public void rest(long orderId, long owner, boolean buy, long price, long quantity) {
+        Side side = buy ? bids : asks;
+        int level = side.levelFor(price);
+        int slot = allocate();
+        orderIds[slot] = orderId;
+        owners[slot] = owner;
+        remaining[slot] = quantity;
+        next[slot] = NONE;
+        if (side.heads[level] == NONE) {
+            side.heads[level] = slot;
+        } else {
+            next[side.tails[level]] = slot;
+        }
+        side.tails[level] = slot;
+        side.quantities[level] += quantity;
+        side.orderCounts[level]++;
+        recordChange(buy, price);
+    }
+
+    /**
+     * Removes a resting order from the book.
+     *
+     * @param orderId the id of the order
+     * @param buy     whether the order buys
+     * @param price   the order's limit price in fixed-point units
+     * @return the quantity the order still had in the book, or 0 if it was not resting there
+     */
+    public long cancel(long orderId, boolean buy, long price) {
+        Side side = buy ? bids : asks;
+        int level = side.find(price);
+        if (level < 0) {
+            return 0;
+        }
+        int previous = NONE;
+        int slot = side.heads[level];
+        while (slot != NONE && orderIds[slot] != orderId) {
+            previous = slot;
+            slot = next[slot];
+        }
+        if (slot == NONE) {
+            return 0;
+        }
+        long quantity = remaining[slot];
+        if (previous == NONE) {
+            side.heads[level] = next[slot];
+        } else {
+            next[previous] = next[slot];
+        }
+        if (side.tails[level] == slot) {
+            side.tails[level] = previous;
+        }
+        side.quantities[level] -= quantity;
+        side.orderCounts[level]--;
+        release(slot);
+        if (side.heads[level] == NONE) {
+            side.remove(level);
+        }
+        recordChange(buy, price);
+        return quantity;
+    }
+
+    /**
+     * Returns the number of price levels on one side.
+     */
+    public int levelCount(boolean buy) {
+        return (buy ? bids : asks).size;
+    }
+
+    /**
+     * Returns the price of a level, where level 0 is the best price.
+     */
+    public long levelPrice(boolean buy, int level) {
+        Side side = buy ? bids : asks;
+        return side.price(side.size - 1 - level);
+    }
+
+    /**
+     * Returns the total resting quantity of a level, where level 0 is the best price.
+     */
+    public long levelQuantity(boolean buy, int level) {
+        Side side = buy ? bids : asks;
+        return side.quantities[side.size - 1 - level];
+    }
+
+    /**
+     * Returns the resting quantity at the given price, or 0 if there is no such level.
+     */
+    public long quantityAt(boolean buy, long price) {
+        Side side = buy ? bids : asks;
+        int index = side.find(price);
+        return index < 0 ? 0 : side.quantities[index];
+    }
+
+    /**
+     * Returns the number of resting orders on both sides.
+     */
+    public int orderCount() {
+        return bids.orderCount() + asks.orderCount();
+    }
+
+    /**
+     * Passes every resting order to the visitor, bids before asks, best price first and oldest
+     * first within a price level, so that resting them again in this order rebuilds the book
+     * with the same priorities.
+     */
+    public void forEachOrder(OrderVisitor visitor) {
+        for (Side side : new Side[]{bids, asks}) {
+            for (int level = side.size - 1; level >= 0; level--) {
+                long price = side.price(level);
+                for (int slot = side.heads[level]; slot != NONE; slot = next[slot]) {
+                    visitor.visit(orderIds[slot], owners[slot], side.bid, price, remaining[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of price levels changed since the last {@link #clearChanges()}.
+     */
+    public int changeCount() {
+        return changeCount;
+    }
+
+    public long changedPrice(int change) {
+        return changedPrices[change];
+    }
+
+    public boolean changedBuy(int change) {
+        return changedBuy[change];
+    }
+
+    public void clearChanges() {
+        changeCount = 0;
+    }
+
+    private void recordChange(boolean buy, long price) {
+        for (int i = 0; i < changeCount; i++) {
+            if (changedPrices[i] == price && changedBuy[i] == buy) {
+                return;
+            }
+        }
+        if (changeCount == changedPrices.length) {
+            changedPrices = Arrays.copyOf(changedPrices, changeCount * 2);
+            changedBuy = Arrays.copyOf(changedBuy, changeCount * 2);
+        }
+        changedPrices[changeCount] = price;
+        changedBuy[changeCount] = buy;
+        changeCount++;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (allocated == orderIds.length) {
+            int capacity = allocated * 2;
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            remaining = Arrays.copyOf(remaining, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int slot) {
+        next[slot] = freeHead;
+        freeHead = slot;
+    }
+
+    /**
+     * Price levels of one side, sorted so that the best level is at {@code size - 1}.
+     *
+     * Levels are ordered by a key that is the price for bids and the negated price for asks, so
+     * both sides are ascending by key and share the same binary search.
+     */
+    private static final class Side {
+        private final boolean bid;
+        private long[] keys = new long[16];
+        private int[] heads = new int[16];
+        private int[] tails = new int[16];
+        private long[] quantities = new long[16];
+        private int[] orderCounts = new int[16];
+        private int size;
+
+        private Side(boolean bid) {
+            this.bid = bid;
+        }
+
+        long price(int index) {
+            return bid ? keys[index] : -keys[index];
+        }
+
+        int find(long price) {
+            return Arrays.binarySearch(keys, 0, size, bid ? price : -price);
+        }
+
+        /**
+         * Returns the index of the level for the price, inserting an empty level if needed.
+         */
+        int levelFor(long price) {
+            int index = find(price);
+            if (index >= 0) {
+                return index;
+            }
+            index = -index - 1;
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                heads = Arrays.copyOf(heads, capacity);
+                tails = Arrays.copyOf(tails, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                orderCounts = Arrays.copyOf(orderCounts, capacity);
+            }
+            int moved = size - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(heads, index, heads, index + 1, moved);
+            System.arraycopy(tails, index, tails, index + 1, moved);
+            System.arraycopy(quantities, index, quantities, index + 1, moved);
+            System.arraycopy(orderCounts, index, orderCounts, index + 1, moved);
+            keys[index] = bid ? price : -price;
+            heads[index] = NONE;
+            tails[index] = NONE;
+            quantities[index] = 0;
+            orderCounts[index] = 0;
+            size++;
+            return index;
+        }
+
+        void removeBest() {
+            size--;
+        }
+
+        void remove(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(heads, index + 1, heads, index, moved);
+            System.arraycopy(tails, index + 1, tails, index, moved);
+            System.arraycopy(quantities, index + 1, quantities, index, moved);
+            System.arraycopy(orderCounts, index + 1, orderCounts, index, moved);
+            size--;
+        }
+
+        int orderCount() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                count += orderCounts[i];
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.kakz.tradeIn.matching;
+
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the committed events that change the limit order books, used
+ * to rebuild the books on restart with their exact time priorities. Only events of committed
+ * orders are journalled, and the rebuilt books are still checked against the open orders of the
+ * database (see {@link MatchingEngine#restore(Map)}), which covers a crash between a commit and
+ * its journal append.
+ *
+ * Events are written into memory-mapped segment files of a fixed size; when a segment is full
+ * the journal rolls over to a new one named after its first sequence number. Every record is
+ * length-prefixed and carries a CRC32 of its body, so a record torn by a crash ends the segment
+ * instead of being replayed. Appending only copies bytes into the mapping. A single flusher
+ * thread forces the mapping to disk, and every caller waiting for durability at that moment is
+ * released by the same force, so many orders share one disk flush (group commit).
+ *
+ * A snapshot of all books is written periodically, and the segments holding only older events
+ * are deleted. Each shard's books are captured with the last sequence number at that moment, so
+ * the shards never wait for each other; recovery loads the latest snapshot and replays, for every
+ * coin, the events after the sequence its books were captured at. Replaying an accepted order
+ * runs it through the book again, which reproduces its fills exactly, so fill events are kept
+ * only as a record of what happened.
+ * Accepted and rested orders carry the id of the user who placed them, so that the restored
+ * books keep preventing self-trades.
+ */
+@Component
+public class OrderJournal {
+
+    /**
+     * An order was matched against the book; whatever it did not fill rested.
+     */
+    public static final byte ACCEPTED = 1;
+
+    /**
+     * An accepted order traded with a resting order.
+     */
+    public static final byte FILLED = 2;
+
+    /**
+     * An order was put into the book without matching, when the books were restored from the database.
+     */
+    public static final byte RESTED = 3;
+
+    /**
+     * A resting order was cancelled and taken out of the book.
+     */
+    public static final byte CANCELLED = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x4F4A534E;
+    private static final int SNAPSHOT_VERSION = 3;
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_BODY_BYTES = 1 + 8 + 8 + 8 + 1 + 8 + 8 + 2;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * Receives the state read back from the journal during recovery.
+     */
+    interface Replayer {
+        /**
+         * Puts an order into its book without matching it.
+         */
+        void rest(String coinId, long orderId, long owner, boolean buy, long price, long quantity);
+
+        /**
+         * Matches an order against its book, as it was when the order was first accepted.
+         */
+        void accept(String coinId, long orderId, long owner, boolean buy, long price, long quantity);
+
+        /**
+         * Takes a resting order out of its book.
+         */
+        void cancel(String coinId, long orderId, boolean buy, long price);
+    }
+
+    @Value("${matching.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${matching.journal.directory:journal}")
+    private String directory;
+
+    /**
+     * Size of each memory-mapped segment file.
+     */
+    @Value("${matching.journal.segment-size:67108864}")
+    private int segmentSize;
+
+    /**
+     * Whether a request waits, after its transaction commits, for its events to be forced to disk
+     * before it returns.
+     */
+    @Value("${matching.journal.sync:true}")
+    private boolean sync;
+
+    /**
+     * Longest time appended events stay unforced when nobody is waiting for them.
+     */
+    @Value("${matching.journal.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    private Path root;
+    private MappedByteBuffer segment;
+    private final CRC32 crc = new CRC32();
+
+    private long nextSequence = 1;
+    private volatile long appended;
+    private volatile long durable;
+    private volatile long snapshotSequence;
+    private final Object flushLock = new Object();
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder segmentsRolled = new LongAdder();
+    private final LongAdder segmentsCompacted = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedEvents = new LongAdder();
+    private final LatencyHistogram appendLatency = new LatencyHistogram();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final LatencyHistogram durableWaitLatency = new LatencyHistogram();
+    private final LatencyHistogram snapshotDuration = new LatencyHistogram();
+    private volatile long lastSnapshotAt;
+    private volatile long lastSnapshotOrders;
+    private volatile long replayedEvents;
+    private volatile long replayNanos;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        root = Path.of(directory);
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Stops the flusher and forces whatever was appended last.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the sequence number of the last appended event, or 0 if none was appended.
+     */
+    public long lastSequence() {
+        return appended;
+    }
+
+    /**
+     * Returns the sequence number covered by the latest snapshot, or 0 if there is none.
+     */
+    public long snapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Loads the latest snapshot and replays every event after it, then opens the journal for
+     * appending after the last event read. If the journal is unreadable or has a gap it is
+     * cleared, and the caller must rebuild the books from the database.
+     *
+     * @return whether any state was recovered; false for an empty or cleared journal
+     */
+    boolean recover(Replayer replayer) throws IOException {
+        long start = System.nanoTime();
+        long last = 0;
+        long replayed = 0;
+        boolean recovered;
+        try {
+            Path snapshot = latest(SNAPSHOT_SUFFIX);
+            Map<String, Long> captured = new HashMap<>();
+            if (snapshot != null) {
+                last = loadSnapshot(snapshot, captured, replayer);
+                snapshotSequence = last;
+            }
+            for (Path path : files(SEGMENT_SUFFIX)) {
+                long[] result = replaySegment(path, last, captured, replayer);
+                replayed += result[1];
+                last = result[0];
+            }
+            recovered = last > 0;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: order journal is unreadable, rebuilding from the database: " + e);
+            for (Path path : files(null)) {
+                Files.delete(path);
+            }
+            last = 0;
+            snapshotSequence = 0;
+            recovered = false;
+        }
+        replayedEvents = replayed;
+        replayNanos = System.nanoTime() - start;
+
+        nextSequence = last + 1;
+        appended = last;
+        durable = last;
+        openSegment(nextSequence);
+        running = true;
+        flusher = new Thread(this::flushLoop, "order-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        return recovered;
+    }
+
+    /**
+     * Appends one event and returns its sequence number. The event is in the page cache once
+     * this returns; call {@link #awaitDurable(long)} to wait until it is on disk.
+     *
+     * @param otherOrderId the resting order traded with for a fill, the owner of the order otherwise
+     */
+    public synchronized long append(byte type, String coinId, long orderId, long otherOrderId, boolean buy,
+                                    long price, long quantity) {
+        long start = System.nanoTime();
+        byte[] coin = coinId.getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_BODY_BYTES + coin.length;
+        int position = segment.position();
+        if (position + HEADER_BYTES + length > segment.capacity()) {
+            segment.force();
+            openSegment(nextSequence);
+            segmentsRolled.increment();
+            position = 0;
+        }
+        long sequence = nextSequence++;
+        int body = position + HEADER_BYTES;
+        segment.put(body, type);
+        segment.putLong(body + 1, sequence);
+        segment.putLong(body + 9, orderId);
+        segment.putLong(body + 17, otherOrderId);
+        segment.put(body + 25, (byte) (buy ? 1 : 0));
+        segment.putLong(body + 26, price);
+        segment.putLong(body + 34, quantity);
+        segment.putShort(body + 42, (short) coin.length);
+        segment.put(body + 44, coin);
+        crc.reset();
+        crc.update(segment.slice(body, length));
+        segment.putInt(position + 4, (int) crc.getValue());
+        // the length is written last, so a reader never sees a record that is not complete
+        segment.putInt(position, length);
+        segment.position(body + length);
+
+        appended = sequence;
+        events.increment();
+        bytes.add(HEADER_BYTES + length);
+        appendLatency.recordSince(start);
+        return sequence;
+    }
+
+    /**
+     * Waits until the event with the given sequence number has been forced to disk, unless
+     * the journal is configured not to wait.
+     */
+    public void awaitDurable(long sequence) {
+        if (!sync || durable >= sequence) {
+            return;
+        }
+        long start = System.nanoTime();
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+            while (durable < sequence && running) {
+                try {
+                    flushLock.wait(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        durableWaitLatency.recordSince(start);
+    }
+
+    /**
+     * Writes a snapshot of the books and deletes the segments it makes unnecessary, those whose
+     * events are all older than the oldest image.
+     *
+     * @param images the books of every shard, as produced by {@link #image(Map, long)}
+     */
+    void writeSnapshot(List<byte[]> images) throws IOException {
+        long start = System.nanoTime();
+        long sequence = Long.MAX_VALUE;
+        for (byte[] image : images) {
+            sequence = Math.min(sequence, ByteBuffer.wrap(image).getLong(12));
+        }
+        Path target = root.resolve(name(sequence, SNAPSHOT_SUFFIX));
+        Path temporary = root.resolve(target.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream headerOut = new DataOutputStream(header);
+            headerOut.writeInt(SNAPSHOT_MAGIC);
+            headerOut.writeInt(SNAPSHOT_VERSION);
+            headerOut.writeLong(sequence);
+            headerOut.writeInt(images.size());
+            checksum.update(header.toByteArray());
+            out.write(header.toByteArray());
+            for (byte[] image : images) {
+                out.writeInt(image.length);
+                out.write(image);
+                checksum.update(ByteBuffer.allocate(4).putInt(0, image.length));
+                checksum.update(image);
+            }
+            out.writeLong(checksum.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSequence = sequence;
+
+        long orders = 0;
+        for (byte[] image : images) {
+            orders += ByteBuffer.wrap(image).getLong(4);
+        }
+        lastSnapshotOrders = orders;
+        lastSnapshotAt = System.currentTimeMillis();
+        snapshotDuration.recordSince(start);
+        compact(target, sequence);
+    }
+
+    /**
+     * Serialises the books of one shard for a snapshot: the book count, the order count and the
+     * last sequence number reflected in the books, then every book's resting orders in priority
+     * order.
+     */
+    static byte[] image(Map<String, OrderBook> books, long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        long[] orders = new long[1];
+        try {
+            out.writeInt(books.size());
+            out.writeLong(0);
+            out.writeLong(sequence);
+            for (Map.Entry<String, OrderBook> entry : books.entrySet()) {
+                OrderBook book = entry.getValue();
+                byte[] coin = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(coin.length);
+                out.write(coin);
+                out.writeInt(book.orderCount());
+                book.forEachOrder((orderId, owner, buy, price, quantity) -> {
+                    try {
+                        out.writeLong(orderId);
+                        out.writeLong(owner);
+                        out.writeBoolean(buy);
+                        out.writeLong(price);
+                        out.writeLong(quantity);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    orders[0]++;
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer image = ByteBuffer.wrap(bytes.toByteArray());
+        image.putLong(4, orders[0]);
+        return image.array();
+    }
+
+    /**
+     * Returns event and byte counts, group commit sizes, append and flush latency, and the time
+     * the last recovery took per million events replayed.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long flushCount = flushes.sum();
+        long replayed = replayedEvents;
+        metrics.put("enabled", enabled);
+        metrics.put("sync", sync);
+        metrics.put("lastSequence", appended);
+        metrics.put("durableSequence", durable);
+        metrics.put("events", events.sum());
+        metrics.put("bytes", bytes.sum());
+        metrics.put("segmentsRolled", segmentsRolled.sum());
+        metrics.put("segmentsCompacted", segmentsCompacted.sum());
+        metrics.put("flushes", flushCount);
+        metrics.put("averageEventsPerFlush", flushCount == 0 ? 0 : (double) flushedEvents.sum() / flushCount);
+        metrics.put("appendLatency", appendLatency.snapshot());
+        metrics.put("flushLatency", flushLatency.snapshot());
+        metrics.put("durableWaitLatency", durableWaitLatency.snapshot());
+        metrics.put("snapshotSequence", snapshotSequence);
+        metrics.put("lastSnapshotAt", lastSnapshotAt == 0 ? null : new Date(lastSnapshotAt));
+        metrics.put("lastSnapshotOrders", lastSnapshotOrders);
+        metrics.put("snapshotDuration", snapshotDuration.snapshot());
+        metrics.put("replayedEvents", replayed);
+        metrics.put("replayMillis", replayNanos / 1_000_000.0);
+        metrics.put("replayMillisPerMillionEvents",
+                replayed == 0 ? 0 : replayNanos / 1_000_000.0 * 1_000_000 / replayed);
+        return metrics;
+    }
+
+    private void flushLoop() {
+        while (running || durable < appended) {
+            synchronized (flushLock) {
+                if (durable == appended && running) {
+                    try {
+                        flushLock.wait(flushIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            long target = appended;
+            if (target == durable) {
+                continue;
+            }
+            // a segment is forced before the journal rolls past it, so forcing the current one is enough
+            MappedByteBuffer current;
+            synchronized (this) {
+                current = segment;
+            }
+            long start = System.nanoTime();
+            current.force();
+            flushLatency.recordSince(start);
+            flushes.increment();
+            flushedEvents.add(target - durable);
+            synchronized (flushLock) {
+                durable = target;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void openSegment(long firstSequence) {
+        Path path = root.resolve(name(firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replays the events of one segment that come after the given sequence number, except those
+     * of coins whose snapshot image already reflects them.
+     *
+     * @return the sequence number of the last event read and the number of events replayed
+     * @throws IOException if an event is missing between the given sequence number and the segment's events
+     */
+    private long[] replaySegment(Path path, long after, Map<String, Long> captured, Replayer replayer)
+            throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 checksum = new CRC32();
+        long last = after;
+        long replayed = 0;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            int body = position + HEADER_BYTES;
+            if (length < FIXED_BODY_BYTES || body + length > buffer.limit()) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(buffer.slice(body, length));
+            if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position = body + length;
+            long sequence = buffer.getLong(body + 1);
+            if (sequence <= last) {
+                continue;
+            }
+            if (sequence != last + 1) {
+                throw new IOException("Missing journal events " + (last + 1) + " to " + (sequence - 1));
+            }
+            last = sequence;
+            replayed++;
+            byte type = buffer.get(body);
+            if (type == FILLED) {
+                continue;
+            }
+            byte[] coin = new byte[buffer.getShort(body + 42)];
+            buffer.get(body + 44, coin);
+            String coinId = new String(coin, StandardCharsets.UTF_8);
+            if (sequence <= captured.getOrDefault(coinId, 0L)) {
+                continue;
+            }
+            long orderId = buffer.getLong(body + 9);
+            long owner = buffer.getLong(body + 17);
+            boolean buy = buffer.get(body + 25) == 1;
+            long price = buffer.getLong(body + 26);
+            long quantity = buffer.getLong(body + 34);
+            if (type == ACCEPTED) {
+                replayer.accept(coinId, orderId, owner, buy, price, quantity);
+            } else if (type == RESTED) {
+                replayer.rest(coinId, orderId, owner, buy, price, quantity);
+            } else if (type == CANCELLED) {
+                replayer.cancel(coinId, orderId, buy, price);
+            } else {
+                throw new IOException("Unknown journal event type " + type + " at sequence " + sequence);
+            }
+        }
+        return new long[]{last, replayed};
+    }
+
+    /**
+     * Restores the books of a snapshot and returns the sequence number it covers for every coin.
+     *
+     * @param captured receives, for every coin in the snapshot, the sequence its book was captured at
+     */
+    private long loadSnapshot(Path path, Map<String, Long> captured, Replayer replayer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(0, buffer.limit() - 8));
+        if (checksum.getValue() != buffer.getLong(buffer.limit() - 8)) {
+            throw new IOException("Corrupt journal snapshot " + path);
+        }
+        if (buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Unsupported journal snapshot " + path);
+        }
+        if (buffer.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported journal snapshot " + path);
+        }
+        long sequence = buffer.getLong();
+        int images = buffer.getInt();
+        for (int i = 0; i < images; i++) {
+            buffer.getInt();
+            int books = buffer.getInt();
+            buffer.getLong();
+            long imageSequence = buffer.getLong();
+            for (int b = 0; b < books; b++) {
+                byte[] coin = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(coin);
+                String coinId = new String(coin, StandardCharsets.UTF_8);
+                captured.put(coinId, imageSequence);
+                int orders = buffer.getInt();
+                for (int o = 0; o < orders; o++) {
+                    long orderId = buffer.getLong();
+                    long owner = buffer.getLong();
+                    boolean buy = buffer.get() != 0;
+                    long price = buffer.getLong();
+                    long quantity = buffer.getLong();
+                    replayer.rest(coinId, orderId, owner, buy, price, quantity);
+                }
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Deletes older snapshots and every segment whose events are all covered by the given snapshot.
+     */
+    private void compact(Path snapshot, long sequence) throws IOException {
+        for (Path path : files(SNAPSHOT_SUFFIX)) {
+            if (!path.equals(snapshot)) {
+                Files.delete(path);
+            }
+        }
+        List<Path> segments = files(SEGMENT_SUFFIX);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequence(segments.get(i + 1)) - 1 > sequence) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            segmentsCompacted.increment();
+        }
+    }
+
+    private Path latest(String suffix) throws IOException {
+        List<Path> paths = files(suffix);
+        return paths.isEmpty() ? null : paths.get(paths.size() - 1);
+    }
+
+    /**
+     * Lists the journal files with the given suffix, or all of them, oldest first.
+     */
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(root)) {
+            return new ArrayList<>(paths
+                    .filter(path -> suffix == null || path.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static String name(long sequence, String suffix) {
+        return String.format("%020d%s", sequence, suffix);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
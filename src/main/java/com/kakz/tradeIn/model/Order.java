@@ -16,13 +16,24 @@ import java.time.LocalDateTime;
  * the type and status of the order, the price at which the order
  * was placed, and the timestamp when the order was created.
  * Each order can be associated with one order item.
+ *
+ * Limit orders carry a limit price and rest in the coin's order book until they are filled;
+ * market orders have no limit price and are filled immediately at the current coin price.
+ *
+ * An order may carry the id its client gave it; that id is unique per user, so a retried
+ * submission can never create a second order. Order history is read newest first per user
+ * through the (user_id, timestamp, id) index.
  */
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_orders_user_client_order_id", columnNames = {"user_id", "client_order_id"}),
+        indexes = @Index(name = "idx_orders_user_timestamp_id", columnList = "user_id, timestamp, id"))
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 100)
     private Long id;
 
     @ManyToOne
@@ -33,6 +44,9 @@ public class Order {
     private OrderStatus status;
     @Column(nullable = false)
     private BigDecimal price;
+    private BigDecimal limitPrice;
+    @Column(length = 64)
+    private String clientOrderId;
     private LocalDateTime timestamp = LocalDateTime.now();
     @OneToOne(mappedBy = "order",cascade = CascadeType.ALL)
     private OrderItem orderItem;
@@ -8,10 +8,12 @@ import lombok.Data;
 @Data
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 100)
     private Long id;
 
     private double quantity;
+    private double filledQuantity;
 
     @ManyToOne
     private Coin coin;
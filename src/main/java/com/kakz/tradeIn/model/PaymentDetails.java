@@ -8,7 +8,8 @@ import lombok.Data;
 @Data
 public class PaymentDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_details_seq")
+    @SequenceGenerator(name = "payment_details_seq", sequenceName = "payment_details_seq", allocationSize = 50)
     private Long id;
     private String accountNumber;
 
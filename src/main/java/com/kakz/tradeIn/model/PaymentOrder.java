@@ -9,7 +9,8 @@ import lombok.Data;
 @Data
 public class PaymentOrder {
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_order_seq")
+    @SequenceGenerator(name = "payment_order_seq", sequenceName = "payment_order_seq", allocationSize = 50)
     private long id;
 
     private Long amount;
@@ -0,0 +1,59 @@
+package com.kakz.tradeIn.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.TriggerType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A stop-loss or take-profit order: a market BUY or SELL that is placed once the coin's price
+ * crosses the trigger price.
+ *
+ * A stop-loss sell and a take-profit buy fire when the price falls to the trigger price or below;
+ * a take-profit sell and a stop-loss buy fire when it rises to the trigger price or above. The
+ * trigger stays PENDING until then, and afterwards records the market order it placed (SUCCESS)
+ * or why placing it failed (ERROR).
+ */
+@Entity
+@Data
+@Table(name = "trigger_orders", indexes = {
+        @Index(name = "idx_trigger_orders_user", columnList = "user_id"),
+        @Index(name = "idx_trigger_orders_status", columnList = "status")})
+public class TriggerOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trigger_order_seq")
+    @SequenceGenerator(name = "trigger_order_seq", sequenceName = "trigger_order_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne
+    private User user;
+    @Column(nullable = false)
+    private String coinId;
+    @Column(nullable = false)
+    private OrderType orderType;
+    @Column(nullable = false)
+    private TriggerType triggerType;
+    @Column(nullable = false)
+    private BigDecimal triggerPrice;
+    private double quantity;
+    @Column(nullable = false)
+    private OrderStatus status;
+    private Long orderId;
+    private String error;
+    private LocalDateTime timestamp = LocalDateTime.now();
+    private LocalDateTime firedAt;
+
+    /**
+     * Returns whether this trigger fires on a falling price rather than a rising one.
+     */
+    @JsonIgnore
+    public boolean firesOnFall() {
+        return (triggerType == TriggerType.STOP_LOSS) == (orderType == OrderType.SELL);
+    }
+}
@@ -8,7 +8,8 @@ import lombok.Data;
 @Data
 public class VerificationCode {
     @Id
-    @GeneratedValue(strategy =  GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "verification_code_seq")
+    @SequenceGenerator(name = "verification_code_seq", sequenceName = "verification_code_seq", allocationSize = 50)
     private Long id;
 
     private String otp;
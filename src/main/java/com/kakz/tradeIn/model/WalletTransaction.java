@@ -1,28 +1,44 @@
 package com.kakz.tradeIn.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kakz.tradeIn.domain.LedgerAccount;
 import com.kakz.tradeIn.domain.WalletTransactionType;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
- * Represents a transaction within a wallet.
+ * One posting of the append-only, double-entry wallet ledger.
  *
- * This entity tracks the details of a transaction, including the type of transaction,
- * the associated wallet, the date of the transaction, and metadata such as the purpose
- * and transfer identifier.
+ * Every change to a wallet balance is recorded as a ledger entry of two postings that share a
+ * transfer id: one to the wallet and one to the account on the other side, either another wallet
+ * or a platform account such as {@link LedgerAccount#BANK}. The debits and credits of an entry
+ * always add up to the same amount. A credit to a wallet posting raises the wallet balance and a
+ * debit lowers it; postings are never updated or deleted.
  */
 @Entity
 @Data
+@Table(indexes = @Index(name = "idx_wallet_transaction_wallet_id", columnList = "wallet_id, id"))
 public class WalletTransaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_transaction_seq")
+    @SequenceGenerator(name = "wallet_transaction_seq", sequenceName = "wallet_transaction_seq", allocationSize = 100)
     private Long id;
 
+    /**
+     * The wallet posted to, or null for a platform account.
+     */
+    @JsonIgnore
     @ManyToOne
     private Wallet wallet;
 
+    @Column(nullable = false)
+    private LedgerAccount account;
+
     private WalletTransactionType walletTransactionType;
 
     /**
@@ -33,7 +49,30 @@ public class WalletTransaction {
      */
     private LocalDate date;
 
+    private LocalDateTime timestamp;
+
+    /**
+     * Identifies the ledger entry; both postings of an entry have the same transfer id.
+     */
+    @Column(nullable = false, length = 64)
     private String transferId;
     private String purpose;
+
+    @Column(nullable = false)
+    private BigDecimal debit = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private BigDecimal credit = BigDecimal.ZERO;
+
+    /**
+     * The wallet balance right after this posting, or null for a platform account.
+     */
+    private BigDecimal balanceAfter;
+
+    /**
+     * The amount asked for in a transfer request body; not stored, postings carry debit and credit.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Long amount;
 }
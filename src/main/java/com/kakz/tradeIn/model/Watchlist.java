@@ -10,7 +10,8 @@ import java.util.List;
 @Data
 public class Watchlist {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "watchlist_seq")
+    @SequenceGenerator(name = "watchlist_seq", sequenceName = "watchlist_seq", allocationSize = 50)
     private Long id;
     @OneToOne
     private User user;
@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 @Entity
 @Data
 public class Withdrawal {
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "withdrawal_seq")
+    @SequenceGenerator(name = "withdrawal_seq", sequenceName = "withdrawal_seq", allocationSize = 50)
     @Id
     private Long id;
 
@@ -1,8 +1,12 @@
 package com.kakz.tradeIn.repository;
 
 import com.kakz.tradeIn.model.Asset;
+import com.kakz.tradeIn.response.AssetSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AssetRepository extends JpaRepository<Asset,Long> {
@@ -12,4 +16,14 @@ public interface AssetRepository extends JpaRepository<Asset,Long> {
 
     Asset findByIdAndUserId(Long assetId, Long userId);
 
+    List<Asset> findByUserIdAndCoinIdIn(Long userId, Collection<String> coinIds);
+
+    /**
+     * Returns a user's assets with only the columns of {@link AssetSummary}, in one statement.
+     */
+    @Query("select new com.kakz.tradeIn.response.AssetSummary(a.id, a.quantity, a.buyPrice,"
+            + " c.id, c.symbol, c.name, c.image, c.currentPrice, c.priceChangePercentage24h)"
+            + " from Asset a join a.coin c where a.user.id = :userId order by a.id")
+    List<AssetSummary> findSummariesByUserId(@Param("userId") Long userId);
+
 }
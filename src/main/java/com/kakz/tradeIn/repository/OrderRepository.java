@@ -1,11 +1,60 @@
 package com.kakz.tradeIn.repository;
 
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.domain.OrderType;
 import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.response.OrderSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order,Long> {
     List<Order> findByUserId(Long userId);
 
+    List<Order> findByLimitPriceIsNotNullAndStatusInOrderByTimestampAscIdAsc(Collection<OrderStatus> statuses);
+
+    Order findByUserIdAndClientOrderId(Long userId, String clientOrderId);
+
+    /**
+     * Loads orders for update, so that settling fills reads their latest committed state.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Order> findByIdIn(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Order findLockedById(@Param("id") Long id);
+
+    @Query("select i.coin.id from OrderItem i where i.order.id = :orderId")
+    String findCoinIdByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * Returns a user's orders placed strictly before the given (timestamp, id) position, newest
+     * first, optionally only of one type and one coin symbol (lower case). The timestamp bound
+     * lets the (user_id, timestamp, id) index seek straight to the position, and only the
+     * columns of {@link OrderSummary} are read, in this one statement.
+     */
+    @Query("select new com.kakz.tradeIn.response.OrderSummary(o.id, o.orderType, o.status, o.price, o.limitPrice,"
+            + " o.timestamp, i.quantity, i.filledQuantity, i.buyPrice, i.sellPrice,"
+            + " c.id, c.symbol, c.name, c.image, c.currentPrice, c.priceChangePercentage24h)"
+            + " from Order o join o.orderItem i join i.coin c"
+            + " where o.user.id = :userId"
+            + " and o.timestamp <= :beforeTimestamp"
+            + " and (o.timestamp < :beforeTimestamp or o.id < :beforeId)"
+            + " and (:orderType is null or o.orderType = :orderType)"
+            + " and (:symbol is null or lower(c.symbol) = :symbol)"
+            + " order by o.timestamp desc, o.id desc")
+    List<OrderSummary> findHistory(@Param("userId") Long userId,
+                                   @Param("orderType") OrderType orderType,
+                                   @Param("symbol") String symbol,
+                                   @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                   @Param("beforeId") long beforeId,
+                                   Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package com.kakz.tradeIn.repository;
+
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.model.TriggerOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TriggerOrderRepository extends JpaRepository<TriggerOrder,Long> {
+    List<TriggerOrder> findByUserIdOrderByIdDesc(Long userId);
+
+    List<TriggerOrder> findByStatus(OrderStatus status);
+}
@@ -0,0 +1,15 @@
+package com.kakz.tradeIn.repository;
+
+import com.kakz.tradeIn.domain.WalletTransactionType;
+import com.kakz.tradeIn.model.WalletTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface WalletTransactionRepository extends JpaRepository<WalletTransaction,Long> {
+    List<WalletTransaction> findByWalletIdOrderByIdDesc(Long walletId);
+
+    List<WalletTransaction> findByWalletIdAndWalletTransactionTypeOrderByIdDesc(Long walletId, WalletTransactionType type);
+
+    List<WalletTransaction> findByTransferIdOrderById(String transferId);
+}
@@ -0,0 +1,18 @@
+package com.kakz.tradeIn.request;
+
+import com.kakz.tradeIn.domain.OrderType;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateBasketOrderRequest {
+    private List<Leg> legs;
+
+    @Data
+    public static class Leg {
+        private String coinId;
+        private double quantity;
+        private OrderType orderType;
+    }
+}
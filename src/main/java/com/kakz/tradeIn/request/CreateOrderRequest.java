@@ -8,5 +8,7 @@ public class CreateOrderRequest {
     private String  coinId;
     private double quantity;
     private OrderType orderType;
+    private double limitPrice;
+    private String clientOrderId;
 
 }
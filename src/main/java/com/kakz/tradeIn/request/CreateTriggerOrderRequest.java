@@ -0,0 +1,14 @@
+package com.kakz.tradeIn.request;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.TriggerType;
+import lombok.Data;
+
+@Data
+public class CreateTriggerOrderRequest {
+    private String coinId;
+    private double quantity;
+    private OrderType orderType;
+    private TriggerType triggerType;
+    private double triggerPrice;
+}
@@ -0,0 +1,23 @@
+package com.kakz.tradeIn.response;
+
+import lombok.Getter;
+
+/**
+ * Read-only row of a user's asset list, filled by a JPQL constructor expression. It keeps the
+ * JSON shape of {@code Asset} without the user and the unused coin columns.
+ */
+@Getter
+public class AssetSummary {
+    private final Long id;
+    private final double quantity;
+    private final double buyPrice;
+    private final CoinSummary coin;
+
+    public AssetSummary(Long id, double quantity, double buyPrice, String coinId, String symbol, String name,
+                        String image, double currentPrice, double priceChangePercentage24h) {
+        this.id = id;
+        this.quantity = quantity;
+        this.buyPrice = buyPrice;
+        this.coin = new CoinSummary(coinId, symbol, name, image, currentPrice, priceChangePercentage24h);
+    }
+}
@@ -0,0 +1,30 @@
+package com.kakz.tradeIn.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The few coin columns shown next to an order or an asset, with the same JSON names as {@code Coin}.
+ */
+@Getter
+@AllArgsConstructor
+public class CoinSummary {
+    @JsonProperty("id")
+    private final String id;
+
+    @JsonProperty("symbol")
+    private final String symbol;
+
+    @JsonProperty("name")
+    private final String name;
+
+    @JsonProperty("image")
+    private final String image;
+
+    @JsonProperty("current_price")
+    private final double currentPrice;
+
+    @JsonProperty("price_change_percentage_24h")
+    private final double priceChangePercentage24h;
+}
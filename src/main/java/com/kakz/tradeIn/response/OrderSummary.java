@@ -0,0 +1,56 @@
+package com.kakz.tradeIn.response;
+
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.domain.OrderType;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of a user's order history, filled by a JPQL constructor expression.
+ *
+ * It keeps the JSON shape of {@code Order} for the fields it carries (orderItem.coin.symbol and
+ * so on), but leaves out the user and all coin columns the listing does not show.
+ */
+@Getter
+public class OrderSummary {
+    private final Long id;
+    private final OrderType orderType;
+    private final OrderStatus status;
+    private final BigDecimal price;
+    private final BigDecimal limitPrice;
+    private final LocalDateTime timestamp;
+    private final Item orderItem;
+
+    public OrderSummary(Long id, OrderType orderType, OrderStatus status, BigDecimal price, BigDecimal limitPrice,
+                        LocalDateTime timestamp, double quantity, double filledQuantity, double buyPrice,
+                        double sellPrice, String coinId, String symbol, String name, String image,
+                        double currentPrice, double priceChangePercentage24h) {
+        this.id = id;
+        this.orderType = orderType;
+        this.status = status;
+        this.price = price;
+        this.limitPrice = limitPrice;
+        this.timestamp = timestamp;
+        this.orderItem = new Item(quantity, filledQuantity, buyPrice, sellPrice,
+                new CoinSummary(coinId, symbol, name, image, currentPrice, priceChangePercentage24h));
+    }
+
+    @Getter
+    public static class Item {
+        private final double quantity;
+        private final double filledQuantity;
+        private final double buyPrice;
+        private final double sellPrice;
+        private final CoinSummary coin;
+
+        private Item(double quantity, double filledQuantity, double buyPrice, double sellPrice, CoinSummary coin) {
+            this.quantity = quantity;
+            this.filledQuantity = filledQuantity;
+            this.buyPrice = buyPrice;
+            this.sellPrice = sellPrice;
+            this.coin = coin;
+        }
+    }
+}
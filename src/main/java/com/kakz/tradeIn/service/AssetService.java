@@ -3,7 +3,9 @@ package com.kakz.tradeIn.service;
 import com.kakz.tradeIn.model.Asset;
 import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.response.AssetSummary;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,12 +18,14 @@ public interface AssetService {
 
     Asset getAssetByUserAndId(Long userId,Long assetId);
 
-    List<Asset> getUsersAssets(Long userId);
+    List<AssetSummary> getUsersAssets(Long userId);
 
     Asset updateAsset(Long assetId,double quantity) throws Exception;
 
     Asset findAssetByUserIdAndCoinId(Long userId,String coinId) throws Exception;
 
+    List<Asset> findAssetsByUserIdAndCoinIds(Long userId, Collection<String> coinIds);
+
     void deleteAsset(Long assetId) throws Exception;
 
 }
@@ -4,9 +4,11 @@ import com.kakz.tradeIn.model.Asset;
 import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.model.User;
 import com.kakz.tradeIn.repository.AssetRepository;
+import com.kakz.tradeIn.response.AssetSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -67,11 +69,11 @@ public class AssetServiceImpl implements AssetService{
      * Retrieves a list of assets owned by a specific user.
      *
      * @param userId the ID of the user whose assets are to be retrieved.
-     * @return a list of assets owned by the user.
+     * @return a list of assets owned by the user, read as summaries in a single query.
      */
     @Override
-    public List<Asset> getUsersAssets(Long userId) {
-        return assetRepository.findByUserId(userId);
+    public List<AssetSummary> getUsersAssets(Long userId) {
+        return assetRepository.findSummariesByUserId(userId);
     }
 
     /**
@@ -102,6 +104,18 @@ public class AssetServiceImpl implements AssetService{
         return assetRepository.findByUserIdAndCoinId(userId, coinId);
     }
 
+    /**
+     * Finds the user's assets in any of the given coins with a single query.
+     *
+     * @param userId ID of the user who owns the assets.
+     * @param coinIds IDs of the coins to look for.
+     * @return The assets found; coins the user does not hold have no entry.
+     */
+    @Override
+    public List<Asset> findAssetsByUserIdAndCoinIds(Long userId, Collection<String> coinIds) {
+        return assetRepository.findByUserIdAndCoinIdIn(userId, coinIds);
+    }
+
     /**
      * Deletes the asset from the repository based on the provided asset ID.
      *
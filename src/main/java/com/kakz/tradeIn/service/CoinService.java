@@ -1,16 +1,20 @@
 package com.kakz.tradeIn.service;
 
+import com.kakz.tradeIn.market.MarketPayload;
 import com.kakz.tradeIn.model.Coin;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CoinService {
     List<Coin> getCoinList(int page) throws Exception;
-    String getMarketChart(String coinId, int days) throws Exception;
-    String getCoinDetails(String coinId) throws Exception;
+    MarketPayload getMarketChart(String coinId, int days) throws Exception;
+    MarketPayload getCoinDetails(String coinId) throws Exception;
     Coin findById(String coinId) throws Exception;
-    String searchCoin(String keyWord);
-    String getTop50CoinByMarketCap() throws Exception;
-    String getTradingCoins() throws Exception;
+    Map<String, Coin> findAllById(Collection<String> coinIds) throws Exception;
+    MarketPayload searchCoin(String keyWord);
+    MarketPayload getTop50CoinByMarketCap() throws Exception;
+    MarketPayload getTradingCoins() throws Exception;
 
 }
@@ -1,24 +1,28 @@
 package com.kakz.tradeIn.service;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kakz.tradeIn.market.CoinJsonReader;
+import com.kakz.tradeIn.market.CoinSearchIndex;
+import com.kakz.tradeIn.market.MarketChartStore;
+import com.kakz.tradeIn.market.MarketDataCache;
+import com.kakz.tradeIn.market.MarketDataSource;
+import com.kakz.tradeIn.market.MarketEndpoint;
+import com.kakz.tradeIn.market.MarketPayload;
+import com.kakz.tradeIn.market.MarketRequestCoalescer;
+import com.kakz.tradeIn.market.RecordingInputStream;
 import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.repository.CoinRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -40,13 +44,74 @@ public class CoinServiceImpl implements CoinService {
     private CoinRepository coinRepository;
 
     /**
-     * ObjectMapper instance used for converting Java objects to and from JSON.
-     * This instance is injected by Spring's dependency injection framework.
-     * It is commonly used for serializing and deserializing JSON data,
-     * facilitating data transfer between the application and external services.
+     * Streaming decoder that fills Coin objects directly from CoinGecko responses,
+     * skipping every field the application does not store.
      */
     @Autowired
-    private ObjectMapper objectMapper;
+    private CoinJsonReader coinJsonReader;
+
+    /**
+     * Source of market data: the live CoinGecko gateway, or recorded payloads when
+     * market.source is set to replay.
+     */
+    @Autowired
+    private MarketDataSource marketDataSource;
+
+    /**
+     * Stale-while-revalidate cache for the public market endpoints, whose responses
+     * are identical for every user.
+     */
+    @Autowired
+    private MarketDataCache marketDataCache;
+
+    /**
+     * Deduplicates concurrent identical upstream calls so that a burst of requests
+     * for the same coin costs a single CoinGecko request.
+     */
+    @Autowired
+    private MarketRequestCoalescer marketRequestCoalescer;
+
+    /**
+     * Local columnar store of market charts; only the missing tail of a chart is fetched upstream.
+     */
+    @Autowired
+    private MarketChartStore marketChartStore;
+
+    /**
+     * In-memory index over coin id, symbol and name that answers search queries without calling CoinGecko.
+     */
+    @Autowired
+    private CoinSearchIndex coinSearchIndex;
+
+    /**
+     * Freshness of cached /coins/markets pages (coin list and top 50).
+     */
+    @Value("${market.cache.markets-ttl-ms:30000}")
+    private long marketsTtlMs;
+
+    /**
+     * Freshness of cached intraday market charts (one day or less).
+     */
+    @Value("${market.cache.chart-intraday-ttl-ms:60000}")
+    private long chartIntradayTtlMs;
+
+    /**
+     * Freshness of cached market charts spanning more than one day.
+     */
+    @Value("${market.cache.chart-ttl-ms:600000}")
+    private long chartTtlMs;
+
+    /**
+     * Freshness of the cached trending coins list.
+     */
+    @Value("${market.cache.trending-ttl-ms:300000}")
+    private long trendingTtlMs;
+
+    /**
+     * Freshness of cached coin details responses.
+     */
+    @Value("${market.cache.details-ttl-ms:60000}")
+    private long detailsTtlMs;
 
     /**
      * Fetches a list of coins from the CoinGecko API based on the specified page number.
@@ -58,25 +123,21 @@ public class CoinServiceImpl implements CoinService {
      */
     @Override
     public List<Coin> getCoinList(int page) throws Exception {
-        String url = "https://api.coingecko.com/api/v3/coins/markets?vs_currency=usd&per_page=10&page="+page;
+        String key = "markets:page=" + page;
+        return marketDataCache.get(key,
+                Duration.ofMillis(marketsTtlMs),
+                () -> marketRequestCoalescer.execute(key, () -> fetchCoinList(page)));
+    }
 
+    private List<Coin> fetchCoinList(int page) throws Exception {
+        String url = "/coins/markets?vs_currency=usd&per_page=10&page="+page;
 
-        RestTemplate restTemplate = new RestTemplate();
         try {
-            HttpHeaders headers = new HttpHeaders();
-//            headers.set("x-cg-demo-api-key", API_KEY);
-
-
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+            List<Coin> coins = marketDataSource.exchange(MarketEndpoint.MARKETS, url, coinJsonReader::readMarkets);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            return List.copyOf(coins);
 
-//            System.out.println(response.getBody());
-            List<Coin> coins = objectMapper.readValue(response.getBody(), new TypeReference<List<Coin>>() {});
-
-            return coins;
-
-        } catch (HttpClientErrorException | HttpServerErrorException | JsonProcessingException e) {
+        } catch (RestClientException e) {
             System.err.println("Error: " + e);
             // Handle error accordingly
             throw new Exception("please wait for time because you are using free plan");
@@ -89,25 +150,23 @@ public class CoinServiceImpl implements CoinService {
      *
      * @param coinId the identifier of the coin for which the market chart data is to be retrieved
      * @param days the number of days for which the market chart data is to be retrieved
-     * @return the market chart data as a JSON string
+     * @return the market chart data as the raw upstream JSON payload
      * @throws Exception if an error occurs while fetching the market chart data due to rate limits or other issues
      */
     @Override
-    public String getMarketChart(String coinId, int days) throws Exception {
-
-        String url = "https://api.coingecko.com/api/v3/coins/"+coinId+"/market_chart?vs_currency=usd&per_page=10&days="+days;
+    public MarketPayload getMarketChart(String coinId, int days) throws Exception {
+        long ttlMs = days <= 1 ? chartIntradayTtlMs : chartTtlMs;
+        String key = "chart:" + coinId + ":days=" + days;
+        return marketDataCache.get(key,
+                Duration.ofMillis(ttlMs),
+                () -> marketRequestCoalescer.execute(key, () -> fetchMarketChart(coinId, days)));
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
+    private MarketPayload fetchMarketChart(String coinId, int days) throws Exception {
         try {
-            HttpHeaders headers = new HttpHeaders();
-
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+            return marketChartStore.getChart(coinId, days);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-
-            return response.getBody();
-
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
+        } catch (RestClientException e) {
             System.err.println("Error: " + e);
             // Handle error accordingly
             throw new Exception("please wait for time because you are using free plan");
@@ -118,45 +177,32 @@ public class CoinServiceImpl implements CoinService {
      * Retrieves detailed information about a specific cryptocurrency coin by its ID.
      *
      * @param coinId the unique identifier of the cryptocurrency coin.
-     * @return a JSON string representing the detailed information of the specified cryptocurrency coin.
+     * @return the raw upstream JSON payload describing the specified cryptocurrency coin.
      * @throws Exception if there is an error during the API call or data processing.
      */
     @Override
-    public String getCoinDetails(String coinId) throws Exception {
-        String url = "https://api.coingecko.com/api/v3/coins/"+coinId;
+    public MarketPayload getCoinDetails(String coinId) throws Exception {
+        String key = "details:" + coinId;
+        return marketDataCache.get(key,
+                Duration.ofMillis(detailsTtlMs),
+                () -> marketRequestCoalescer.execute(key, () -> fetchCoinDetails(coinId)));
+    }
+
+    private MarketPayload fetchCoinDetails(String coinId) throws Exception {
+        String url = "/coins/"+coinId;
 
-        RestTemplate restTemplate = new RestTemplate();
         try {
-            HttpHeaders headers = new HttpHeaders();
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            JsonNode jsonNode = objectMapper.readTree(response.getBody());
-            Coin coin = new Coin();
-            coin.setId(jsonNode.get("id").asText());
-            coin.setName(jsonNode.get("name").asText());
-            coin.setSymbol(jsonNode.get("symbol").asText());
-            coin.setImage(jsonNode.get("image").get("large").asText());
-
-            JsonNode marketData = jsonNode.get("market_data");
-
-            coin.setCurrentPrice(marketData.get("current_price").get("usd").asDouble());
-            coin.setMarketCap(marketData.get("market_cap").get("usd").asLong());
-            coin.setMarketCapRank(jsonNode.get("market_cap_rank").asInt());
-            coin.setTotalVolume(marketData.get("total_volume").get("usd").asLong());
-            coin.setHigh24h(marketData.get("high_24h").get("usd").asDouble());
-            coin.setLow24h(marketData.get("low_24h").get("usd").asDouble());
-            coin.setPriceChange24h(marketData.get("price_change_24h").asDouble());
-            coin.setPriceChangePercentage24h(marketData.get("price_change_percentage_24h").asDouble());
-            coin.setMarketCapChange24h(marketData.get("market_cap_change_24h").asLong());
-            coin.setMarketCapChangePercentage24h(marketData.get("market_cap_change_percentage_24h").asDouble());
-            coin.setCirculatingSupply(marketData.get("circulating_supply").asLong());
-            coin.setTotalSupply(marketData.get("total_supply").asLong());
-
-            coinRepository.save(coin);
-            return response.getBody();
-
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
+            FetchedDetails details = marketDataSource.exchange(MarketEndpoint.COIN_DETAILS, url, body -> {
+                RecordingInputStream recording = new RecordingInputStream(body);
+                Coin coin = coinJsonReader.readDetails(recording);
+                return new FetchedDetails(coin, recording.toByteArray());
+            });
+
+            coinRepository.save(details.coin());
+            coinSearchIndex.upsert(List.of(details.coin()));
+            return MarketPayload.of(details.body());
+
+        } catch (RestClientException e) {
             System.err.println("Error: " + e);
             // Handle error accordingly
             throw new Exception("please wait for time because you are using free plan");
@@ -182,51 +228,61 @@ public class CoinServiceImpl implements CoinService {
         }
     }
 
+    /**
+     * Retrieves several Coin entities by their IDs with a single query.
+     *
+     * @param coinIds the IDs of the coins to be retrieved
+     * @return the coins keyed by ID
+     * @throws Exception if any of the coins is not found
+     */
+    @Override
+    public Map<String, Coin> findAllById(Collection<String> coinIds) throws Exception {
+        Map<String, Coin> coins = new HashMap<>();
+        for (Coin coin : coinRepository.findAllById(coinIds)) {
+            coins.put(coin.getId(), coin);
+        }
+        for (String coinId : coinIds) {
+            if (!coins.containsKey(coinId)) {
+                throw new Exception("Coin not found: " + coinId);
+            }
+        }
+        return coins;
+    }
+
     /**
      * Searches for cryptocurrency information based on a provided keyword.
+     * The query is answered from the local coin search index, so no upstream call is made.
      *
      * @param keyWord The keyword used for searching cryptocurrencies.
-     * @return A string response from the CoinGecko API containing the search results.
+     * @return the search results in the same shape as the CoinGecko search API response.
      */
     @Override
-    public String searchCoin(String keyWord) {
-        String baseUrl ="https://api.coingecko.com/api/v3/search?query="+keyWord;
-
-        HttpHeaders headers = new HttpHeaders();
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<String> response = restTemplate.exchange(baseUrl, HttpMethod.GET, entity, String.class);
-
-        System.out.println(response.getBody());
-
-        return response.getBody();
+    public MarketPayload searchCoin(String keyWord) {
+        return MarketPayload.of(coinSearchIndex.search(keyWord));
     }
 
     /**
      * Retrieves the top 50 cryptocurrencies by market capitalization.
      * The method fetches data from the CoinGecko API.
      *
-     * @return A JSON string containing the details of the top 50 cryptocurrencies by market capitalization.
+     * @return the raw JSON payload containing the details of the top 50 cryptocurrencies by market capitalization.
      * @throws Exception If an error occurs while fetching the data from the API.
      */
     @Override
-    public String getTop50CoinByMarketCap() throws Exception {
-        String url = "https://api.coingecko.com/api/v3/coins/markets?vs_currency=usd&page=1&per_page=50";
-
-        RestTemplate restTemplate = new RestTemplate();
-        try {
-            HttpHeaders headers = new HttpHeaders();
-//            headers.set("x-cg-demo-api-key", API_KEY);
-
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+    public MarketPayload getTop50CoinByMarketCap() throws Exception {
+        String key = "markets:top50";
+        return marketDataCache.get(key,
+                Duration.ofMillis(marketsTtlMs),
+                () -> marketRequestCoalescer.execute(key, this::fetchTop50CoinByMarketCap));
+    }
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    private MarketPayload fetchTop50CoinByMarketCap() throws Exception {
+        String url = "/coins/markets?vs_currency=usd&page=1&per_page=50";
 
-            return response.getBody();
+        try {
+            return MarketPayload.of(marketDataSource.getBytes(MarketEndpoint.MARKETS, url));
 
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
+        } catch (RestClientException e) {
             System.err.println("Error: " + e);
 
             throw new Exception(e.getMessage());
@@ -238,29 +294,34 @@ public class CoinServiceImpl implements CoinService {
     /**
      * Fetches the current trending trading coins from the CoinGecko API.
      *
-     * @return A JSON string containing the list of trending trading coins.
+     * @return the raw JSON payload containing the list of trending trading coins.
      * @throws Exception if there is an error while attempting to retrieve the data from the API.
      */
     @Override
-    public String getTradingCoins() throws Exception {
-        String url = "https://api.coingecko.com/api/v3/search/trending";
-
-        RestTemplate restTemplate = new RestTemplate();
-        try {
-            HttpHeaders headers = new HttpHeaders();
-//            headers.set("x-cg-demo-api-key", API_KEY);
-
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+    public MarketPayload getTradingCoins() throws Exception {
+        String key = "trending";
+        return marketDataCache.get(key,
+                Duration.ofMillis(trendingTtlMs),
+                () -> marketRequestCoalescer.execute(key, this::fetchTradingCoins));
+    }
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    private MarketPayload fetchTradingCoins() throws Exception {
+        String url = "/search/trending";
 
-            return response.getBody();
+        try {
+            return MarketPayload.of(marketDataSource.getBytes(MarketEndpoint.TRENDING, url));
 
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
+        } catch (RestClientException e) {
             System.err.println("Error: " + e);
             // Handle error accordingly
 //            return null;
             throw new Exception("Error: " + e.getMessage());
         }
     }
+
+    /**
+     * A coin parsed from a details response together with the raw body it was parsed from.
+     */
+    private record FetchedDetails(Coin coin, byte[] body) {
+    }
 }
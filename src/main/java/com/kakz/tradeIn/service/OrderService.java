@@ -5,13 +5,20 @@ import com.kakz.tradeIn.model.Coin;
 import com.kakz.tradeIn.model.Order;
 import com.kakz.tradeIn.model.OrderItem;
 import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.request.CreateBasketOrderRequest;
+import com.kakz.tradeIn.response.OrderSummary;
+import com.kakz.tradeIn.utils.OrderCursor;
 
 import java.util.List;
+import java.util.Map;
 
 public interface OrderService {
     Order createOrder(User user, OrderItem orderItem, OrderType orderType);
     Order getOrderById(Long id) throws Exception;
-    List<Order> getAllOrdersofUser(Long userId,OrderType orderType,String assetSymbol);
-    Order processOrder(Coin coin,double quantity,OrderType orderType,User user) throws Exception;
+    List<OrderSummary> getAllOrdersofUser(Long userId,OrderType orderType,String assetSymbol,OrderCursor cursor,int limit);
+    Order processOrder(Coin coin,double quantity,OrderType orderType,User user,String clientOrderId) throws Exception;
+    List<Order> processBasket(List<CreateBasketOrderRequest.Leg> legs,Map<String,Coin> coins,User user) throws Exception;
+    Order processLimitOrder(Coin coin,double quantity,double limitPrice,OrderType orderType,User user,String clientOrderId) throws Exception;
+    Order cancelLimitOrder(Long orderId,User user) throws Exception;
 
 }
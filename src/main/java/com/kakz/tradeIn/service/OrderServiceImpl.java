@@ -2,17 +2,34 @@ package com.kakz.tradeIn.service;
 
 import com.kakz.tradeIn.domain.OrderStatus;
 import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.WalletTransactionType;
+import com.kakz.tradeIn.matching.MatchResult;
+import com.kakz.tradeIn.matching.MatchingEngine;
 import com.kakz.tradeIn.model.*;
 import com.kakz.tradeIn.repository.OrderItemRepository;
 import com.kakz.tradeIn.repository.OrderRepository;
+import com.kakz.tradeIn.request.CreateBasketOrderRequest;
+import com.kakz.tradeIn.response.OrderSummary;
+import com.kakz.tradeIn.utils.OrderCursor;
+import com.kakz.tradeIn.utils.TradeStageMetrics;
+import com.kakz.tradeIn.utils.TradeStageMetrics.Stage;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -55,6 +72,18 @@ public class OrderServiceImpl implements OrderService{
     @Autowired
     private AssetService assetService;
 
+    /**
+     * In-memory limit order books; limit orders are matched here and settled in the database.
+     */
+    @Autowired
+    private MatchingEngine matchingEngine;
+
+    /**
+     * Latency histograms of the stages of a market buy or sell.
+     */
+    @Autowired
+    private TradeStageMetrics tradeStageMetrics;
+
 
     /**
      * Creates an order based on the given user, order item, and order type.
@@ -96,17 +125,21 @@ public class OrderServiceImpl implements OrderService{
     }
 
     /**
-     * Retrieves all orders for a given user, filtered by order type and asset symbol.
+     * Retrieves one page of a user's orders, newest first, filtered by order type and asset symbol.
      *
      * @param userId      the ID of the user whose orders are to be retrieved
-     * @param orderType   the type of orders to filter (e.g., BUY, SELL)
-     * @param assetSymbol the symbol of the asset to filter orders by
-     * @return a list of orders for the specified user, filtered according to the provided parameters
+     * @param orderType   the type of orders to filter (e.g., BUY, SELL), or null for all
+     * @param assetSymbol the symbol of the asset to filter orders by, in any case, or null for all
+     * @param cursor      the position after the last order of the previous page, or {@link OrderCursor#START}
+     * @param limit       the maximum number of orders to return
+     * @return the orders of the page, read as summaries in a single query
      */
     @Override
-    public List<Order> getAllOrdersofUser(Long userId, OrderType orderType, String assetSymbol) {
-
-        return orderRepository.findByUserId(userId);
+    public List<OrderSummary> getAllOrdersofUser(Long userId, OrderType orderType, String assetSymbol,
+                                          OrderCursor cursor, int limit) {
+        String symbol = assetSymbol == null || assetSymbol.isBlank() ? null : assetSymbol.toLowerCase(Locale.ROOT);
+        return orderRepository.findHistory(userId, orderType, symbol,
+                cursor.getTimestamp(), cursor.getId(), PageRequest.of(0, limit));
     }
 
     /**
@@ -120,106 +153,133 @@ public class OrderServiceImpl implements OrderService{
      */
     public OrderItem createOrderItem(Coin coin,double quantity,
                                       double buyPrice,double sellPrice){
-        OrderItem orderItem = new OrderItem();
-        orderItem.setQuantity(quantity);
-        orderItem.setBuyPrice(buyPrice);
-        orderItem.setSellPrice(sellPrice);
-        orderItem.setCoin(coin);
-        return orderItemRepository.save(orderItem);
+        return orderItemRepository.save(newOrderItem(coin, quantity, buyPrice, sellPrice));
     }
 
     /**
      * Initiates the process to buy a specified quantity of a given coin for a user.
-     * The method will first validate the quantity, create order items, initiate payment,
-     * update wallet balances, and then either create or update the user's asset.
+     * The method will first validate the quantity, build the order, take the payment from
+     * the wallet, and then either create or top up the user's asset.
+     *
+     * Nothing is written until the transaction flushes: the order and its item are inserted
+     * together through the cascade, and the wallet and asset rows are updated by dirty checking,
+     * so the JDBC batch carries every statement of the trade in one round-trip.
      *
      * @param coin The coin that is being bought.
      * @param quantity The quantity of the coin to be bought.
      * @param user The user who is buying the coin.
+     * @param clientOrderId the id the client gave the order, or null
      * @return The completed order with updated status and order items.
-     * @throws Exception if the quantity is less than zero or if there are issues with payment or asset updates.
+     * @throws Exception if the quantity is less than or equal to zero or if there are issues with payment or asset updates.
      */
     @Transactional
-    public Order buyAsset(Coin coin, double quantity,User user) throws Exception {
-        if(quantity< 0){
+    public Order buyAsset(Coin coin, double quantity,User user,String clientOrderId) throws Exception {
+        if(quantity<= 0){
             throw new Exception("Quantity must be more than zero");
         }
+        long stage = System.nanoTime();
         double price = coin.getCurrentPrice();
-        OrderItem orderItem = createOrderItem(coin, quantity, price,0);
-        Order order = createOrder(user,orderItem,OrderType.BUY);
-        orderItem.setOrder(order);
+        Order order = newFilledOrder(user, coin, OrderType.BUY, quantity, price, 0);
+        order.setClientOrderId(clientOrderId);
+        stage = tradeStageMetrics.record(Stage.BUILD_ORDER, stage);
 
         walletService.payOrderPayment(order, user);
-        order.setStatus(OrderStatus.SUCCESS);
-        order.setOrderType(OrderType.BUY);
-        Order saveOrder = orderRepository.save(order);
+        stage = tradeStageMetrics.record(Stage.WALLET_PAYMENT, stage);
 //        Create Asset
-        Asset oldAsset = assetService.findAssetByUserIdAndCoinId(order.getUser().getId(),
-                order.getOrderItem().getCoin().getId());
+        Asset oldAsset = assetService.findAssetByUserIdAndCoinId(user.getId(), coin.getId());
+        stage = tradeStageMetrics.record(Stage.ASSET_LOOKUP, stage);
         if(oldAsset == null){
-            assetService.createAsset(user,
-                    orderItem.getCoin(),
-                    orderItem.getQuantity());
+            assetService.createAsset(user, coin, quantity);
         }
         else{
-            assetService.updateAsset(oldAsset.getId(),quantity);
+            oldAsset.setQuantity(oldAsset.getQuantity() + quantity);
         }
-        return saveOrder;
+        stage = tradeStageMetrics.record(Stage.ASSET_UPDATE, stage);
+        Order savedOrder = orderRepository.save(order);
+        tradeStageMetrics.record(Stage.SAVE_ORDER, stage);
+        return savedOrder;
     }
 
     /**
      * Sells a specified quantity of a given coin from the user's assets.
      * If the quantity is greater than the available quantity, or the asset is not found, an exception is thrown.
+     * An asset left worth one unit of currency or less is removed.
+     *
+     * Like {@link #buyAsset}, every change is left to the single flush at commit.
      *
      * @param coin the coin to be sold
      * @param quantity the amount of the coin to be sold
      * @param user the user selling the coin
+     * @param clientOrderId the id the client gave the order, or null
      * @return the created order for the sale
      * @throws Exception if the quantity is less than or equal to zero, the asset is not found, or there is insufficient quantity to sell
      */
     @Transactional
-    public Order sellAsset(Coin coin, double quantity,User user) throws Exception {
+    public Order sellAsset(Coin coin, double quantity,User user,String clientOrderId) throws Exception {
         if(quantity<= 0){
             throw new Exception("Quantity must be more than zero");
         }
+        long stage = System.nanoTime();
         double sellPrice = coin.getCurrentPrice();
 
         Asset assetToSell =assetService.findAssetByUserIdAndCoinId(
                 user.getId(),
                 coin.getId());
+        stage = tradeStageMetrics.record(Stage.ASSET_LOOKUP, stage);
 
-        if(assetToSell != null) {
+        if(assetToSell == null) {
+            throw new Exception("Asset Not Found");
+        }
+        if(assetToSell.getQuantity() < quantity){
+            throw new Exception("Insufficient Quantity to Sell Asset");
+        }
 
-            OrderItem orderItem = createOrderItem(coin,
-                    quantity,
-                    assetToSell.getBuyPrice(),
-                    sellPrice);
+        Order order = newFilledOrder(user, coin, OrderType.SELL, quantity, assetToSell.getBuyPrice(), sellPrice);
+        order.setClientOrderId(clientOrderId);
+        stage = tradeStageMetrics.record(Stage.BUILD_ORDER, stage);
+        walletService.payOrderPayment(order,user);
+        stage = tradeStageMetrics.record(Stage.WALLET_PAYMENT, stage);
 
-        Order order = createOrder(user,
-                orderItem,
-                OrderType.SELL);
+        double remaining = assetToSell.getQuantity() - quantity;
+        if(remaining*sellPrice<=1 ){
+            assetService.deleteAsset(assetToSell.getId());
+        }
+        else{
+            assetToSell.setQuantity(remaining);
+        }
+        stage = tradeStageMetrics.record(Stage.ASSET_UPDATE, stage);
+        Order savedOrder = orderRepository.save(order);
+        tradeStageMetrics.record(Stage.SAVE_ORDER, stage);
+        return savedOrder;
+    }
 
-        orderItem.setOrder(order);
+    /**
+     * Builds a filled market order together with its item, linked both ways but not yet persisted,
+     * so that saving the order inserts both rows in one go through the cascade.
+     */
+    private Order newFilledOrder(User user, Coin coin, OrderType orderType, double quantity,
+                                 double buyPrice, double sellPrice) {
+        OrderItem orderItem = newOrderItem(coin, quantity, buyPrice, sellPrice);
+        orderItem.setFilledQuantity(quantity);
 
-        if(assetToSell.getQuantity()>= quantity){
-            order.setStatus(OrderStatus.SUCCESS);
-            order.setOrderType(OrderType.SELL);
-            Order savedOrder = orderRepository.save(order);
-            walletService.payOrderPayment(order,user);
-
-            Asset updatedAsset = assetService.updateAsset(
-                    assetToSell.getId(),
-                    -quantity);
-            if(updatedAsset.getQuantity()*coin.getCurrentPrice()<=1 ){
-                assetService.deleteAsset(updatedAsset.getId());
-            }
-            return savedOrder;
-        }
+        Order order = new Order();
+        order.setOrderType(orderType);
+        order.setOrderItem(orderItem);
+        order.setPrice(BigDecimal.valueOf(coin.getCurrentPrice()*quantity));
+        order.setUser(user);
+        order.setTimestamp(LocalDateTime.now());
+        order.setStatus(OrderStatus.SUCCESS);
+        orderItem.setOrder(order);
+        return order;
+    }
 
-//        Create Asset
-        throw new Exception("Insufficient Quantity to Sell Asset");
-        }
-        throw new Exception("Asset Not Found");
+    private OrderItem newOrderItem(Coin coin, double quantity, double buyPrice, double sellPrice) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setQuantity(quantity);
+        orderItem.setBuyPrice(buyPrice);
+        orderItem.setSellPrice(sellPrice);
+        orderItem.setCoin(coin);
+        return orderItem;
     }
 
     /**
@@ -230,21 +290,345 @@ public class OrderServiceImpl implements OrderService{
      * @param quantity the quantity of the coin to be processed
      * @param orderType the type of the order (BUY or SELL)
      * @param user the user placing the order
+     * @param clientOrderId the id the client gave the order, unique per user, or null
      * @return the processed order
-     * @throws Exception if the order type is invalid or any errors occur during order processing
+     * @throws Exception if the order type or client order id is invalid, or any errors occur during order processing
      */
     @Override
     @Transactional
     public Order processOrder(Coin coin, double quantity,
-                              OrderType orderType, User user) throws Exception {
+                              OrderType orderType, User user, String clientOrderId) throws Exception {
+        checkClientOrderId(clientOrderId);
         if(orderType == OrderType.BUY){
-            return buyAsset(coin, quantity,user);
+            return buyAsset(coin, quantity,user,clientOrderId);
         }
         else if(orderType == OrderType.SELL){
-            return sellAsset(coin, quantity,user);
+            return sellAsset(coin, quantity,user,clientOrderId);
         }
         else{
             throw  new Exception("Invalid Order Type");
         }
     }
+
+    /**
+     * Executes a basket of market orders for one user, all or nothing.
+     *
+     * The user's assets in every coin of the basket are read with one query and the legs are
+     * applied to them in request order, so a leg may sell coins bought by an earlier leg. The
+     * net amount of all legs is checked against the wallet balance once, and each leg is then
+     * posted to the wallet ledger.
+     * As with a single sale, an asset sold down to one unit of currency or less is removed.
+     * The orders are saved together and go out in JDBC batches at commit; any failing leg rolls
+     * back the whole basket.
+     *
+     * @param legs the coin, quantity and order type of every order, in execution order
+     * @param coins the coins of the legs, keyed by ID
+     * @param user the user placing the basket
+     * @return the filled orders, in the order of the legs
+     * @throws Exception if a leg is invalid, an asset is missing or insufficient, or the funds are insufficient
+     */
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public List<Order> processBasket(List<CreateBasketOrderRequest.Leg> legs, Map<String, Coin> coins,
+                                     User user) throws Exception {
+        if (legs == null || legs.isEmpty()) {
+            throw new Exception("Basket must contain at least one order");
+        }
+        Map<String, Asset> assets = new HashMap<>();
+        for (Asset asset : assetService.findAssetsByUserIdAndCoinIds(user.getId(), coins.keySet())) {
+            assets.put(asset.getCoin().getId(), asset);
+        }
+
+        List<Order> orders = new ArrayList<>(legs.size());
+        Set<String> sold = new HashSet<>();
+        BigDecimal net = BigDecimal.ZERO;
+        for (CreateBasketOrderRequest.Leg leg : legs) {
+            if (leg.getQuantity() <= 0) {
+                throw new Exception("Quantity must be more than zero");
+            }
+            Coin coin = coins.get(leg.getCoinId());
+            double price = coin.getCurrentPrice();
+            Asset asset = assets.get(coin.getId());
+            Order order;
+            if (leg.getOrderType() == OrderType.BUY) {
+                order = newFilledOrder(user, coin, OrderType.BUY, leg.getQuantity(), price, 0);
+                net = net.subtract(order.getPrice());
+                if (asset == null) {
+                    asset = new Asset();
+                    asset.setUser(user);
+                    asset.setCoin(coin);
+                    asset.setBuyPrice(price);
+                    assets.put(coin.getId(), asset);
+                }
+                asset.setQuantity(asset.getQuantity() + leg.getQuantity());
+            } else if (leg.getOrderType() == OrderType.SELL) {
+                if (asset == null) {
+                    throw new Exception("Asset Not Found");
+                }
+                if (asset.getQuantity() < leg.getQuantity()) {
+                    throw new Exception("Insufficient Quantity to Sell Asset");
+                }
+                order = newFilledOrder(user, coin, OrderType.SELL, leg.getQuantity(), asset.getBuyPrice(), price);
+                net = net.add(order.getPrice());
+                asset.setQuantity(asset.getQuantity() - leg.getQuantity());
+                sold.add(coin.getId());
+            } else {
+                throw new Exception("Invalid Order Type");
+            }
+            orders.add(order);
+        }
+
+        Wallet wallet = walletService.getUserWallet(user);
+        if (wallet.getBalance().add(net).signum() < 0) {
+            throw new Exception("Insufficient funds for the Transaction");
+        }
+        for (Order order : orders) {
+            boolean buy = order.getOrderType() == OrderType.BUY;
+            wallet = walletService.applyBalanceChange(wallet, buy ? order.getPrice().negate() : order.getPrice(),
+                    buy ? WalletTransactionType.BUY_ASSET : WalletTransactionType.SELL_ASSET,
+                    (buy ? "basket buy " : "basket sell ") + order.getOrderItem().getCoin().getSymbol());
+        }
+
+        for (Asset asset : assets.values()) {
+            boolean dust = sold.contains(asset.getCoin().getId())
+                    && asset.getQuantity() * asset.getCoin().getCurrentPrice() <= 1;
+            if (asset.getId() == null) {
+                if (!dust) {
+                    assetService.createAsset(user, asset.getCoin(), asset.getQuantity());
+                }
+            } else if (dust) {
+                assetService.deleteAsset(asset.getId());
+            }
+        }
+        return orderRepository.saveAll(orders);
+    }
+
+    /**
+     * Places a limit order. The funds (for a buy) or the coins (for a sell) are reserved first,
+     * then the order is matched against the coin's order book at price-time priority. Every fill
+     * is settled for both sides in this transaction, and any unfilled quantity stays in the book
+     * with status PARTIALLY_FILLED or PENDING. The order never trades with the user's own resting
+     * orders: when it reaches one, its unfilled quantity is cancelled and its reserve returned.
+     *
+     * The coin's book is locked until the transaction ends and only changes once it commits, so
+     * a rolled back order leaves no trace in the book; open orders are reloaded into the books
+     * from the database on startup.
+     *
+     * @param coin the coin to trade
+     * @param quantity the quantity to trade
+     * @param limitPrice the highest price to buy at, or the lowest price to sell at
+     * @param orderType the type of the order (BUY or SELL)
+     * @param user the user placing the order
+     * @param clientOrderId the id the client gave the order, unique per user, or null
+     * @return the order with its fills applied
+     * @throws Exception if the quantity or price is not positive, the client order id is invalid, the
+     *                   funds or coins are insufficient, or the coin's book stays busy
+     */
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public Order processLimitOrder(Coin coin, double quantity, double limitPrice,
+                                   OrderType orderType, User user, String clientOrderId) throws Exception {
+        if (quantity <= 0) {
+            throw new Exception("Quantity must be more than zero");
+        }
+        if (limitPrice <= 0) {
+            throw new Exception("Limit price must be more than zero");
+        }
+        checkClientOrderId(clientOrderId);
+        matchingEngine.lockBook(coin.getId());
+
+        Order order = new Order();
+        order.setOrderType(orderType);
+        order.setPrice(BigDecimal.valueOf(limitPrice).multiply(BigDecimal.valueOf(quantity)));
+        order.setLimitPrice(BigDecimal.valueOf(limitPrice));
+        order.setUser(user);
+        order.setTimestamp(LocalDateTime.now());
+        order.setStatus(OrderStatus.PENDING);
+        order.setClientOrderId(clientOrderId);
+
+        OrderItem orderItem;
+        if (orderType == OrderType.BUY) {
+            walletService.payOrderPayment(order, user);
+            orderItem = newOrderItem(coin, quantity, 0, 0);
+        } else if (orderType == OrderType.SELL) {
+            Asset assetToSell = assetService.findAssetByUserIdAndCoinId(user.getId(), coin.getId());
+            if (assetToSell == null) {
+                throw new Exception("Asset Not Found");
+            }
+            if (assetToSell.getQuantity() < quantity) {
+                throw new Exception("Insufficient Quantity to Sell Asset");
+            }
+            assetService.updateAsset(assetToSell.getId(), assetToSell.getQuantity() - quantity);
+            orderItem = newOrderItem(coin, quantity, assetToSell.getBuyPrice(), 0);
+        } else {
+            throw new Exception("Invalid Order Type");
+        }
+
+        order.setOrderItem(orderItem);
+        orderItem.setOrder(order);
+        // a replayed client order id must fail on the unique constraint before the book is touched
+        Order savedOrder = clientOrderId == null ? orderRepository.save(order) : orderRepository.saveAndFlush(order);
+
+        MatchResult result = matchingEngine.match(coin.getId(), savedOrder.getId(), user.getId(), orderType,
+                limitPrice, quantity);
+        settle(savedOrder, result);
+        if (result.isSelfTradePrevented()) {
+            refundRemainder(savedOrder);
+        }
+        return orderRepository.save(savedOrder);
+    }
+
+    /**
+     * Cancels a resting limit order of the user: its unfilled quantity leaves the coin's book
+     * and the funds or coins still reserved for it are returned.
+     *
+     * @param orderId the id of the order
+     * @param user the user cancelling the order
+     * @return the CANCELLED order
+     * @throws Exception if the order does not exist, belongs to another user, is not a limit
+     *                   order, is no longer open, or the coin's book stays busy
+     */
+    @Override
+    @Transactional(rollbackOn = Exception.class)
+    public Order cancelLimitOrder(Long orderId, User user) throws Exception {
+        String coinId = orderRepository.findCoinIdByOrderId(orderId);
+        if (coinId == null) {
+            throw new Exception("Order not found");
+        }
+        matchingEngine.lockBook(coinId);
+        Order order = orderRepository.findLockedById(orderId);
+        if (order.getUser().getId() != user.getId()) {
+            throw new Exception("You don't have access");
+        }
+        if (order.getLimitPrice() == null) {
+            throw new Exception("Only limit orders can be cancelled");
+        }
+        if (order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.PARTIALLY_FILLED) {
+            throw new Exception("Order is no longer open");
+        }
+        refundRemainder(order);
+        Order saved = orderRepository.save(order);
+        matchingEngine.cancel(coinId, orderId, order.getOrderType(), order.getLimitPrice().doubleValue());
+        return saved;
+    }
+
+    /**
+     * Restores the open limit orders into the in-memory order books, oldest first, so that
+     * time priority survives a restart. Books already recovered from the order journal are only
+     * rebuilt where they disagree with the database, which holds what was actually committed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOrderBooks() {
+        List<Order> openOrders = orderRepository.findByLimitPriceIsNotNullAndStatusInOrderByTimestampAscIdAsc(
+                List.of(OrderStatus.PENDING, OrderStatus.PARTIALLY_FILLED));
+        Map<String, List<MatchingEngine.OpenOrder>> byCoin = new HashMap<>();
+        for (Order order : openOrders) {
+            OrderItem item = order.getOrderItem();
+            byCoin.computeIfAbsent(item.getCoin().getId(), id -> new ArrayList<>())
+                    .add(new MatchingEngine.OpenOrder(order.getId(), order.getUser().getId(), order.getOrderType(),
+                            order.getLimitPrice().doubleValue(), item.getQuantity(), item.getFilledQuantity()));
+        }
+        matchingEngine.restore(byCoin);
+    }
+
+    /**
+     * Applies the fills of a matched order to the taker and to every resting order it traded with.
+     * Buyers receive the coins and get back the difference between their limit price and the
+     * execution price; sellers receive the execution price in their wallet.
+     */
+    private void settle(Order taker, MatchResult result) throws Exception {
+        if (result.getFillCount() == 0) {
+            return;
+        }
+        List<Long> makerIds = new ArrayList<>(result.getFillCount());
+        for (int i = 0; i < result.getFillCount(); i++) {
+            makerIds.add(result.getMakerOrderId(i));
+        }
+        Map<Long, Order> makers = new HashMap<>();
+        for (Order maker : orderRepository.findByIdIn(makerIds)) {
+            makers.put(maker.getId(), maker);
+        }
+
+        Coin coin = taker.getOrderItem().getCoin();
+        for (int i = 0; i < result.getFillCount(); i++) {
+            Order maker = makers.get(result.getMakerOrderId(i));
+            if (maker == null) {
+                throw new Exception("Resting order " + result.getMakerOrderId(i) + " not found");
+            }
+            double price = result.getPrice(i);
+            double quantity = result.getQuantity(i);
+            Order buy = taker.getOrderType() == OrderType.BUY ? taker : maker;
+            Order sell = taker.getOrderType() == OrderType.BUY ? maker : taker;
+
+            applyFill(buy, price, quantity);
+            applyFill(sell, price, quantity);
+
+            creditAsset(buy.getUser(), coin, quantity);
+            BigDecimal filled = BigDecimal.valueOf(quantity);
+            BigDecimal unusedReserve = buy.getLimitPrice().subtract(BigDecimal.valueOf(price)).multiply(filled);
+            if (unusedReserve.signum() > 0) {
+                walletService.creditBalance(buy.getUser(), unusedReserve, WalletTransactionType.BUY_ASSET,
+                        "limit buy refund " + coin.getSymbol());
+            }
+            walletService.creditBalance(sell.getUser(), BigDecimal.valueOf(price).multiply(filled),
+                    WalletTransactionType.SELL_ASSET, "limit sell " + coin.getSymbol());
+        }
+        orderRepository.saveAll(makers.values());
+    }
+
+    /**
+     * Checks the id a client gave an order. Every way of placing an order, synchronous or
+     * through the ingestion pipeline, ends up here, so the id is validated the same way for all.
+     */
+    private static void checkClientOrderId(String clientOrderId) throws Exception {
+        if (clientOrderId != null && (clientOrderId.isBlank() || clientOrderId.length() > 64)) {
+            throw new Exception("Client order id must be 1 to 64 characters");
+        }
+    }
+
+    /**
+     * Returns what is still reserved for the unfilled quantity of a limit order, the funds at its
+     * limit price for a buy or the coins for a sell, and marks the order CANCELLED.
+     */
+    private void refundRemainder(Order order) throws Exception {
+        OrderItem item = order.getOrderItem();
+        Coin coin = item.getCoin();
+        double remaining = item.getQuantity() - item.getFilledQuantity();
+        if (MatchingEngine.toUnits(remaining) > 0) {
+            if (order.getOrderType() == OrderType.BUY) {
+                walletService.creditBalance(order.getUser(),
+                        order.getLimitPrice().multiply(BigDecimal.valueOf(remaining)),
+                        WalletTransactionType.BUY_ASSET, "limit buy cancel " + coin.getSymbol());
+            } else {
+                creditAsset(order.getUser(), coin, remaining);
+            }
+        }
+        order.setStatus(OrderStatus.CANCELLED);
+    }
+
+    /**
+     * Adds a fill to an order, keeping the average execution price in the item's buy or sell price.
+     */
+    private void applyFill(Order order, double price, double quantity) {
+        OrderItem item = order.getOrderItem();
+        double filledBefore = item.getFilledQuantity();
+        double filledAfter = filledBefore + quantity;
+        if (order.getOrderType() == OrderType.BUY) {
+            item.setBuyPrice((item.getBuyPrice() * filledBefore + price * quantity) / filledAfter);
+        } else {
+            item.setSellPrice((item.getSellPrice() * filledBefore + price * quantity) / filledAfter);
+        }
+        item.setFilledQuantity(filledAfter);
+        boolean complete = MatchingEngine.toUnits(filledAfter) >= MatchingEngine.toUnits(item.getQuantity());
+        order.setStatus(complete ? OrderStatus.SUCCESS : OrderStatus.PARTIALLY_FILLED);
+    }
+
+    private void creditAsset(User user, Coin coin, double quantity) throws Exception {
+        Asset asset = assetService.findAssetByUserIdAndCoinId(user.getId(), coin.getId());
+        if (asset == null) {
+            assetService.createAsset(user, coin, quantity);
+        } else {
+            assetService.updateAsset(asset.getId(), asset.getQuantity() + quantity);
+        }
+    }
 }
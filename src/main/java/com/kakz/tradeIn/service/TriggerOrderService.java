@@ -0,0 +1,16 @@
+package com.kakz.tradeIn.service;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.TriggerType;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.TriggerOrder;
+import com.kakz.tradeIn.model.User;
+
+import java.util.List;
+
+public interface TriggerOrderService {
+    TriggerOrder createTrigger(User user, Coin coin, double quantity, OrderType orderType, TriggerType triggerType,
+                               double triggerPrice) throws Exception;
+    TriggerOrder cancelTrigger(Long triggerId, User user) throws Exception;
+    List<TriggerOrder> getUserTriggers(Long userId);
+}
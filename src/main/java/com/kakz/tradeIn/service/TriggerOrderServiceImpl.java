@@ -0,0 +1,123 @@
+package com.kakz.tradeIn.service;
+
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.TriggerType;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.TriggerOrder;
+import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.repository.TriggerOrderRepository;
+import com.kakz.tradeIn.trigger.TriggerEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Service implementation for stop-loss and take-profit orders.
+ *
+ * A trigger is stored as PENDING before it is added to the {@link TriggerEngine}, so the engine
+ * never fires a trigger that is not in the database yet, and the pending triggers are loaded back
+ * into the engine when the application starts.
+ */
+@Service
+public class TriggerOrderServiceImpl implements TriggerOrderService {
+
+    /**
+     * Repository for the TriggerOrder entities of all users.
+     */
+    @Autowired
+    private TriggerOrderRepository triggerOrderRepository;
+
+    /**
+     * In-memory trigger indexes that fire the pending triggers on price ticks.
+     */
+    @Autowired
+    private TriggerEngine triggerEngine;
+
+    /**
+     * Restores the pending triggers into the engine once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restorePendingTriggers() {
+        List<TriggerOrder> pending = triggerOrderRepository.findByStatus(OrderStatus.PENDING);
+        pending.forEach(triggerEngine::add);
+    }
+
+    /**
+     * Creates a pending trigger that places a market order once the coin's price crosses the trigger price.
+     *
+     * @param user the user placing the trigger
+     * @param coin the coin to trade
+     * @param quantity the quantity of the market order
+     * @param orderType BUY or SELL
+     * @param triggerType STOP_LOSS or TAKE_PROFIT
+     * @param triggerPrice the price at which the market order is placed
+     * @return the saved trigger
+     * @throws Exception if the quantity or price is not positive, or the current price already crossed the trigger price
+     */
+    @Override
+    public TriggerOrder createTrigger(User user, Coin coin, double quantity, OrderType orderType,
+                                      TriggerType triggerType, double triggerPrice) throws Exception {
+        if (quantity <= 0) {
+            throw new Exception("quantity should be > 0");
+        }
+        if (triggerPrice <= 0) {
+            throw new Exception("trigger price should be > 0");
+        }
+        if (orderType == null || triggerType == null) {
+            throw new Exception("order type and trigger type are required");
+        }
+        TriggerOrder trigger = new TriggerOrder();
+        trigger.setUser(user);
+        trigger.setCoinId(coin.getId());
+        trigger.setQuantity(quantity);
+        trigger.setOrderType(orderType);
+        trigger.setTriggerType(triggerType);
+        trigger.setTriggerPrice(BigDecimal.valueOf(triggerPrice));
+        trigger.setStatus(OrderStatus.PENDING);
+        if (trigger.firesOnFall() ? coin.getCurrentPrice() <= triggerPrice : coin.getCurrentPrice() >= triggerPrice) {
+            throw new Exception("Trigger price already reached");
+        }
+
+        TriggerOrder saved = triggerOrderRepository.save(trigger);
+        triggerEngine.add(saved);
+        return saved;
+    }
+
+    /**
+     * Cancels a pending trigger of the given user.
+     *
+     * @param triggerId the id of the trigger
+     * @param user the user who owns the trigger
+     * @return the cancelled trigger
+     * @throws Exception if the trigger does not exist, belongs to another user, or already fired
+     */
+    @Override
+    public TriggerOrder cancelTrigger(Long triggerId, User user) throws Exception {
+        TriggerOrder trigger = triggerOrderRepository.findById(triggerId)
+                .orElseThrow(() -> new Exception("Trigger not found"));
+        if (trigger.getUser().getId() != user.getId()) {
+            throw new Exception("Trigger not found");
+        }
+        if (trigger.getStatus() != OrderStatus.PENDING || !triggerEngine.remove(trigger)) {
+            throw new Exception("Trigger already fired");
+        }
+        trigger.setStatus(OrderStatus.CANCELLED);
+        return triggerOrderRepository.save(trigger);
+    }
+
+    /**
+     * Retrieves the triggers of a user, newest first.
+     *
+     * @param userId the id of the user
+     * @return the user's triggers in every status
+     */
+    @Override
+    public List<TriggerOrder> getUserTriggers(Long userId) {
+        return triggerOrderRepository.findByUserIdOrderByIdDesc(userId);
+    }
+}
@@ -1,14 +1,19 @@
 package com.kakz.tradeIn.service;
 
+import com.kakz.tradeIn.domain.WalletTransactionType;
 import com.kakz.tradeIn.model.Order;
 import com.kakz.tradeIn.model.User;
 import com.kakz.tradeIn.model.Wallet;
 
+import java.math.BigDecimal;
+
 public interface WalletService {
     Wallet getUserWallet(User user);
 
-    Wallet addBalance(Wallet wallet,Long amount);
+    Wallet addBalance(Wallet wallet,Long amount,WalletTransactionType type,String purpose);
     Wallet findWalletById(Long id) throws Exception;
     Wallet walletToWalletTransfer(User sender,Wallet recieverWallet,Long amount) throws Exception;
     Wallet payOrderPayment(Order order, User user) throws Exception;
+    Wallet creditBalance(User user, BigDecimal amount, WalletTransactionType type, String purpose);
+    Wallet applyBalanceChange(Wallet wallet, BigDecimal amount, WalletTransactionType type, String purpose);
 }
@@ -1,10 +1,12 @@
 package com.kakz.tradeIn.service;
 
 import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.domain.WalletTransactionType;
 import com.kakz.tradeIn.model.Order;
 import com.kakz.tradeIn.model.User;
 import com.kakz.tradeIn.model.Wallet;
 import com.kakz.tradeIn.repository.WalletRepository;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +16,9 @@ import java.util.Optional;
 /**
  * WalletServiceImpl handles the operations related to user's wallets such as fetching wallet details,
  * adding balance to the wallet, transferring funds between wallets and processing order payments.
+ *
+ * Every balance change is recorded in the wallet ledger in the same transaction, so a balance
+ * never changes without the entry that explains it.
  */
 @Service
 public class WalletServiceImpl implements WalletService{
@@ -29,6 +34,12 @@ public class WalletServiceImpl implements WalletService{
     @Autowired
     private WalletRepository walletRepository;
 
+    /**
+     * The append-only ledger every balance change is posted to.
+     */
+    @Autowired
+    private WalletTransactionService walletTransactionService;
+
     /**
      * Retrieves the wallet associated with the given user. If no wallet is found, a new wallet is created,
      * associated with the user, and saved to the repository.
@@ -48,19 +59,36 @@ public class WalletServiceImpl implements WalletService{
     }
 
     /**
-     * Adds a specified amount to the balance of the given wallet.
+     * Adds a specified amount to the balance of the given wallet and records it in the ledger.
      *
      * @param wallet the wallet to which the balance will be added
-     * @param amount the amount to add to the wallet's balance
+     * @param amount the amount to add to the wallet's balance; negative to take money out
+     * @param type the type of the ledger entry, such as ADD_MONEY or WITHDRAWAL
+     * @param purpose the purpose recorded with the ledger entry
      * @return the updated Wallet object after the new balance has been saved
      */
     @Override
-    public Wallet addBalance(Wallet wallet, Long amount) {
-        BigDecimal balance = wallet.getBalance();
-        BigDecimal newBalance =balance.add(BigDecimal.valueOf(amount));
-        wallet.setBalance(newBalance);
+    @Transactional
+    public Wallet addBalance(Wallet wallet, Long amount, WalletTransactionType type, String purpose) {
+        return applyBalanceChange(wallet, BigDecimal.valueOf(amount), type, purpose);
+    }
 
-        return walletRepository.save(wallet);
+    /**
+     * Changes the balance of a wallet without any check and posts the change to the ledger.
+     *
+     * @param wallet the wallet to change
+     * @param amount the change to the balance: positive credits the wallet, negative debits it
+     * @param type the type of the ledger entry; not WALLET_TRANSFER
+     * @param purpose the purpose recorded with the ledger entry
+     * @return the saved wallet
+     */
+    @Override
+    @Transactional
+    public Wallet applyBalanceChange(Wallet wallet, BigDecimal amount, WalletTransactionType type, String purpose) {
+        wallet.setBalance(wallet.getBalance().add(amount));
+        Wallet saved = walletRepository.save(wallet);
+        walletTransactionService.post(saved, type, purpose, amount);
+        return saved;
     }
 
     /**
@@ -89,6 +117,7 @@ public class WalletServiceImpl implements WalletService{
      * @throws Exception if the sender has insufficient funds
      */
     @Override
+    @Transactional
     public Wallet walletToWalletTransfer(User sender, Wallet recieverWallet, Long amount) throws Exception {
         Wallet senderWallet = getUserWallet(sender);
         if(senderWallet.getBalance().compareTo(BigDecimal.valueOf(amount))<0){
@@ -98,11 +127,12 @@ public class WalletServiceImpl implements WalletService{
                 getBalance()
                 .subtract(BigDecimal.valueOf(amount));
         senderWallet.setBalance(senderBalance);
-        walletRepository.save(senderWallet);
+        senderWallet = walletRepository.save(senderWallet);
         BigDecimal receiverBalanceUpdated = recieverWallet.getBalance().add(BigDecimal.valueOf(amount));
 
         recieverWallet.setBalance(receiverBalanceUpdated);
-        walletRepository.save(recieverWallet);
+        recieverWallet = walletRepository.save(recieverWallet);
+        walletTransactionService.postTransfer(senderWallet, recieverWallet, "wallet transfer", BigDecimal.valueOf(amount));
         return senderWallet;
     }
 
@@ -117,6 +147,7 @@ public class WalletServiceImpl implements WalletService{
      * @throws Exception if the wallet does not contain sufficient funds for a BUY order.
      */
     @Override
+    @Transactional
     public Wallet payOrderPayment(Order order, User user) throws Exception {
         Wallet wallet = getUserWallet(user);
 
@@ -125,15 +156,38 @@ public class WalletServiceImpl implements WalletService{
             if(newBalance.compareTo(order.getPrice())<0){
                 throw new Exception("Insufficient funds for the Transaction");
             }
-            wallet.setBalance(newBalance);
+            return applyBalanceChange(wallet, order.getPrice().negate(), WalletTransactionType.BUY_ASSET, orderPurpose(order));
         }
         else if(order.getOrderType().equals(OrderType.SELL)){
-            BigDecimal newBalance = wallet.getBalance().add(order.getPrice());
-            wallet.setBalance(newBalance);
-
+            return applyBalanceChange(wallet, order.getPrice(), WalletTransactionType.SELL_ASSET, orderPurpose(order));
         }
-        walletRepository.save(wallet);
-        return wallet;
+        return walletRepository.save(wallet);
     }
 
+    /**
+     * Adds an exact amount to the user's wallet, such as the proceeds of a filled limit order
+     * or the unused part of the funds reserved for it.
+     *
+     * @param user the user whose wallet is credited.
+     * @param amount the amount to add.
+     * @param type the type of the ledger entry, BUY_ASSET or SELL_ASSET for order settlement.
+     * @param purpose the purpose recorded with the ledger entry.
+     * @return the updated Wallet object.
+     */
+    @Override
+    @Transactional
+    public Wallet creditBalance(User user, BigDecimal amount, WalletTransactionType type, String purpose) {
+        return applyBalanceChange(getUserWallet(user), amount, type, purpose);
+    }
+
+    /**
+     * Describes an order in its ledger entry, such as "buy btc".
+     */
+    private static String orderPurpose(Order order) {
+        String side = order.getOrderType() == OrderType.BUY ? "buy" : "sell";
+        if (order.getOrderItem() == null || order.getOrderItem().getCoin() == null) {
+            return side + " order";
+        }
+        return side + " " + order.getOrderItem().getCoin().getSymbol();
+    }
 }
@@ -4,6 +4,7 @@ import com.kakz.tradeIn.domain.WalletTransactionType;
 import com.kakz.tradeIn.model.Wallet;
 import com.kakz.tradeIn.model.WalletTransaction;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public interface WalletTransactionService {
@@ -14,5 +15,9 @@ public interface WalletTransactionService {
                                         Long amount
     );
 
+    List<WalletTransaction> post(Wallet wallet, WalletTransactionType type, String purpose, BigDecimal amount);
+
+    List<WalletTransaction> postTransfer(Wallet sender, Wallet receiver, String purpose, BigDecimal amount);
+
     List<WalletTransaction> getTransactions(Wallet wallet, WalletTransactionType type);
 }
@@ -1,42 +1,140 @@
 package com.kakz.tradeIn.service;
 
+import com.kakz.tradeIn.domain.LedgerAccount;
 import com.kakz.tradeIn.domain.WalletTransactionType;
 import com.kakz.tradeIn.model.Wallet;
 import com.kakz.tradeIn.model.WalletTransaction;
+import com.kakz.tradeIn.repository.WalletTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Implementation of the WalletTransactionService interface.
- * This service handles the creation and retrieval of wallet transactions.
+ * This service appends entries to the double-entry wallet ledger and retrieves a wallet's postings.
+ *
+ * Postings are only persisted, never flushed here: they are inserted at the flush of the
+ * caller's transaction together with the balance change they record, in the same JDBC batches,
+ * and their ids come from a pooled sequence, so recording an entry costs no extra round-trip.
+ * Callers post after changing the balance, so that each wallet posting carries the new balance.
  */
 @Service
 public class WalletTransactionServiceImpl implements WalletTransactionService{
+
+    /**
+     * Repository of the append-only ledger postings.
+     */
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
     /**
-     * Creates a new transaction for a given wallet.
+     * Creates a ledger entry for a change to a wallet balance with the given transfer id.
      *
-     * @param wallet the wallet for which the transaction is to be created
-     * @param type the type of transaction (e.g., WITHDRAWAL, WALLET_TRANSFER)
-     * @param transferId a unique identifier for the transfer
+     * @param wallet the wallet whose balance changed
+     * @param type the type of transaction (e.g., WITHDRAWAL, ADD_MONEY); not WALLET_TRANSFER
+     * @param transferId a unique identifier for the entry, or null to generate one
      * @param purpose the purpose of the transaction
-     * @param amount the amount involved in the transaction
-     * @return the created wallet transaction
+     * @param amount the change to the wallet balance: positive credits the wallet, negative debits it
+     * @return the posting to the wallet, or null for a zero amount
      */
     @Override
     public WalletTransaction createTransaction(Wallet wallet, WalletTransactionType type, String transferId, String purpose, Long amount) {
-        return null;
+        List<WalletTransaction> postings = postEntry(transferId, wallet, type, purpose, BigDecimal.valueOf(amount));
+        return postings.isEmpty() ? null : postings.get(0);
     }
 
     /**
-     * Retrieves a list of wallet transactions based on the given wallet and transaction type.
+     * Records a change to a wallet balance against the platform account of the transaction type:
+     * {@link LedgerAccount#BANK} for deposits and withdrawals, {@link LedgerAccount#MARKET} for
+     * asset buys and sells.
+     *
+     * @param wallet the wallet whose balance changed, already holding the new balance
+     * @param type the type of transaction; not WALLET_TRANSFER
+     * @param purpose the purpose of the transaction
+     * @param amount the change to the wallet balance: positive credits the wallet, negative debits it
+     * @return the posting to the wallet followed by the posting to the platform account, or nothing for a zero amount
+     */
+    @Override
+    public List<WalletTransaction> post(Wallet wallet, WalletTransactionType type, String purpose, BigDecimal amount) {
+        return postEntry(null, wallet, type, purpose, amount);
+    }
+
+    /**
+     * Records a transfer between two wallets as one entry debiting the sender and crediting the receiver.
+     *
+     * @param sender the wallet the money left, already holding its new balance
+     * @param receiver the wallet the money reached, already holding its new balance
+     * @param purpose the purpose of the transfer
+     * @param amount the amount transferred
+     * @return the sender's posting followed by the receiver's
+     */
+    @Override
+    public List<WalletTransaction> postTransfer(Wallet sender, Wallet receiver, String purpose, BigDecimal amount) {
+        String transferId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        return walletTransactionRepository.saveAll(List.of(
+                posting(transferId, now, LedgerAccount.WALLET, sender, WalletTransactionType.WALLET_TRANSFER, purpose, amount.negate()),
+                posting(transferId, now, LedgerAccount.WALLET, receiver, WalletTransactionType.WALLET_TRANSFER, purpose, amount)));
+    }
+
+    /**
+     * Retrieves the postings of a wallet, newest first, optionally of a single transaction type.
      *
      * @param wallet the wallet for which transactions are to be retrieved
-     * @param type the type of transactions to be retrieved (e.g., WITHDRAWAL, WALLET_TRANSFER)
-     * @return a list of wallet transactions that match the given wallet and transaction type
+     * @param type the type of transactions to be retrieved (e.g., WITHDRAWAL, WALLET_TRANSFER), or null for all
+     * @return the wallet's postings that match the given transaction type
      */
     @Override
     public List<WalletTransaction> getTransactions(Wallet wallet, WalletTransactionType type) {
-        return List.of();
+        if (type == null) {
+            return walletTransactionRepository.findByWalletIdOrderByIdDesc(wallet.getId());
+        }
+        return walletTransactionRepository.findByWalletIdAndWalletTransactionTypeOrderByIdDesc(wallet.getId(), type);
+    }
+
+    private List<WalletTransaction> postEntry(String transferId, Wallet wallet, WalletTransactionType type,
+                                              String purpose, BigDecimal amount) {
+        if (amount.signum() == 0) {
+            return List.of();
+        }
+        String entryId = transferId != null ? transferId : UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        return walletTransactionRepository.saveAll(List.of(
+                posting(entryId, now, LedgerAccount.WALLET, wallet, type, purpose, amount),
+                posting(entryId, now, counterAccount(type), null, type, purpose, amount.negate())));
+    }
+
+    /**
+     * Builds a posting; a positive amount is a credit and a negative one a debit.
+     */
+    private WalletTransaction posting(String transferId, LocalDateTime timestamp, LedgerAccount account,
+                                      Wallet wallet, WalletTransactionType type, String purpose, BigDecimal amount) {
+        WalletTransaction posting = new WalletTransaction();
+        posting.setTransferId(transferId);
+        posting.setTimestamp(timestamp);
+        posting.setDate(timestamp.toLocalDate());
+        posting.setAccount(account);
+        posting.setWallet(wallet);
+        posting.setWalletTransactionType(type);
+        posting.setPurpose(purpose);
+        if (amount.signum() >= 0) {
+            posting.setCredit(amount);
+        } else {
+            posting.setDebit(amount.negate());
+        }
+        posting.setBalanceAfter(wallet == null ? null : wallet.getBalance());
+        return posting;
+    }
+
+    private static LedgerAccount counterAccount(WalletTransactionType type) {
+        return switch (type) {
+            case ADD_MONEY, WITHDRAWAL -> LedgerAccount.BANK;
+            case BUY_ASSET, SELL_ASSET -> LedgerAccount.MARKET;
+            case WALLET_TRANSFER -> throw new IllegalArgumentException("Wallet transfers are posted with postTransfer");
+        };
     }
 }
@@ -0,0 +1,309 @@
+package com.kakz.tradeIn.trigger;
+
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.matching.MatchingEngine;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.model.TriggerOrder;
+import com.kakz.tradeIn.repository.CoinRepository;
+import com.kakz.tradeIn.repository.OrderRepository;
+import com.kakz.tradeIn.repository.TriggerOrderRepository;
+import com.kakz.tradeIn.service.OrderService;
+import com.kakz.tradeIn.utils.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fires stop-loss and take-profit triggers when a price tick crosses them.
+ *
+ * Every coin with resting triggers has a {@link TriggerIndex}. The market snapshot poller hands
+ * each batch of refreshed prices to {@link #onPrices(List)}, which pops the crossed triggers off
+ * their indexes and queues them; nothing is read from the database on the tick path. A single
+ * worker thread takes the queued triggers, up to the batch size, and places their market orders
+ * through {@link OrderService#processOrder} in one transaction. If any order of a batch is
+ * rejected the batch is rolled back and its triggers are placed again one per transaction, so a
+ * rejected trigger never affects the others. The order of a trigger is placed with the client
+ * order id {@code trigger-<id>}, so a trigger can never trade twice.
+ */
+@Component
+public class TriggerEngine {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TriggerOrderRepository triggerOrderRepository;
+
+    @Autowired
+    private CoinRepository coinRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Largest number of fired triggers placed in one transaction.
+     */
+    @Value("${orders.triggers.batch-size:64}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+    private Thread worker;
+    private volatile boolean running;
+
+    private final Map<String, TriggerIndex> indexes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Fired> fired = new LinkedBlockingQueue<>();
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder firedCount = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedTriggers = new LongAdder();
+    private final LongAdder batchRetries = new LongAdder();
+    private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+    private final LatencyHistogram tickToFireLatency = new LatencyHistogram();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        worker = new Thread(this::consume, "trigger-engine");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the worker once it has placed the triggers already fired.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Adds a pending trigger to the index of its coin.
+     */
+    public void add(TriggerOrder trigger) {
+        indexes.computeIfAbsent(trigger.getCoinId(), coinId -> new TriggerIndex())
+                .add(trigger.getId(), trigger.firesOnFall(), MatchingEngine.toUnits(trigger.getTriggerPrice().doubleValue()));
+    }
+
+    /**
+     * Removes a pending trigger from the index of its coin.
+     *
+     * @return false if the trigger is not resting, because it already fired
+     */
+    public boolean remove(TriggerOrder trigger) {
+        TriggerIndex index = indexes.get(trigger.getCoinId());
+        return index != null && index.remove(trigger.getId(), trigger.firesOnFall(),
+                MatchingEngine.toUnits(trigger.getTriggerPrice().doubleValue()));
+    }
+
+    /**
+     * Fires the triggers crossed by the given prices and queues them for the worker.
+     */
+    public void onPrices(List<Coin> coins) {
+        long tickNanos = System.nanoTime();
+        ticks.increment();
+        for (Coin coin : coins) {
+            TriggerIndex index = indexes.get(coin.getId());
+            if (index == null) {
+                continue;
+            }
+            int count = index.fire(MatchingEngine.toUnits(coin.getCurrentPrice()),
+                    triggerId -> fired.add(new Fired(triggerId, tickNanos)));
+            firedCount.add(count);
+        }
+        evaluationLatency.recordSince(tickNanos);
+    }
+
+    /**
+     * Returns the trigger counts, how long a tick takes to evaluate and how long a fired trigger
+     * takes from its tick to its committed order.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int resting = 0;
+        for (TriggerIndex index : indexes.values()) {
+            resting += index.size();
+        }
+        long batchCount = batches.sum();
+        metrics.put("coins", indexes.size());
+        metrics.put("resting", resting);
+        metrics.put("queued", fired.size());
+        metrics.put("ticks", ticks.sum());
+        metrics.put("fired", firedCount.sum());
+        metrics.put("executed", executed.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("averageBatchSize", batchCount == 0 ? 0 : (double) batchedTriggers.sum() / batchCount);
+        metrics.put("batchRetries", batchRetries.sum());
+        metrics.put("evaluationLatency", evaluationLatency.snapshot());
+        metrics.put("tickToFireLatency", tickToFireLatency.snapshot());
+        return metrics;
+    }
+
+    private void consume() {
+        List<Fired> batch = new ArrayList<>(batchSize);
+        while (running || !fired.isEmpty()) {
+            try {
+                Fired first = fired.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fired.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Error: trigger batch failed: " + e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void processBatch(List<Fired> batch) {
+        batches.increment();
+        batchedTriggers.add(batch.size());
+        if (batch.size() == 1) {
+            processAlone(batch.get(0));
+            return;
+        }
+        int placed;
+        try {
+            placed = transactionTemplate.execute(status -> {
+                List<TriggerOrder> triggers = triggerOrderRepository.findAllById(
+                        batch.stream().map(Fired::triggerId).toList());
+                Map<String, Coin> coins = coinRepository.findAllById(
+                                triggers.stream().map(TriggerOrder::getCoinId).distinct().toList())
+                        .stream().collect(Collectors.toMap(Coin::getId, Function.identity()));
+                int count = 0;
+                for (TriggerOrder trigger : triggers) {
+                    if (execute(trigger, coins.get(trigger.getCoinId()))) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+        } catch (RuntimeException e) {
+            batchRetries.increment();
+            for (Fired entry : batch) {
+                processAlone(entry);
+            }
+            return;
+        }
+        executed.add(placed);
+        for (Fired entry : batch) {
+            tickToFireLatency.recordSince(entry.tickNanos());
+        }
+    }
+
+    private void processAlone(Fired entry) {
+        try {
+            Boolean placed = transactionTemplate.execute(status -> triggerOrderRepository.findById(entry.triggerId())
+                    .map(trigger -> execute(trigger, coinRepository.findById(trigger.getCoinId()).orElse(null)))
+                    .orElse(false));
+            if (Boolean.TRUE.equals(placed)) {
+                executed.increment();
+            }
+        } catch (DataIntegrityViolationException e) {
+            // The order was already placed before a restart; link the trigger to it.
+            Boolean linked = transactionTemplate.execute(status -> triggerOrderRepository.findById(entry.triggerId())
+                    .map(trigger -> {
+                        Order order = orderRepository.findByUserIdAndClientOrderId(trigger.getUser().getId(),
+                                clientOrderId(trigger));
+                        trigger.setStatus(order == null ? OrderStatus.ERROR : OrderStatus.SUCCESS);
+                        trigger.setOrderId(order == null ? null : order.getId());
+                        trigger.setFiredAt(LocalDateTime.now());
+                        return order != null;
+                    })
+                    .orElse(false));
+            if (Boolean.TRUE.equals(linked)) {
+                executed.increment();
+            }
+        } catch (RuntimeException e) {
+            String error = e instanceof TriggerRejectedException ? e.getCause().getMessage() : e.getMessage();
+            if (!(e instanceof TriggerRejectedException)) {
+                System.err.println("Trigger " + entry.triggerId() + " failed: " + e.getMessage());
+            }
+            transactionTemplate.executeWithoutResult(status -> triggerOrderRepository.findById(entry.triggerId())
+                    .ifPresent(trigger -> {
+                        trigger.setStatus(OrderStatus.ERROR);
+                        trigger.setError(error);
+                        trigger.setFiredAt(LocalDateTime.now());
+                    }));
+            failed.increment();
+        }
+        tickToFireLatency.recordSince(entry.tickNanos());
+    }
+
+    /**
+     * Places the order of a fired trigger.
+     *
+     * @return false if the trigger was no longer pending, because it was cancelled or already fired
+     */
+    private boolean execute(TriggerOrder trigger, Coin coin) {
+        if (trigger.getStatus() != OrderStatus.PENDING) {
+            return false;
+        }
+        if (coin == null) {
+            throw new TriggerRejectedException(new Exception("Coin not found"));
+        }
+        Order order;
+        try {
+            order = orderService.processOrder(coin, trigger.getQuantity(), trigger.getOrderType(), trigger.getUser(),
+                    clientOrderId(trigger));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TriggerRejectedException(e);
+        }
+        trigger.setStatus(OrderStatus.SUCCESS);
+        trigger.setOrderId(order.getId());
+        trigger.setFiredAt(LocalDateTime.now());
+        return true;
+    }
+
+    private static String clientOrderId(TriggerOrder trigger) {
+        return "trigger-" + trigger.getId();
+    }
+
+    private record Fired(long triggerId, long tickNanos) {
+    }
+
+    /**
+     * Carries a checked exception thrown by the order service out of a transaction callback,
+     * rolling the transaction back.
+     */
+    private static final class TriggerRejectedException extends RuntimeException {
+        private TriggerRejectedException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.kakz.tradeIn.trigger;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * The resting triggers of one coin, sorted by trigger price in primitive arrays.
+ *
+ * Triggers that fire on a falling price are keyed by their trigger price and triggers that fire
+ * on a rising price by its negation, so on both sides the triggers a tick crosses are the ones at
+ * the end of the array. A tick pops them from the end and stops at the first trigger it did not
+ * cross, which makes its cost proportional to the number of triggers fired, not resting. Triggers
+ * with the same price are kept oldest last, so they fire in the order they were placed.
+ *
+ * Prices are fixed-point units of {@link com.kakz.tradeIn.matching.MatchingEngine#SCALE}. The
+ * index is shared by the tick thread and the request threads, so every method is synchronized.
+ */
+final class TriggerIndex {
+
+    private final Side falling = new Side();
+    private final Side rising = new Side();
+
+    synchronized void add(long triggerId, boolean firesOnFall, long price) {
+        if (firesOnFall) {
+            falling.insert(price, triggerId);
+        } else {
+            rising.insert(-price, triggerId);
+        }
+    }
+
+    /**
+     * Removes a trigger that has not fired yet.
+     *
+     * @return false if the trigger is not in the index, because it already fired or was removed
+     */
+    synchronized boolean remove(long triggerId, boolean firesOnFall, long price) {
+        return firesOnFall ? falling.remove(price, triggerId) : rising.remove(-price, triggerId);
+    }
+
+    /**
+     * Removes every trigger the given price crossed and passes its id to the consumer.
+     *
+     * @return the number of triggers fired
+     */
+    synchronized int fire(long price, LongConsumer fired) {
+        return falling.popFrom(price, fired) + rising.popFrom(-price, fired);
+    }
+
+    synchronized int size() {
+        return falling.size + rising.size;
+    }
+
+    /**
+     * Trigger ids sorted by ascending key; equal keys are in reverse insertion order.
+     */
+    private static final class Side {
+        private long[] keys = new long[16];
+        private long[] ids = new long[16];
+        private int size;
+
+        void insert(long key, long id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int index = lowerBound(key);
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            keys[index] = key;
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(long key, long id) {
+            for (int i = lowerBound(key); i < size && keys[i] == key; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Pops every entry whose key is at least the threshold.
+         */
+        int popFrom(long threshold, LongConsumer fired) {
+            int count = 0;
+            while (size > 0 && keys[size - 1] >= threshold) {
+                size--;
+                fired.accept(ids[size]);
+                count++;
+            }
+            return count;
+        }
+
+        private int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
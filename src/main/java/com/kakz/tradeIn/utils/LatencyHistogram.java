@@ -0,0 +1,133 @@
+package com.kakz.tradeIn.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ *
+ * Every power of two is split into eight sub-buckets, so any recorded value is
+ * reported with at most 12.5% error while the whole histogram stays a fixed
+ * array of a few hundred counters. Recording is a handful of atomic increments
+ * and never allocates, which keeps it cheap enough to leave enabled on hot paths.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single latency sample.
+     *
+     * @param nanos the measured duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(indexOf(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry until we either win or someone recorded a larger value
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} reading.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} taken at the start of the measured section
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the value below which the given percentage of samples fall.
+     *
+     * @param percentile a percentile between 0 and 100
+     * @return the upper bound, in nanoseconds, of the bucket holding that percentile
+     */
+    public long valueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Builds a JSON friendly summary of the histogram with values in milliseconds.
+     *
+     * @return count, mean, selected percentiles and max
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long samples = count.sum();
+        snapshot.put("count", samples);
+        snapshot.put("meanMillis", samples == 0 ? 0.0 : toMillis(totalNanos.sum() / samples));
+        snapshot.put("p50Millis", toMillis(valueAtPercentile(50)));
+        snapshot.put("p90Millis", toMillis(valueAtPercentile(90)));
+        snapshot.put("p99Millis", toMillis(valueAtPercentile(99)));
+        snapshot.put("p999Millis", toMillis(valueAtPercentile(99.9)));
+        snapshot.put("maxMillis", toMillis(maxNanos.get()));
+        return snapshot;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int group = index / SUB_BUCKETS;
+        int mantissa = index % SUB_BUCKETS;
+        int exponent = group + SUB_BUCKET_BITS - 1;
+        return ((long) (SUB_BUCKETS + mantissa)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long upperBound(int index) {
+        if (index + 1 >= BUCKET_COUNT) {
+            return Long.MAX_VALUE;
+        }
+        return lowerBound(index + 1) - 1;
+    }
+}
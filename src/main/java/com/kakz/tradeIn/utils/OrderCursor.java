@@ -0,0 +1,67 @@
+package com.kakz.tradeIn.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque position in a user's order history, newest first: the timestamp and id of the last
+ * order on the previous page. The next page starts strictly after that (timestamp, id) pair, so
+ * it is found with an index seek however deep into the history it is.
+ */
+public final class OrderCursor {
+
+    /**
+     * Position before the newest possible order, used for the first page. It is the latest
+     * value a MySQL DATETIME column can hold.
+     */
+    public static final OrderCursor START = new OrderCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    private OrderCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * Returns the cursor pointing just after the order with the given timestamp and id.
+     */
+    public static OrderCursor after(LocalDateTime timestamp, long id) {
+        return new OrderCursor(timestamp, id);
+    }
+
+    /**
+     * Decodes a cursor returned by {@link #encode()}, or returns {@link #START} for null or blank.
+     *
+     * @throws Exception if the cursor was not produced by {@link #encode()}
+     */
+    public static OrderCursor decode(String cursor) throws Exception {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new OrderCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new Exception("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
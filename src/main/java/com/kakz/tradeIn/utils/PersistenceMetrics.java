@@ -0,0 +1,56 @@
+package com.kakz.tradeIn.utils;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports Hibernate's statement and entity counters, so that the number of SQL statements per
+ * committed transaction can be compared before and after a change to a write path.
+ *
+ * Counting needs {@code spring.jpa.properties.hibernate.generate_statistics=true}; the counters
+ * are cumulative since startup or the last {@link #reset()}.
+ */
+@Component
+public class PersistenceMetrics {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Returns the statement, batch, entity and transaction counters and their ratio per transaction.
+     */
+    public Map<String, Object> metrics() {
+        Statistics statistics = statistics();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", statistics.isStatisticsEnabled());
+        long transactions = statistics.getSuccessfulTransactionCount();
+        long statements = statistics.getPrepareStatementCount();
+        metrics.put("transactions", transactions);
+        metrics.put("preparedStatements", statements);
+        metrics.put("queries", statistics.getQueryExecutionCount());
+        metrics.put("entityLoads", statistics.getEntityLoadCount());
+        metrics.put("entityInserts", statistics.getEntityInsertCount());
+        metrics.put("entityUpdates", statistics.getEntityUpdateCount());
+        metrics.put("entityDeletes", statistics.getEntityDeleteCount());
+        metrics.put("flushes", statistics.getFlushCount());
+        metrics.put("statementsPerTransaction", transactions == 0 ? 0 : (double) statements / transactions);
+        return metrics;
+    }
+
+    /**
+     * Clears the counters, to start a fresh measurement.
+     */
+    public void reset() {
+        statistics().clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,113 @@
+package com.kakz.tradeIn.utils;
+
+import com.kakz.tradeIn.domain.OrderType;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of every stage of a market order placed through {@code /api/orders/pay}, kept apart
+ * for buys and sells.
+ *
+ * The controller traces the request's thread with {@link #begin(OrderType)} and {@link #end()},
+ * and stages are only recorded on a traced thread. The same service methods also place orders
+ * for the ingestion pipeline and for fired triggers, and those are not counted. A retry answered
+ * by the order deduplicator places no order, so it only counts towards the authentication and
+ * coin lookup stages.
+ *
+ * Each stage has its own {@link LatencyHistogram}, allocated up front and indexed by side and
+ * stage, so recording a stage is one {@link System#nanoTime()} call plus a few atomic increments.
+ * {@link #record} returns the time it read, so consecutive stages are timed with one clock read
+ * per stage boundary.
+ */
+@Component
+public class TradeStageMetrics {
+
+    /**
+     * The stages of a market order, in the order they run.
+     */
+    public enum Stage {
+        /** Parsing the JWT and loading the user, in the controller. */
+        AUTHENTICATION("authentication"),
+        /** Loading the coin, in the controller. */
+        COIN_LOOKUP("coinLookup"),
+        /** Loading the user's asset in the coin. */
+        ASSET_LOOKUP("assetLookup"),
+        /** Building the order and its item. */
+        BUILD_ORDER("buildOrder"),
+        /** Charging or crediting the wallet. */
+        WALLET_PAYMENT("walletPayment"),
+        /** Creating, topping up, reducing or deleting the asset. */
+        ASSET_UPDATE("assetUpdate"),
+        /** Saving the order; with batching this only queues the inserts. */
+        SAVE_ORDER("saveOrder"),
+        /** The whole service call, including the flush and commit after the stages above. */
+        EXECUTION("execution"),
+        /** The whole request, from receiving it to having the order. */
+        TOTAL("total");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    private final LatencyHistogram[][] histograms = new LatencyHistogram[OrderType.values().length][Stage.values().length];
+    private final ThreadLocal<OrderType> traced = new ThreadLocal<>();
+
+    public TradeStageMetrics() {
+        for (LatencyHistogram[] side : histograms) {
+            for (int i = 0; i < side.length; i++) {
+                side[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Starts recording the stages of a {@code /api/orders/pay} market order on the current thread.
+     *
+     * @param orderType the side of the order, or null for an order whose stages are not recorded
+     */
+    public void begin(OrderType orderType) {
+        traced.set(orderType);
+    }
+
+    /**
+     * Stops recording stages on the current thread.
+     */
+    public void end() {
+        traced.remove();
+    }
+
+    /**
+     * Records a stage that started at the given {@link System#nanoTime()} reading and ended now,
+     * if the current thread is traced.
+     *
+     * @return the current {@link System#nanoTime()}, to use as the start of the next stage
+     */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        OrderType orderType = traced.get();
+        if (orderType != null) {
+            histograms[orderType.ordinal()][stage.ordinal()].record(now - startNanos);
+        }
+        return now;
+    }
+
+    /**
+     * Returns the latency percentiles of every stage, by side.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (OrderType orderType : OrderType.values()) {
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (Stage stage : Stage.values()) {
+                stages.put(stage.key, histograms[orderType.ordinal()][stage.ordinal()].snapshot());
+            }
+            metrics.put(orderType.name(), stages);
+        }
+        return metrics;
+    }
+}
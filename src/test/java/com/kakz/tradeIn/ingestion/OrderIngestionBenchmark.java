@@ -0,0 +1,185 @@
+package com.kakz.tradeIn.ingestion;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.matching.DepthFeed;
+import com.kakz.tradeIn.matching.MatchingEngine;
+import com.kakz.tradeIn.matching.OrderJournal;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.model.Wallet;
+import com.kakz.tradeIn.repository.AssetRepository;
+import com.kakz.tradeIn.repository.CoinRepository;
+import com.kakz.tradeIn.repository.UserRepository;
+import com.kakz.tradeIn.repository.WalletRepository;
+import com.kakz.tradeIn.service.AssetServiceImpl;
+import com.kakz.tradeIn.service.OrderService;
+import com.kakz.tradeIn.service.OrderServiceImpl;
+import com.kakz.tradeIn.service.WalletServiceImpl;
+import com.kakz.tradeIn.service.WalletTransactionServiceImpl;
+import com.kakz.tradeIn.utils.TradeStageMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how many market orders per second reach the database through the ingestion pipeline,
+ * with its per-shard ring buffers and batched transactions, against producers calling
+ * {@code processOrder} directly with one transaction per order. Runs on H2, so the numbers
+ * compare the two paths rather than predict production. Skipped unless run with
+ * {@code mvn test -Dtest=OrderIngestionBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestion;MODE=MySQL;NON_KEYWORDS=USER,TIMESTAMP",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=" + (OrderIngestionBenchmark.PRODUCERS + 4),
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "orders.ingestion.shards=4"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderIngestionPipeline.class, OrderServiceImpl.class, WalletServiceImpl.class,
+        WalletTransactionServiceImpl.class, AssetServiceImpl.class, MatchingEngine.class, OrderJournal.class,
+        DepthFeed.class, TradeStageMetrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderIngestionBenchmark {
+
+    static final int PRODUCERS = 8;
+    private static final int ORDERS_PER_PRODUCER = 2_000;
+
+    @Autowired
+    private OrderIngestionPipeline pipeline;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private CoinRepository coinRepository;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Test
+    void submitAgainstDirectProcessOrder() throws Exception {
+        Coin coin = new Coin();
+        coin.setId("bitcoin");
+        coin.setSymbol("btc");
+        coin.setName("Bitcoin");
+        coin.setCurrentPrice(100);
+        coinRepository.save(coin);
+
+        List<User> warmup = users("warmup", PRODUCERS);
+        run(warmup, coin, true, ORDERS_PER_PRODUCER / 4);
+        run(warmup, coin, false, ORDERS_PER_PRODUCER / 4);
+
+        List<User> submitting = users("submit", PRODUCERS);
+        long nanos = run(submitting, coin, true, ORDERS_PER_PRODUCER);
+        report("submit", nanos);
+        System.out.printf("submit: %s orders per batch%n", pipeline.metrics().get("averageBatchSize"));
+
+        List<User> direct = users("direct", PRODUCERS);
+        report("processOrder", run(direct, coin, false, ORDERS_PER_PRODUCER));
+
+        for (User user : submitting) {
+            assertThat(assetRepository.findByUserIdAndCoinId(user.getId(), coin.getId()).getQuantity())
+                    .isEqualTo(ORDERS_PER_PRODUCER);
+        }
+    }
+
+    /**
+     * Has one thread per user place the given number of one-coin buys and returns the time until
+     * every order is in the database.
+     */
+    private long run(List<User> users, Coin coin, boolean submit, int orders) throws InterruptedException {
+        ConcurrentLinkedQueue<OrderTicket> tickets = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Exception> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> producers = new ArrayList<>();
+        for (User user : users) {
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < orders; i++) {
+                    try {
+                        if (submit) {
+                            OrderTicket ticket;
+                            while ((ticket = trySubmit(user, coin)) == null) {
+                                Thread.yield();
+                            }
+                            tickets.add(ticket);
+                        } else {
+                            orderService.processOrder(coin, 1, OrderType.BUY, user, null);
+                        }
+                    } catch (Exception e) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (OrderTicket ticket : tickets) {
+            while (ticket.getStatus() == OrderTicket.Status.PENDING) {
+                Thread.sleep(1);
+            }
+            assertThat(ticket.getError()).isNull();
+        }
+        long nanos = System.nanoTime() - start;
+        assertThat(errors).isEmpty();
+        return nanos;
+    }
+
+    /**
+     * Submits one buy, or returns null if the user's shard is full.
+     */
+    private OrderTicket trySubmit(User user, Coin coin) throws Exception {
+        try {
+            return pipeline.submit(user, coin.getId(), OrderType.BUY, 1, 0, null);
+        } catch (Exception e) {
+            if (e.getMessage().startsWith("Too many pending orders")) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private List<User> users(String prefix, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setEmail(prefix + i + "@example.com");
+            user = userRepository.save(user);
+            Wallet wallet = new Wallet();
+            wallet.setUser(user);
+            wallet.setBalance(BigDecimal.valueOf(1_000_000_000L));
+            walletRepository.save(wallet);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static void report(String name, long nanos) {
+        int orders = PRODUCERS * ORDERS_PER_PRODUCER;
+        System.out.printf("%s: %d orders from %d producers in %.1f ms, %.0f orders/s%n",
+                name, orders, PRODUCERS, nanos / 1e6, orders * 1e9 / nanos);
+    }
+}
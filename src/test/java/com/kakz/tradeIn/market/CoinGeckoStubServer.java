@@ -0,0 +1,69 @@
+package com.kakz.tradeIn.market;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for CoinGecko, so tests can simulate outages and slow responses.
+ *
+ * Every request is answered with the currently configured status, body and delay, whatever its path.
+ */
+class CoinGeckoStubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile int status = 200;
+    private volatile String body = "{\"gecko_says\":\"(V3) To the Moon!\"}";
+    private volatile long delayMs;
+
+    CoinGeckoStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void respond(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    void delay(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
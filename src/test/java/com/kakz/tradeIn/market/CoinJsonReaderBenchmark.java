@@ -0,0 +1,139 @@
+package com.kakz.tradeIn.market;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kakz.tradeIn.model.Coin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the bytes allocated and the time taken to decode one {@code /coins/markets} page and
+ * one {@code /coins/{id}} payload, the way the service used to (the body as a {@code String},
+ * then {@code readValue} or a {@code JsonNode} tree) and with {@link CoinJsonReader}.
+ *
+ * The payloads are read from {@code markets.json} and {@code coins/bitcoin.json} under
+ * {@code -Dmarket.replay.dir}, the layout {@link ReplayMarketDataSource} serves, and otherwise
+ * from the copies under {@code src/test/resources/replay}. Skipped unless run with
+ * {@code mvn test -Dtest=CoinJsonReaderBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CoinJsonReaderBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 2_000;
+    private static final TypeReference<List<Coin>> COINS = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CoinJsonReader reader = new CoinJsonReader(objectMapper);
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void marketsPage() throws Exception {
+        byte[] body = payload("markets.json");
+        List<Coin> bound = objectMapper.readValue(new String(body, StandardCharsets.UTF_8), COINS);
+        List<Coin> streamed = reader.readMarkets(new ByteArrayInputStream(body));
+        assertThat(streamed).hasSize(bound.size()).isEqualTo(bound);
+
+        measure("markets, String + readValue", body,
+                () -> objectMapper.readValue(new String(body, StandardCharsets.UTF_8), COINS));
+        measure("markets, String + JsonNode tree", body, () -> {
+            List<Coin> coins = new ArrayList<>();
+            for (JsonNode coin : objectMapper.readTree(new String(body, StandardCharsets.UTF_8))) {
+                coins.add(objectMapper.treeToValue(coin, Coin.class));
+            }
+            return coins;
+        });
+        measure("markets, CoinJsonReader", body, () -> reader.readMarkets(new ByteArrayInputStream(body)));
+    }
+
+    @Test
+    void coinDetails() throws Exception {
+        byte[] body = payload("coins/bitcoin.json");
+        Coin tree = detailsFromTree(new String(body, StandardCharsets.UTF_8));
+        Coin streamed = reader.readDetails(new ByteArrayInputStream(body));
+        assertThat(streamed.getId()).isEqualTo(tree.getId());
+        assertThat(streamed.getCurrentPrice()).isEqualTo(tree.getCurrentPrice());
+        assertThat(streamed.getMarketCap()).isEqualTo(tree.getMarketCap());
+        assertThat(streamed.getCirculatingSupply()).isEqualTo(tree.getCirculatingSupply());
+
+        measure("details, String + JsonNode tree", body,
+                () -> detailsFromTree(new String(body, StandardCharsets.UTF_8)));
+        measure("details, CoinJsonReader", body, () -> reader.readDetails(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Picks the stored fields out of a {@code /coins/{id}} tree, as getCoinDetails did before
+     * it streamed the body.
+     */
+    private Coin detailsFromTree(String body) throws IOException {
+        JsonNode jsonNode = objectMapper.readTree(body);
+        Coin coin = new Coin();
+        coin.setId(jsonNode.get("id").asText());
+        coin.setName(jsonNode.get("name").asText());
+        coin.setSymbol(jsonNode.get("symbol").asText());
+        coin.setImage(jsonNode.get("image").get("large").asText());
+        JsonNode marketData = jsonNode.get("market_data");
+        coin.setCurrentPrice(marketData.get("current_price").get("usd").asDouble());
+        coin.setMarketCap(marketData.get("market_cap").get("usd").asLong());
+        coin.setMarketCapRank(jsonNode.get("market_cap_rank").asInt());
+        coin.setTotalVolume(marketData.get("total_volume").get("usd").asLong());
+        coin.setHigh24h(marketData.get("high_24h").get("usd").asDouble());
+        coin.setLow24h(marketData.get("low_24h").get("usd").asDouble());
+        coin.setPriceChange24h(marketData.get("price_change_24h").asDouble());
+        coin.setPriceChangePercentage24h(marketData.get("price_change_percentage_24h").asDouble());
+        coin.setMarketCapChange24h(marketData.get("market_cap_change_24h").asLong());
+        coin.setMarketCapChangePercentage24h(marketData.get("market_cap_change_percentage_24h").asDouble());
+        coin.setCirculatingSupply(marketData.get("circulating_supply").asLong());
+        coin.setTotalSupply(marketData.get("total_supply").asLong());
+        return coin;
+    }
+
+    private void measure(String name, byte[] body, Decoder decoder) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            decoder.decode();
+        }
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoder.decode();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        System.out.printf("%s: %d byte body, %d bytes allocated and %.1f us per response%n",
+                name, body.length, allocated / ITERATIONS, nanos / 1e3 / ITERATIONS);
+    }
+
+    private static byte[] payload(String name) throws IOException {
+        String replayDir = System.getProperty("market.replay.dir");
+        if (replayDir != null) {
+            return Files.readAllBytes(Paths.get(replayDir).resolve(name));
+        }
+        try (InputStream in = CoinJsonReaderBenchmark.class.getResourceAsStream("/replay/" + name)) {
+            if (in == null) {
+                throw new IOException("No recorded payload " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private interface Decoder {
+        Object decode() throws IOException;
+    }
+}
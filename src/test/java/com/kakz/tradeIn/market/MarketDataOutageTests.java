@@ -0,0 +1,135 @@
+package com.kakz.tradeIn.market;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MarketDataOutageTests {
+
+    private CoinGeckoStubServer stub;
+    private MarketCircuitBreaker breaker;
+    private MarketDataGateway gateway;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new CoinGeckoStubServer();
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("market.gateway.markets.read-timeout-ms", "1000");
+
+        MarketRateLimiter rateLimiter = new MarketRateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "requestsPerMinute", 60_000.0);
+        ReflectionTestUtils.setField(rateLimiter, "burst", 100);
+        ReflectionTestUtils.setField(rateLimiter, "queueCapacity", 10);
+        ReflectionTestUtils.setField(rateLimiter, "defaultRetryAfterMs", 1000L);
+        ReflectionTestUtils.setField(rateLimiter, "environment", environment);
+        rateLimiter.init();
+
+        breaker = new MarketCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 2);
+        ReflectionTestUtils.setField(breaker, "slowCallMs", 200L);
+        ReflectionTestUtils.setField(breaker, "openMs", 0L);
+
+        gateway = new MarketDataGateway();
+        ReflectionTestUtils.setField(gateway, "baseUrl", stub.baseUrl());
+        ReflectionTestUtils.setField(gateway, "apiKey", "");
+        ReflectionTestUtils.setField(gateway, "connectTimeoutMs", 1000);
+        ReflectionTestUtils.setField(gateway, "environment", environment);
+        ReflectionTestUtils.setField(gateway, "marketRateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(gateway, "marketCircuitBreaker", breaker);
+        gateway.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void breakerOpensOnOutageAndFailsFast() {
+        stub.respond(503, "{\"error\":\"unavailable\"}");
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> gateway.getString(MarketEndpoint.MARKETS, "/coins/markets"))
+                    .isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.OPEN);
+
+        int requestsBefore = stub.requestCount();
+        assertThatThrownBy(() -> gateway.getString(MarketEndpoint.MARKETS, "/coins/markets"))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(stub.requestCount()).isEqualTo(requestsBefore);
+    }
+
+    @Test
+    void slowResponsesOpenTheBreaker() {
+        stub.delay(300);
+
+        gateway.getString(MarketEndpoint.MARKETS, "/coins/markets");
+        gateway.getString(MarketEndpoint.MARKETS, "/coins/markets");
+
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void lateSuccessDoesNotCloseAnOpenBreaker() throws Exception {
+        stub.delay(100);
+        Thread inFlight = new Thread(() -> gateway.getString(MarketEndpoint.MARKETS, "/coins/markets"));
+        inFlight.start();
+        while (stub.requestCount() == 0) {
+            Thread.onSpinWait();
+        }
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.OPEN);
+
+        inFlight.join();
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> gateway.getString(MarketEndpoint.MARKETS, "/coins/markets"))
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    @Test
+    void probeClosesTheBreakerOnceUpstreamRecovers() {
+        stub.respond(503, "{}");
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        gateway.probe();
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.OPEN);
+
+        stub.respond(200, "{\"gecko_says\":\"(V3) To the Moon!\"}");
+        gateway.probe();
+        assertThat(breaker.getState()).isEqualTo(MarketCircuitBreaker.State.CLOSED);
+        assertThat(gateway.getString(MarketEndpoint.MARKETS, "/coins/markets")).contains("gecko_says");
+    }
+
+    @Test
+    void cacheServesLastKnownGoodValueWhenLoadFails() throws Exception {
+        MarketDataCache cache = new MarketDataCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        ReflectionTestUtils.setField(cache, "maxStaleMs", 0L);
+        try {
+            cache.put("trending", "last-known-good", Duration.ZERO);
+
+            String value = cache.get("trending", Duration.ofMinutes(1), () -> {
+                throw new Exception("upstream down");
+            });
+
+            assertThat(value).isEqualTo("last-known-good");
+            assertThatThrownBy(() -> cache.get("cold", Duration.ofMinutes(1), () -> {
+                throw new Exception("upstream down");
+            })).hasMessage("upstream down");
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.kakz.tradeIn.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how many orders a single book rests and matches per second. The book is seeded with
+ * resting orders on both sides, then takes random buys and sells around the same price, so most
+ * orders cross and whatever is left rests. Skipped unless run with
+ * {@code mvn test -Dtest=OrderBookBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderBookBenchmark {
+
+    private static final int ORDERS = 2_000_000;
+    private static final int WARMUP_ORDERS = 500_000;
+    private static final long MID_PRICE = 100_000;
+    private static final int PRICE_SPREAD = 50;
+    private static final int OWNERS = 1_000;
+    private static final int SEED_ORDERS_PER_LEVEL = 20;
+
+    @Test
+    void matchAndRestCrossingOrders() {
+        Random random = new Random(42);
+        boolean[] buys = new boolean[ORDERS];
+        long[] prices = new long[ORDERS];
+        long[] quantities = new long[ORDERS];
+        long[] owners = new long[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            buys[i] = random.nextBoolean();
+            prices[i] = MID_PRICE + random.nextInt(2 * PRICE_SPREAD + 1) - PRICE_SPREAD;
+            quantities[i] = 1 + random.nextInt(100);
+            owners[i] = random.nextInt(OWNERS);
+        }
+
+        OrderBook warmup = new OrderBook();
+        seed(warmup);
+        match(warmup, buys, prices, quantities, owners, WARMUP_ORDERS);
+
+        OrderBook book = new OrderBook();
+        long start = System.nanoTime();
+        int seeded = seed(book);
+        report("rest", seeded, System.nanoTime() - start);
+        start = System.nanoTime();
+        long fills = match(book, buys, prices, quantities, owners, ORDERS);
+        report("match", ORDERS, System.nanoTime() - start);
+        System.out.printf("match: %d fills, %d orders resting%n", fills, book.orderCount());
+        assertThat(fills).isGreaterThan(0);
+    }
+
+    private static int seed(OrderBook book) {
+        int orderId = -1;
+        for (int level = 1; level <= PRICE_SPREAD; level++) {
+            for (int i = 0; i < SEED_ORDERS_PER_LEVEL; i++) {
+                book.rest(orderId--, OWNERS + i, true, MID_PRICE - level, 100);
+                book.rest(orderId--, OWNERS + i, false, MID_PRICE + level, 100);
+            }
+        }
+        book.clearChanges();
+        return -orderId - 1;
+    }
+
+    private static long match(OrderBook book, boolean[] buys, long[] prices, long[] quantities, long[] owners,
+                              int count) {
+        MatchResult result = new MatchResult();
+        long fills = 0;
+        for (int i = 0; i < count; i++) {
+            result.clear();
+            book.match(i, owners[i], buys[i], prices[i], quantities[i], result);
+            fills += result.getFillCount();
+            book.clearChanges();
+        }
+        return fills;
+    }
+
+    private static void report(String name, int orders, long nanos) {
+        System.out.printf("%s: %d orders in %.1f ms, %.0f orders/s%n", name, orders, nanos / 1e6, orders * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,175 @@
+package com.kakz.tradeIn.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderBookTests {
+
+    private static final long ALICE = 1;
+    private static final long BOB = 2;
+    private static final long CAROL = 3;
+
+    private final OrderBook book = new OrderBook();
+
+    @Test
+    void fillsBestPriceFirstAndOldestFirstWithinAPrice() {
+        book.rest(1, ALICE, false, 101, 5);
+        book.rest(2, BOB, false, 100, 5);
+        book.rest(3, CAROL, false, 100, 5);
+
+        MatchResult result = new MatchResult();
+        book.match(4, 9, true, 101, 12, result);
+
+        assertThat(makers(result)).containsExactly(2L, 3L, 1L);
+        assertThat(result.priceUnits(0)).isEqualTo(100);
+        assertThat(result.priceUnits(2)).isEqualTo(101);
+        assertThat(result.quantityUnits(2)).isEqualTo(2);
+        assertThat(result.isSelfTradePrevented()).isFalse();
+        assertThat(book.levelCount(false)).isEqualTo(1);
+        assertThat(book.quantityAt(false, 101)).isEqualTo(3);
+        assertThat(book.levelCount(true)).isZero();
+    }
+
+    @Test
+    void restsWhatIsLeftAfterAPartialFill() {
+        book.rest(1, ALICE, false, 100, 4);
+
+        MatchResult result = new MatchResult();
+        book.match(2, BOB, true, 100, 10, result);
+
+        assertThat(result.getFillCount()).isEqualTo(1);
+        assertThat(result.quantityUnits(0)).isEqualTo(4);
+        assertThat(result.remainingUnits()).isEqualTo(6);
+        assertThat(book.levelCount(false)).isZero();
+        assertThat(book.quantityAt(true, 100)).isEqualTo(6);
+        assertThat(book.orderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsAPartlyFilledMakerAtTheFrontOfItsLevel() {
+        book.rest(1, ALICE, false, 100, 10);
+        book.rest(2, BOB, false, 100, 10);
+
+        MatchResult result = new MatchResult();
+        book.match(3, CAROL, true, 100, 4, result);
+        result.clear();
+        book.match(4, CAROL, true, 100, 8, result);
+
+        assertThat(makers(result)).containsExactly(1L, 2L);
+        assertThat(result.quantityUnits(0)).isEqualTo(6);
+        assertThat(result.quantityUnits(1)).isEqualTo(2);
+        assertThat(book.quantityAt(false, 100)).isEqualTo(8);
+    }
+
+    @Test
+    void doesNotCrossBeyondTheLimitPrice() {
+        book.rest(1, ALICE, true, 99, 5);
+
+        MatchResult result = new MatchResult();
+        book.match(2, BOB, false, 100, 5, result);
+
+        assertThat(result.getFillCount()).isZero();
+        assertThat(book.quantityAt(true, 99)).isEqualTo(5);
+        assertThat(book.quantityAt(false, 100)).isEqualTo(5);
+    }
+
+    @Test
+    void cancelRemovesAnOrderFromTheMiddleOfItsLevel() {
+        book.rest(1, ALICE, true, 100, 1);
+        book.rest(2, BOB, true, 100, 2);
+        book.rest(3, CAROL, true, 100, 3);
+
+        assertThat(book.cancel(2, true, 100)).isEqualTo(2);
+
+        assertThat(book.quantityAt(true, 100)).isEqualTo(4);
+        assertThat(book.orderCount()).isEqualTo(2);
+        MatchResult result = new MatchResult();
+        book.match(4, 9, false, 100, 4, result);
+        assertThat(makers(result)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void cancelOfTheTailKeepsLaterOrdersBehindTheRest() {
+        book.rest(1, ALICE, false, 100, 1);
+        book.rest(2, BOB, false, 100, 1);
+
+        book.cancel(2, false, 100);
+        book.rest(3, CAROL, false, 100, 1);
+
+        MatchResult result = new MatchResult();
+        book.match(4, 9, true, 100, 2, result);
+        assertThat(makers(result)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void cancelOfTheLastOrderRemovesItsLevel() {
+        book.rest(1, ALICE, false, 100, 1);
+        book.rest(2, BOB, false, 101, 1);
+        book.rest(3, CAROL, false, 102, 1);
+
+        assertThat(book.cancel(2, false, 101)).isEqualTo(1);
+
+        assertThat(book.levelCount(false)).isEqualTo(2);
+        assertThat(book.levelPrice(false, 0)).isEqualTo(100);
+        assertThat(book.levelPrice(false, 1)).isEqualTo(102);
+    }
+
+    @Test
+    void cancelOfAnUnknownOrderChangesNothing() {
+        book.rest(1, ALICE, false, 100, 1);
+
+        assertThat(book.cancel(7, false, 100)).isZero();
+        assertThat(book.cancel(1, false, 101)).isZero();
+        assertThat(book.cancel(1, true, 100)).isZero();
+        assertThat(book.orderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsAtARestingOrderOfTheSameOwnerAndDropsTheRest() {
+        book.rest(1, BOB, false, 100, 3);
+        book.rest(2, ALICE, false, 100, 3);
+        book.rest(3, BOB, false, 100, 3);
+
+        MatchResult result = new MatchResult();
+        book.match(4, ALICE, true, 100, 9, result);
+
+        assertThat(makers(result)).containsExactly(1L);
+        assertThat(result.isSelfTradePrevented()).isTrue();
+        assertThat(result.remainingUnits()).isEqualTo(6);
+        assertThat(book.levelCount(true)).isZero();
+        assertThat(book.quantityAt(false, 100)).isEqualTo(6);
+        assertThat(book.orderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void previewMatchesWhatMatchingDoesWithoutChangingTheBook() {
+        book.rest(1, ALICE, false, 100, 3);
+        book.rest(2, BOB, false, 101, 3);
+        book.rest(3, CAROL, false, 102, 3);
+        book.rest(4, ALICE, false, 102, 3);
+
+        MatchResult preview = new MatchResult();
+        book.preview(CAROL, true, 102, 20, preview);
+        assertThat(book.orderCount()).isEqualTo(4);
+        assertThat(book.quantityAt(false, 100)).isEqualTo(3);
+
+        MatchResult matched = new MatchResult();
+        book.match(5, CAROL, true, 102, 20, matched);
+
+        assertThat(preview.sameAs(matched)).isTrue();
+        assertThat(makers(matched)).containsExactly(1L, 2L);
+        assertThat(matched.isSelfTradePrevented()).isTrue();
+    }
+
+    private static List<Long> makers(MatchResult result) {
+        List<Long> makers = new ArrayList<>();
+        for (int i = 0; i < result.getFillCount(); i++) {
+            makers.add(result.getMakerOrderId(i));
+        }
+        return makers;
+    }
+}
@@ -0,0 +1,110 @@
+package com.kakz.tradeIn.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the order journal's append throughput, with and without waiting for durability, and
+ * the time recovery takes per million events. Skipped unless run with
+ * {@code mvn test -Dtest=OrderJournalBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderJournalBenchmark {
+
+    private static final int EVENTS = 1_000_000;
+    private static final int DURABLE_THREADS = 16;
+    private static final int DURABLE_EVENTS_PER_THREAD = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndReplay() throws Exception {
+        OrderJournal journal = journal(false);
+        journal.recover(new CountingReplayer());
+        long start = System.nanoTime();
+        for (int i = 1; i <= EVENTS; i++) {
+            byte type = i % 4 == 0 ? OrderJournal.FILLED : OrderJournal.ACCEPTED;
+            journal.append(type, "coin-" + (i % 50), i, i % 1000, (i & 1) == 0, 100_000 + i % 500, 1_000);
+        }
+        report("append", EVENTS, System.nanoTime() - start);
+        journal.shutdown();
+
+        CountingReplayer replayer = new CountingReplayer();
+        OrderJournal recovered = journal(false);
+        recovered.recover(replayer);
+        recovered.shutdown();
+        Map<String, Object> metrics = recovered.metrics();
+        System.out.printf("replay: %s events in %.1f ms, %.1f ms per million events%n",
+                metrics.get("replayedEvents"), metrics.get("replayMillis"), metrics.get("replayMillisPerMillionEvents"));
+        assertThat(replayer.events).isEqualTo(EVENTS - EVENTS / 4);
+    }
+
+    @Test
+    void durableAppendsShareFlushes() throws Exception {
+        OrderJournal journal = journal(true);
+        journal.recover(new CountingReplayer());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < DURABLE_THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < DURABLE_EVENTS_PER_THREAD; i++) {
+                    journal.awaitDurable(journal.append(OrderJournal.ACCEPTED, "coin-" + thread, i, thread, true, 100, 1));
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report("durable append", DURABLE_THREADS * DURABLE_EVENTS_PER_THREAD, System.nanoTime() - start);
+        System.out.printf("durable append: %.1f events per flush%n", journal.metrics().get("averageEventsPerFlush"));
+        journal.shutdown();
+    }
+
+    private OrderJournal journal(boolean sync) throws IOException {
+        OrderJournal journal = new OrderJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.resolve(sync ? "durable" : "buffered").toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", 64 << 20);
+        ReflectionTestUtils.setField(journal, "sync", sync);
+        ReflectionTestUtils.setField(journal, "flushIntervalMs", 10L);
+        journal.init();
+        return journal;
+    }
+
+    private static void report(String name, int events, long nanos) {
+        System.out.printf("%s: %d events in %.1f ms, %.0f events/s%n",
+                name, events, nanos / 1e6, events * 1e9 / nanos);
+    }
+
+    private static final class CountingReplayer implements OrderJournal.Replayer {
+        private long events;
+
+        @Override
+        public void rest(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+            events++;
+        }
+
+        @Override
+        public void accept(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+            events++;
+        }
+
+        @Override
+        public void cancel(String coinId, long orderId, boolean buy, long price) {
+            events++;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.kakz.tradeIn.matching;
+
+import com.kakz.tradeIn.domain.OrderType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the order journal rebuilds the books after a restart: replaying events across
+ * segments, starting from the latest snapshot once older segments are compacted, stopping at a
+ * torn record, and that the books only ever hold committed orders.
+ */
+class OrderJournalTests {
+
+    /**
+     * Size of one record for a three-letter coin id.
+     */
+    private static final int RECORD_BYTES = 8 + 44 + 3;
+
+    @TempDir
+    Path directory;
+
+    private final List<OrderJournal> journals = new ArrayList<>();
+    private final List<MatchingEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (MatchingEngine engine : engines) {
+            engine.shutdown();
+        }
+        for (OrderJournal journal : journals) {
+            journal.shutdown();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void replaysEveryEventInOrderAfterARestart() throws Exception {
+        OrderJournal journal = journal(1 << 16);
+        assertThat(journal.recover(new RecordingReplayer())).isFalse();
+        journal.append(OrderJournal.RESTED, "btc", 1, 7, false, 100, 5);
+        journal.append(OrderJournal.ACCEPTED, "btc", 2, 8, true, 100, 3);
+        journal.append(OrderJournal.FILLED, "btc", 2, 1, true, 100, 3);
+        journal.awaitDurable(journal.append(OrderJournal.CANCELLED, "btc", 1, 0, false, 100, 2));
+        journal.shutdown();
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        assertThat(journal(1 << 16).recover(replayer)).isTrue();
+
+        assertThat(replayer.events).containsExactly(
+                "rest btc 1 7 sell 100 5", "accept btc 2 8 buy 100 3", "cancel btc 1 sell 100");
+    }
+
+    @Test
+    void replaysAcrossRolledOverSegments() throws Exception {
+        OrderJournal journal = journal(4 * RECORD_BYTES);
+        journal.recover(new RecordingReplayer());
+        for (int i = 1; i <= 20; i++) {
+            journal.append(OrderJournal.RESTED, "btc", i, 7, true, 100 + i, 1);
+        }
+        journal.awaitDurable(journal.lastSequence());
+        journal.shutdown();
+        assertThat(files(".log").size()).isGreaterThan(4);
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        OrderJournal recovered = journal(4 * RECORD_BYTES);
+        recovered.recover(replayer);
+
+        assertThat(replayer.events).hasSize(20);
+        assertThat(replayer.events.get(19)).isEqualTo("rest btc 20 7 buy 120 1");
+        assertThat(recovered.append(OrderJournal.RESTED, "btc", 21, 7, true, 1, 1)).isEqualTo(21L);
+    }
+
+    @Test
+    void recoversFromTheSnapshotAfterCompactingOlderSegments() throws Exception {
+        OrderJournal journal = journal(4 * RECORD_BYTES);
+        journal.recover(new RecordingReplayer());
+        OrderBook book = new OrderBook();
+        for (int i = 1; i <= 10; i++) {
+            book.rest(i, 7, false, 100, 1);
+            journal.append(OrderJournal.RESTED, "btc", i, 7, false, 100, 1);
+        }
+        assertThat(files(".log")).hasSize(3);
+        journal.writeSnapshot(List.of(OrderJournal.image(Map.of("btc", book), journal.lastSequence())));
+        journal.append(OrderJournal.CANCELLED, "btc", 1, 0, false, 100, 1);
+        journal.awaitDurable(journal.append(OrderJournal.RESTED, "btc", 11, 8, false, 101, 2));
+        journal.shutdown();
+
+        assertThat(files(".snapshot")).hasSize(1);
+        assertThat(files(".log")).hasSize(1);
+        RecordingReplayer replayer = new RecordingReplayer();
+        journal(4 * RECORD_BYTES).recover(replayer);
+
+        assertThat(replayer.events).hasSize(12);
+        assertThat(replayer.events.subList(10, 12))
+                .containsExactly("cancel btc 1 sell 100", "rest btc 11 8 sell 101 2");
+        assertThat(replayer.books.get("btc").orderCount()).isEqualTo(10);
+    }
+
+    @Test
+    void replaysOnlyTheEventsAfterEachShardsImage() throws Exception {
+        OrderJournal journal = journal(1 << 16);
+        journal.recover(new RecordingReplayer());
+        OrderBook btc = new OrderBook();
+        OrderBook eth = new OrderBook();
+        btc.rest(1, 7, true, 100, 1);
+        journal.append(OrderJournal.RESTED, "btc", 1, 7, true, 100, 1);
+        eth.rest(2, 7, true, 100, 1);
+        journal.append(OrderJournal.RESTED, "eth", 2, 7, true, 100, 1);
+        byte[] ethImage = OrderJournal.image(Map.of("eth", eth), journal.lastSequence());
+        btc.rest(3, 7, true, 100, 1);
+        journal.append(OrderJournal.RESTED, "btc", 3, 7, true, 100, 1);
+        journal.append(OrderJournal.RESTED, "eth", 4, 7, true, 100, 1);
+        byte[] btcImage = OrderJournal.image(Map.of("btc", btc), journal.lastSequence());
+        journal.writeSnapshot(List.of(btcImage, ethImage));
+        journal.shutdown();
+
+        assertThat(journal.snapshotSequence()).isEqualTo(2L);
+        RecordingReplayer replayer = new RecordingReplayer();
+        journal(1 << 16).recover(replayer);
+
+        assertThat(replayer.books.get("btc").orderCount()).isEqualTo(2);
+        assertThat(replayer.books.get("eth").orderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void stopsReplayingAtATornRecord() throws Exception {
+        OrderJournal journal = journal(1 << 16);
+        journal.recover(new RecordingReplayer());
+        for (int i = 1; i <= 3; i++) {
+            journal.append(OrderJournal.RESTED, "btc", i, 7, true, 100, 1);
+        }
+        journal.awaitDurable(journal.lastSequence());
+        journal.shutdown();
+        try (RandomAccessFile segment = new RandomAccessFile(files(".log").get(0).toFile(), "rw")) {
+            segment.seek(2 * RECORD_BYTES + 20);
+            segment.write(0x7F);
+        }
+
+        RecordingReplayer replayer = new RecordingReplayer();
+        OrderJournal recovered = journal(1 << 16);
+        recovered.recover(replayer);
+
+        assertThat(replayer.events).hasSize(2);
+        assertThat(recovered.lastSequence()).isEqualTo(2L);
+    }
+
+    @Test
+    void aRolledBackOrderNeverReachesTheBookOrTheJournal() throws Exception {
+        MatchingEngine engine = engine(journal(1 << 16));
+        engine.restore(Map.of());
+
+        begin();
+        engine.lockBook("btc");
+        engine.match("btc", 1, 7, OrderType.SELL, 100, 1);
+        complete(false);
+
+        assertThat(engine.execute("btc", OrderBook::orderCount)).isZero();
+        assertThat(journals.get(0).lastSequence()).isZero();
+    }
+
+    @Test
+    void restoreRebuildsRecoveredBooksThatDisagreeWithTheDatabase() throws Exception {
+        MatchingEngine engine = engine(journal(1 << 16));
+        engine.restore(Map.of());
+        for (long orderId = 1; orderId <= 2; orderId++) {
+            begin();
+            engine.lockBook("btc");
+            engine.match("btc", orderId, 6 + orderId, OrderType.SELL, 100, 1);
+            complete(true);
+        }
+        begin();
+        engine.lockBook("eth");
+        engine.match("eth", 4, 7, OrderType.BUY, 50, 1);
+        complete(true);
+        engine.shutdown();
+        journals.get(0).shutdown();
+
+        MatchingEngine restarted = engine(journal(1 << 16));
+        assertThat(restarted.execute("btc", OrderBook::orderCount)).isEqualTo(2);
+        Map<String, List<MatchingEngine.OpenOrder>> open = new HashMap<>();
+        open.put("btc", List.of(new MatchingEngine.OpenOrder(2, 8, OrderType.SELL, 100, 1, 0),
+                new MatchingEngine.OpenOrder(3, 9, OrderType.SELL, 101, 2, 0.5)));
+        open.put("eth", List.of(new MatchingEngine.OpenOrder(4, 7, OrderType.BUY, 50, 1, 0)));
+
+        assertThat(restarted.restore(open)).isEqualTo(1);
+
+        List<Long> btc = new ArrayList<>();
+        restarted.execute("btc", book -> {
+            book.forEachOrder((orderId, owner, buy, price, quantity) -> btc.add(orderId));
+            return null;
+        });
+        assertThat(btc).containsExactly(2L, 3L);
+        long resting = restarted.execute("btc", book -> book.quantityAt(false, MatchingEngine.toUnits(101)));
+        assertThat(resting).isEqualTo(MatchingEngine.toUnits(1.5));
+    }
+
+    @Test
+    void noBookCanBeLockedBeforeTheBooksAreRestored() throws Exception {
+        MatchingEngine engine = engine(journal(1 << 16));
+
+        begin();
+        assertThatThrownBy(() -> engine.lockBook("btc")).hasMessageContaining("restored");
+    }
+
+    private OrderJournal journal(int segmentSize) throws IOException {
+        OrderJournal journal = new OrderJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", segmentSize);
+        ReflectionTestUtils.setField(journal, "sync", true);
+        ReflectionTestUtils.setField(journal, "flushIntervalMs", 10L);
+        journal.init();
+        journals.add(journal);
+        return journal;
+    }
+
+    private MatchingEngine engine(OrderJournal journal) throws IOException {
+        DepthFeed depthFeed = new DepthFeed();
+        ReflectionTestUtils.setField(depthFeed, "maxLevels", 10);
+        ReflectionTestUtils.setField(depthFeed, "bufferSize", 10);
+        MatchingEngine engine = new MatchingEngine();
+        ReflectionTestUtils.setField(engine, "shardCount", 2);
+        ReflectionTestUtils.setField(engine, "lockTimeoutMs", 100L);
+        ReflectionTestUtils.setField(engine, "snapshotIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(engine, "depthFeed", depthFeed);
+        ReflectionTestUtils.setField(engine, "journal", journal);
+        engine.init();
+        engines.add(engine);
+        return engine;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    /**
+     * Runs the synchronizations of the current transaction the way the transaction manager does.
+     */
+    private static void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (committed) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(committed
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private static final class RecordingReplayer implements OrderJournal.Replayer {
+        private final List<String> events = new ArrayList<>();
+        private final Map<String, OrderBook> books = new HashMap<>();
+        private final MatchResult scratch = new MatchResult();
+
+        @Override
+        public void rest(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+            events.add("rest " + coinId + " " + orderId + " " + owner + " " + side(buy) + " " + price + " " + quantity);
+            book(coinId).rest(orderId, owner, buy, price, quantity);
+        }
+
+        @Override
+        public void accept(String coinId, long orderId, long owner, boolean buy, long price, long quantity) {
+            events.add("accept " + coinId + " " + orderId + " " + owner + " " + side(buy) + " " + price + " " + quantity);
+            scratch.clear();
+            book(coinId).match(orderId, owner, buy, price, quantity, scratch);
+        }
+
+        @Override
+        public void cancel(String coinId, long orderId, boolean buy, long price) {
+            events.add("cancel " + coinId + " " + orderId + " " + side(buy) + " " + price);
+            book(coinId).cancel(orderId, buy, price);
+        }
+
+        private OrderBook book(String coinId) {
+            return books.computeIfAbsent(coinId, id -> new OrderBook());
+        }
+
+        private static String side(boolean buy) {
+            return buy ? "buy" : "sell";
+        }
+    }
+}
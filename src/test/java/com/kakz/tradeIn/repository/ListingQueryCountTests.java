@@ -0,0 +1,155 @@
+package com.kakz.tradeIn.repository;
+
+import com.kakz.tradeIn.domain.OrderStatus;
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.model.Asset;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.Order;
+import com.kakz.tradeIn.model.OrderItem;
+import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.response.AssetSummary;
+import com.kakz.tradeIn.response.OrderSummary;
+import com.kakz.tradeIn.utils.OrderCursor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the order and asset listings are read with exactly one SQL statement and without
+ * loading any entity, however many rows they return.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listings;MODE=MySQL;NON_KEYWORDS=USER,TIMESTAMP",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ListingQueryCountTests {
+
+    private static final int ORDERS = 60;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        user = new User();
+        user.setEmail("trader@example.com");
+        entityManager.persist(user);
+
+        Coin bitcoin = coin("bitcoin", "btc");
+        Coin ethereum = coin("ethereum", "eth");
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ORDERS; i++) {
+            order(i % 2 == 0 ? bitcoin : ethereum, i % 3 == 0 ? OrderType.SELL : OrderType.BUY, now.minusMinutes(i));
+        }
+        asset(bitcoin, 1.5);
+        asset(ethereum, 10);
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void orderHistoryPageIsOneStatement() {
+        List<OrderSummary> page = orderRepository.findHistory(user.getId(), null, null,
+                OrderCursor.START.getTimestamp(), OrderCursor.START.getId(), PageRequest.of(0, 50));
+
+        assertThat(page).hasSize(50);
+        assertThat(page.get(0).getOrderItem().getCoin().getSymbol()).isEqualTo("btc");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void filteredPagesFollowTheCursorWithOneStatementEach() {
+        List<OrderSummary> first = orderRepository.findHistory(user.getId(), OrderType.BUY, "btc",
+                OrderCursor.START.getTimestamp(), OrderCursor.START.getId(), PageRequest.of(0, 10));
+        OrderSummary last = first.get(first.size() - 1);
+        List<OrderSummary> second = orderRepository.findHistory(user.getId(), OrderType.BUY, "btc",
+                last.getTimestamp(), last.getId(), PageRequest.of(0, 10));
+
+        // bitcoin is every even order and SELL every third, so 20 of the 60 are bitcoin buys
+        assertThat(first).hasSize(10);
+        assertThat(second).hasSize(10);
+        assertThat(second.get(0).getTimestamp()).isBefore(last.getTimestamp());
+        assertThat(first).allMatch(order -> order.getOrderType() == OrderType.BUY
+                && order.getOrderItem().getCoin().getId().equals("bitcoin"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void assetListIsOneStatement() {
+        List<AssetSummary> assets = assetRepository.findSummariesByUserId(user.getId());
+
+        assertThat(assets).hasSize(2);
+        assertThat(assets).extracting(asset -> asset.getCoin().getSymbol()).containsExactly("btc", "eth");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private Coin coin(String id, String symbol) {
+        Coin coin = new Coin();
+        coin.setId(id);
+        coin.setSymbol(symbol);
+        coin.setName(id);
+        coin.setCurrentPrice(100);
+        return entityManager.persist(coin);
+    }
+
+    private void order(Coin coin, OrderType orderType, LocalDateTime timestamp) {
+        OrderItem item = new OrderItem();
+        item.setCoin(coin);
+        item.setQuantity(1);
+        item.setFilledQuantity(1);
+        item.setBuyPrice(100);
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderType(orderType);
+        order.setStatus(OrderStatus.SUCCESS);
+        order.setPrice(BigDecimal.valueOf(100));
+        order.setTimestamp(timestamp);
+        order.setOrderItem(item);
+        item.setOrder(order);
+        entityManager.persist(order);
+    }
+
+    private void asset(Coin coin, double quantity) {
+        Asset asset = new Asset();
+        asset.setUser(user);
+        asset.setCoin(coin);
+        asset.setQuantity(quantity);
+        asset.setBuyPrice(100);
+        entityManager.persist(asset);
+    }
+}
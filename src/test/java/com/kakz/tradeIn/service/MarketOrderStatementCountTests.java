@@ -0,0 +1,202 @@
+package com.kakz.tradeIn.service;
+
+import com.kakz.tradeIn.domain.OrderType;
+import com.kakz.tradeIn.matching.DepthFeed;
+import com.kakz.tradeIn.matching.MatchingEngine;
+import com.kakz.tradeIn.matching.OrderJournal;
+import com.kakz.tradeIn.model.Asset;
+import com.kakz.tradeIn.model.Coin;
+import com.kakz.tradeIn.model.User;
+import com.kakz.tradeIn.model.Wallet;
+import com.kakz.tradeIn.repository.AssetRepository;
+import com.kakz.tradeIn.utils.TradeStageMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the SQL statements and JDBC batches of a market buy and a market sell, so a change to
+ * the write path that adds a statement or breaks batching shows up here.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:marketorders;MODE=MySQL;NON_KEYWORDS=USER,TIMESTAMP",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderServiceImpl.class, WalletServiceImpl.class, WalletTransactionServiceImpl.class, AssetServiceImpl.class,
+        MatchingEngine.class, OrderJournal.class, DepthFeed.class, TradeStageMetrics.class,
+        MarketOrderStatementCountTests.BatchCounting.class})
+class MarketOrderStatementCountTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private AssetRepository assetRepository;
+
+    @Autowired
+    private BatchCounter batches;
+
+    private Statistics statistics;
+    private User user;
+    private Coin coin;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        user = new User();
+        user.setEmail("trader@example.com");
+        entityManager.persist(user);
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setBalance(BigDecimal.valueOf(1_000_000));
+        entityManager.persist(wallet);
+        coin = new Coin();
+        coin.setId("bitcoin");
+        coin.setSymbol("btc");
+        coin.setName("Bitcoin");
+        coin.setCurrentPrice(100);
+        entityManager.persist(coin);
+
+        // the first trade creates the asset and takes a block from every id sequence, so the
+        // trades measured below touch neither
+        orderService.processOrder(coin, 10, OrderType.BUY, user, null);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        batches.clear();
+    }
+
+    @Test
+    void marketBuyIsFiveSelectsAndOneBatchPerTable() throws Exception {
+        orderService.processOrder(coin, 2, OrderType.BUY, user, null);
+        entityManager.flush();
+
+        // five selects: the wallet and its user, the asset and its coin, and the snapshot Hibernate
+        // reads to tell that the detached coin of the new item is not transient; then five
+        // batches: both ledger entries together, the order, its item, the asset and the wallet
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(10);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(2);
+        assertThat(batches.executed.get()).isEqualTo(5);
+        assertThat(batches.statements.get()).isEqualTo(6);
+        entityManager.clear();
+        assertThat(assetRepository.findByUserIdAndCoinId(user.getId(), coin.getId()).getQuantity()).isEqualTo(12);
+    }
+
+    @Test
+    void marketSellIsFiveSelectsAndOneBatchPerTable() throws Exception {
+        orderService.processOrder(coin, 4, OrderType.SELL, user, null);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(10);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(2);
+        assertThat(batches.executed.get()).isEqualTo(5);
+        assertThat(batches.statements.get()).isEqualTo(6);
+        entityManager.clear();
+        Asset asset = assetRepository.findByUserIdAndCoinId(user.getId(), coin.getId());
+        assertThat(asset.getQuantity()).isEqualTo(6);
+    }
+
+    /**
+     * Counts the JDBC batches sent and the statements they carried.
+     */
+    static class BatchCounter {
+        final AtomicInteger executed = new AtomicInteger();
+        final AtomicInteger statements = new AtomicInteger();
+
+        void clear() {
+            executed.set(0);
+            statements.set(0);
+        }
+    }
+
+    /**
+     * Wraps the data source so every prepared statement reports its batches to the counter.
+     */
+    @TestConfiguration
+    static class BatchCounting {
+
+        @Bean
+        static BatchCounter batchCounter() {
+            return new BatchCounter();
+        }
+
+        @Bean
+        static BeanPostProcessor batchCountingDataSource(BatchCounter counter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource, counter) : bean;
+                }
+            };
+        }
+
+        private static DataSource counting(DataSource dataSource, BatchCounter counter) {
+            return proxy(DataSource.class, dataSource, (method, result) ->
+                    result instanceof Connection connection ? counting(connection, counter) : result);
+        }
+
+        private static Connection counting(Connection connection, BatchCounter counter) {
+            return proxy(Connection.class, connection, (method, result) ->
+                    result instanceof PreparedStatement statement ? counting(statement, counter) : result);
+        }
+
+        private static PreparedStatement counting(PreparedStatement statement, BatchCounter counter) {
+            return proxy(PreparedStatement.class, statement, (method, result) -> {
+                if (method.getName().equals("addBatch")) {
+                    counter.statements.incrementAndGet();
+                } else if (method.getName().equals("executeBatch")) {
+                    counter.executed.incrementAndGet();
+                }
+                return result;
+            });
+        }
+
+        /**
+         * Forwards every call to the target and lets {@code wrap} replace what it returns.
+         */
+        private static <T> T proxy(Class<T> type, T target, BiFunction<Method, Object, Object> wrap) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                try {
+                    return wrap.apply(method, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}